@@ -3,17 +3,18 @@ package api.automata;
 import common.Digraph;
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.bimap.BiMap;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.map.MapIterable;
 import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.tuple.Pair;
 import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.list.mutable.FastList;
 import org.eclipse.collections.impl.map.mutable.UnifiedMap;
 import org.eclipse.collections.impl.set.mutable.UnifiedSet;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.function.Function;
 
 import static api.util.Constants.DISPLAY_DUMMY_STATE_NAME_PREFIX;
@@ -49,23 +50,20 @@ public interface Automaton<S>
         return acceptStates().contains(state);
     }
 
+    /**
+     * Returns the states numbered densely, with the successor relation on the
+     * numbers, which the graph searches below run on.
+     */
+    default StateNumbering<S> stateNumbering()
+    {
+        return StateNumbering.of(this);
+    }
+
     default SetIterable<State<S>> reachableStates()
     {
-        final MutableSet<State<S>> result = UnifiedSet.newSet(states().size()); // upper bound
-        result.add(startState());
-        final Queue<State<S>> pendingChecks = new LinkedList<>();
-        pendingChecks.add(startState());
-
-        State<S> currReached;
-        while ((currReached = pendingChecks.poll()) != null) {
-            currReached.successors().forEach(thenReached -> {
-                if (result.add(thenReached)) {
-                    pendingChecks.add(thenReached);
-                }
-            });
-        }
+        final var numbering = stateNumbering();
 
-        return result;
+        return numbering.statesOf(numbering.digraph().reachableFrom(0));
     }
 
     default SetIterable<State<S>> unreachableStates()
@@ -87,26 +85,9 @@ public interface Automaton<S>
 
     default SetIterable<State<S>> liveStates()
     {
-        final MutableSet<State<S>> result = UnifiedSet.newSet(states().size()); // upper bound
-        final var predecessors = predecessorRelation();
-        final var acceptStates = acceptStates();
-        final Queue<State<S>> pendingChecks = new LinkedList<>();
-        acceptStates.forEach(pendingChecks::add);
-        result.addAllIterable(acceptStates);
-
-        State<S> currLiving;
-        SetIterable<State<S>> preds;
-        while ((currLiving = pendingChecks.poll()) != null) {
-            if ((preds = predecessors.get(currLiving)) != null) {
-                preds.forEach(alsoLiving -> {
-                    if (result.add(alsoLiving)) {
-                        pendingChecks.add(alsoLiving);
-                    }
-                });
-            }
-        }
+        final var numbering = stateNumbering();
 
-        return result;
+        return numbering.statesOf(numbering.digraph().reverse().reachableFrom(numbering.numbersOf(acceptStates())));
     }
 
     default SetIterable<State<S>> deadEndStates()
@@ -116,7 +97,35 @@ public interface Automaton<S>
 
     default SetIterable<State<S>> danglingStates()
     {
-        return states().difference(reachableStates().intersect(liveStates()));
+        final var numbering = stateNumbering();
+        final var digraph = numbering.digraph();
+        final var trimmed = digraph.reachableFrom(0);
+        trimmed.and(digraph.reverse().reachableFrom(numbering.numbersOf(acceptStates())));
+        trimmed.flip(0, numbering.size());
+
+        return numbering.statesOf(trimmed);
+    }
+
+    /**
+     * Returns the strongly connected components of the transition graph
+     * (epsilon transitions included) in a reverse topological order, each
+     * component listed before the ones it can be reached from.
+     */
+    default ListIterable<SetIterable<State<S>>> stronglyConnectedComponents()
+    {
+        final var numbering = stateNumbering();
+        final var components = numbering.digraph().stronglyConnectedComponents();
+        final MutableList<MutableSet<State<S>>> result = FastList.newList();
+        for (var i = 0; i < components.length; i++) {
+            while (result.size() <= components[i]) {
+                result.add(UnifiedSet.newSet());
+            }
+            result.get(components[i]).add(numbering.stateOf(i));
+        }
+
+        @SuppressWarnings("unchecked")
+        final ListIterable<SetIterable<State<S>>> resultCasted = (ListIterable) result;
+        return resultCasted;
     }
 
     Automaton<S> trimUnreachableStates();
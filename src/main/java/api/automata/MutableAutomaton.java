@@ -37,10 +37,11 @@ public interface MutableAutomaton<S> extends Automaton<S>
                         pendingChecks.add(currState);
                         continue;
                     }
-                    currState.addTransitions(succ.transitions());
+                    succ.transitions().forEach(
+                        arc -> addTransition(currState, (MutableState<S>) arc.getTwo(), arc.getOne()));
                     clearedStates.add(succ);
                 }
-                clearedStates.forEach(cleared -> currState.removeTransition(epsilon, (MutableState<S>) cleared));
+                clearedStates.forEach(cleared -> removeTransition(currState, (MutableState<S>) cleared, epsilon));
             }
         }
         if (!pendingChecks.isEmpty()) {
@@ -135,6 +136,8 @@ public interface MutableAutomaton<S> extends Automaton<S>
         return addTransition(dept, dest, alphabet().epsilon());
     }
 
+    MutableAutomaton<S> removeTransition(MutableState<S> dept, MutableState<S> dest, S symbol);
+
     @Override
     String toString();
 
@@ -0,0 +1,100 @@
+package api.automata;
+
+import common.IntDigraph;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
+
+import java.util.BitSet;
+
+import static api.util.Constants.NONEXISTING_STATE;
+
+/**
+ * The states of an automaton numbered densely from 0, the start state first,
+ * with the successor relation of the automaton on those numbers (whatever
+ * the symbols, epsilon included), so the graph searches on it run on the
+ * primitive kernel of {@link IntDigraph}.
+ * <p>
+ * It is a snapshot: the later changes to the automaton are not seen.
+ */
+public final class StateNumbering<S>
+{
+    private final ListIterable<State<S>> states;
+    private final MutableObjectIntMap<State<S>> numbers;
+    private final IntDigraph digraph;
+
+    private StateNumbering(Automaton<S> automaton)
+    {
+        final var stateNumber = automaton.states().size();
+        final MutableList<State<S>> states = FastList.newList(stateNumber);
+        numbers = new ObjectIntHashMap<>(stateNumber);
+        states.add(automaton.startState());
+        numbers.put(automaton.startState(), 0);
+        automaton.states().forEach(state -> {
+            if (!numbers.containsKey(state)) {
+                numbers.put(state, states.size());
+                states.add(state);
+            }
+        });
+        this.states = states;
+
+        final var builder = IntDigraph.builder(stateNumber, stateNumber); // lower bound in general
+        for (var i = 0; i < stateNumber; i++) {
+            final var dept = i; // effectively finalized for the lambda expression
+            states.get(i).successors().forEach(dest -> builder.addArc(dept, numberOf(dest)));
+        }
+        digraph = builder.build();
+    }
+
+    public static <S> StateNumbering<S> of(Automaton<S> automaton)
+    {
+        return new StateNumbering<>(automaton);
+    }
+
+    public int size()
+    {
+        return states.size();
+    }
+
+    public State<S> stateOf(int number)
+    {
+        return states.get(number);
+    }
+
+    public int numberOf(State<S> state)
+    {
+        final var result = numbers.getIfAbsent(state, -1);
+        if (result < 0) {
+            throw new IllegalArgumentException(NONEXISTING_STATE);
+        }
+
+        return result;
+    }
+
+    public IntDigraph digraph()
+    {
+        return digraph;
+    }
+
+    public BitSet numbersOf(Iterable<? extends State<S>> states)
+    {
+        final var result = new BitSet(size());
+        states.forEach(state -> result.set(numberOf(state)));
+
+        return result;
+    }
+
+    public MutableSet<State<S>> statesOf(BitSet numbers)
+    {
+        final MutableSet<State<S>> result = UnifiedSet.newSet(numbers.cardinality());
+        for (var i = numbers.nextSetBit(0); i >= 0; i = numbers.nextSetBit(i + 1)) {
+            result.add(states.get(i));
+        }
+
+        return result;
+    }
+}
@@ -3,6 +3,7 @@ package api.automata.fsa;
 import api.automata.Alphabet;
 import api.automata.Automaton;
 import api.automata.State;
+import common.util.CancellationToken;
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.block.predicate.Predicate;
 import org.eclipse.collections.api.list.ListIterable;
@@ -126,34 +127,39 @@ public interface FSA<S> extends Automaton<S>
         return !reachableStates().anySatisfy(this::isAcceptState);
     }
 
-    private ListIterable<S> getOneShortestWordDeterminedly()
+    /**
+     * Returns whether infinitely many words are accepted, which is when a
+     * cycle (not of epsilon transitions only) lies between the start and an
+     * accept state.
+     */
+    default boolean acceptsInfinitelyMany()
     {
-        final var stateNumber = states().size();
-        final MutableMap<State<S>, Pair<State<S>, S>> visitRecord = UnifiedMap.newMap(stateNumber); // upper bound
-        final Queue<State<S>> pendingChecks = new LinkedList<>();
-
-        final var startState = startState();
-        pendingChecks.add(startState);
-        State<S> currState;
-        while ((currState = pendingChecks.poll()) != null) {
-            if (isAcceptState(currState)) {
-                final MutableList<S> word = FastList.newList(stateNumber); // upper bound
-                while (currState != startState) {
-                    final var visitorAndSymbol = visitRecord.get(currState);
-                    word.add(visitorAndSymbol.getTwo());
-                    currState = visitorAndSymbol.getOne();
-                }
-                return word.reverseThis();
+        final var dfa = determinize().minimize();
+        final var danglingStates = dfa.danglingStates();
+        for (var component : dfa.stronglyConnectedComponents()) {
+            if (component.anySatisfy(state -> !danglingStates.contains(state)
+                && state.successors().anySatisfy(component::contains))) {
+                return true;
             }
-            final var visitor = currState; // effectively finalized for the lambda expression
-            visitor.transitions()
-                   .forEach(symbolAndDest -> visitRecord.computeIfAbsent(symbolAndDest.getTwo(), visited -> {
-                       pendingChecks.add(visited);
-                       return Tuples.pair(visitor, symbolAndDest.getOne());
-                   }));
         }
 
-        return null;
+        return false;
+    }
+
+    private ListIterable<S> getOneShortestWordDeterminedly()
+    {
+        final var numbering = stateNumbering();
+        final var path = numbering.digraph().shortestPath(0, i -> isAcceptState(numbering.stateOf(i)));
+        if (path == null) {
+            return null;
+        }
+
+        final MutableList<S> word = FastList.newList(path.size() - 1);
+        for (var i = 1; i < path.size(); i++) {
+            word.add(numbering.stateOf(path.get(i - 1)).enabledSymbolsTo(numbering.stateOf(path.get(i))).getFirst());
+        }
+
+        return word;
     }
 
     private ListIterable<S> getOneShortestWordNondeterminedly()
@@ -169,6 +175,7 @@ public interface FSA<S> extends Automaton<S>
         pendingChecks.add(startStates);
         SetIterable<State<S>> currStates;
         while ((currStates = pendingChecks.poll()) != null) {
+            CancellationToken.checkpoint();
             if (currStates.anySatisfy(this::isAcceptState)) {
                 final MutableList<S> word = FastList.newList(stateNumber);
                 while (currStates != startStates) {
@@ -3,6 +3,7 @@ package api.automata.fsa;
 import api.automata.Alphabet;
 import api.automata.MutableAutomaton;
 import api.automata.MutableState;
+import common.metrics.Metrics;
 import core.automata.AbstractMutableAutomaton;
 import core.automata.fsa.BasicMutableFSA;
 import org.eclipse.collections.api.RichIterable;
@@ -70,16 +71,18 @@ public final class FSAs
         return create(alphabet, 1);
     }
 
-    public static <S> FSA<S> acceptingNone(Alphabet<S> alphabet)
+    public static synchronized <S> FSA<S> acceptingNone(Alphabet<S> alphabet)
     {
         final var cache = NONE_FSA_CACHE.get(alphabet);
         FSA cachedItem;
         if (cache != null && (cachedItem = cache.get()) != null) {
             @SuppressWarnings("unchecked")
             final FSA<S> result = cachedItem;
+            Metrics.countCacheLookup("fsa-none", true);
             return result;
         }
 
+        Metrics.countCacheLookup("fsa-none", false);
         final var result = createAcceptingNone(alphabet);
         NONE_FSA_CACHE.put(alphabet, new SoftReference<>(result));
 
@@ -97,16 +100,18 @@ public final class FSAs
         return result;
     }
 
-    public static <S> FSA<S> acceptingAll(Alphabet<S> alphabet)
+    public static synchronized <S> FSA<S> acceptingAll(Alphabet<S> alphabet)
     {
         final var cache = ALL_FSA_CACHE.get(alphabet);
         FSA cachedItem;
         if (cache != null && (cachedItem = cache.get()) != null) {
             @SuppressWarnings("unchecked")
             final FSA<S> result = cachedItem;
+            Metrics.countCacheLookup("fsa-all", true);
             return result;
         }
 
+        Metrics.countCacheLookup("fsa-all", false);
         final var result = createAcceptingAll(alphabet);
         ALL_FSA_CACHE.put(alphabet, new SoftReference<>(result));
 
@@ -130,7 +135,7 @@ public final class FSAs
         return result;
     }
 
-    public static <S> FSA<S> acceptingAllOnLength(Alphabet<S> alphabet, int length)
+    public static synchronized <S> FSA<S> acceptingAllOnLength(Alphabet<S> alphabet, int length)
     {
         final var cache = FIXED_LENGTH_FSA_CACHE.get(alphabet);
         MutableIntObjectMap<FSA> cachedItems;
@@ -138,14 +143,17 @@ public final class FSAs
             if (cachedItems.containsKey(length)) {
                 @SuppressWarnings("unchecked")
                 final FSA<S> result = cachedItems.get(length);
+                Metrics.countCacheLookup("fsa-all-on-length", true);
                 return result;
             }
 
+            Metrics.countCacheLookup("fsa-all-on-length", false);
             final var result = createAcceptingAllOnLength(alphabet, length);
             cachedItems.put(length, result);
             return result;
         }
 
+        Metrics.countCacheLookup("fsa-all-on-length", false);
         final var result = createAcceptingAllOnLength(alphabet, length);
         final var lengthCache = new IntObjectHashMap<FSA>();
         lengthCache.put(length, result);
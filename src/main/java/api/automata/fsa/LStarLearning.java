@@ -12,6 +12,16 @@ public interface LStarLearning
     {
         boolean targetAccepts(ListIterable<S> word);
 
+        /**
+         * Returns whether {@link #targetAccepts} may be called from several
+         * threads at once, in which case the learner answers the membership
+         * queries of a hypothesis construction in parallel.
+         */
+        default boolean isThreadSafe()
+        {
+            return false;
+        }
+
         EquivalenceCheckResult<S> checkAnswer(FSA<S> answer) throws InterruptException;
     }
 
@@ -2,6 +2,7 @@ package api.automata.fsa;
 
 import core.automata.fsa.BasicLStarLearning;
 import core.automata.fsa.BasicLStarTeacher;
+import core.automata.fsa.TTTLStarLearning;
 
 import static api.automata.fsa.LStarLearning.Teacher;
 
@@ -16,6 +17,16 @@ public final class LStarLearnings
         return new BasicLStarLearning();
     }
 
+    /**
+     * Returns the learner splitting the states by a binary search on the
+     * counterexamples and keeping the discriminators short, in the way of
+     * TTT, which makes fewer and shorter membership queries.
+     */
+    public static LStarLearning tttLearner()
+    {
+        return new TTTLStarLearning();
+    }
+
     public static <S> Teacher<S> teacher(FSA<S> target)
     {
         return new BasicLStarTeacher<>(target);
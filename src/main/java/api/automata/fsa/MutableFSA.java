@@ -1,6 +1,9 @@
 package api.automata.fsa;
 
 import api.automata.*;
+import common.metrics.Probes;
+import common.util.CancellationToken;
+import common.util.StateBudget;
 import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.block.procedure.Procedure;
 import org.eclipse.collections.api.list.ListIterable;
@@ -165,9 +168,9 @@ public interface MutableFSA<S> extends MutableAutomaton<S>, FSA<S>
             return this; // in-place reference
         }
 
+        final var startTime = System.nanoTime();
         final Automaton.TransitionGraph<S> delta = transitionGraph();
-        final var capacityComputed = states().size() * states().size(); // heuristic
-        final var capacity = capacityComputed < 0 ? Integer.MAX_VALUE : capacityComputed;
+        final var capacity = StateBudget.cappedStateCapacity((long) states().size() * states().size()); // heuristic
         final var result = FSAs.create(alphabet(), capacity);
         final MutableMap<SetIterable<State<S>>, MutableState<S>> stateMapping = UnifiedMap.newMap(capacity);
         final Queue<SetIterable<State<S>>> pendingChecks = new LinkedList<>();
@@ -176,8 +179,12 @@ public interface MutableFSA<S> extends MutableAutomaton<S>, FSA<S>
         stateMapping.put(startStates, result.startState());
         pendingChecks.add(startStates);
         final var symbols = alphabet().noEpsilonSet();
+        var transitionNumber = 0L;
         SetIterable<State<S>> currStates;
         while ((currStates = pendingChecks.poll()) != null) {
+            CancellationToken.checkpoint();
+            StateBudget.checkStates("determinize", stateMapping.size());
+            StateBudget.checkTransitions("determinize", transitionNumber += symbols.size());
             final var newDept = stateMapping.get(currStates);
             if (currStates.anySatisfy(this::isAcceptState)) {
                 result.setAsAccept(newDept);
@@ -191,6 +198,7 @@ public interface MutableFSA<S> extends MutableAutomaton<S>, FSA<S>
                 result.addTransition(newDept, newDest, symbol);
             }
         }
+        Probes.automatonOperation(Probes.DETERMINIZATION, startTime, states().size(), result.states().size());
 
         return result; // one-off
     }
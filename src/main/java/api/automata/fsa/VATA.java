@@ -5,6 +5,7 @@ import api.automata.AlphabetEncoder;
 import api.automata.AlphabetEncoders;
 import api.automata.MutableState;
 import common.VATACommands;
+import common.metrics.Metrics;
 import org.eclipse.collections.api.bimap.MutableBiMap;
 import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.impl.bimap.mutable.HashBiMap;
@@ -29,16 +30,18 @@ public final class VATA
     {
     }
 
-    private static <S> AlphabetEncoder<S, String> getAlphabetEncoder(Alphabet<S> alphabet)
+    private static synchronized <S> AlphabetEncoder<S, String> getAlphabetEncoder(Alphabet<S> alphabet)
     {
         final var cache = ALPHABET_ENCODER_CACHE.get(alphabet);
         AlphabetEncoder cachedItem;
         if (cache != null && (cachedItem = cache.get()) != null) {
             @SuppressWarnings("unchecked")
             final AlphabetEncoder<S, String> result = cachedItem;
+            Metrics.countCacheLookup("vata-alphabet-encoder", true);
             return result;
         }
 
+        Metrics.countCacheLookup("vata-alphabet-encoder", false);
         final MutableBiMap<S, String> definition = new HashBiMap<>(alphabet.size());
         definition.put(alphabet.epsilon(), "a0");
         var i = 1;
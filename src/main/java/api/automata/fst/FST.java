@@ -6,7 +6,7 @@ import api.automata.Automaton;
 import api.automata.State;
 import api.automata.fsa.FSA;
 import api.automata.fsa.FSAs;
-import api.automata.fsa.VATA;
+import core.automata.fst.StarImageSaturation;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.SetIterable;
@@ -151,17 +151,9 @@ public interface FST<S, T> extends Automaton<Pair<S, T>>
         }
 
         final var trimmedTarget = target.intersect(FSAs.acceptingAllOnLength(target.alphabet(), length));
-        var convergeSteps = 0;
-        var currImage = trimmedTarget;
-
-        while (true) {
-            convergeSteps++;
-            final var postImage = fst.postImage(currImage);
-            if (VATA.checkInclusion(postImage, currImage)) {
-                return PrimitiveTuples.pair(currImage, convergeSteps);
-            }
-            currImage = VATA.reduce(currImage.union(postImage));
-        }
+        final var saturation = new StarImageSaturation<>(fst, trimmedTarget, false).saturate();
+
+        return PrimitiveTuples.pair(saturation.image(), saturation.steps());
     }
 
     default ObjectIntPair<FSA<S>> postStarImageOnLength(FSA<S> target, int length)
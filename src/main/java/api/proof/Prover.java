@@ -4,5 +4,16 @@ public interface Prover
 {
     void prove();
 
-    void verify();
+    /**
+     * Checks the given invariant and order of the problem.
+     *
+     * @return whether they pass every check
+     */
+    boolean verify();
+
+    /**
+     * Limits the wall-clock time of {@link #prove()} to the given
+     * milliseconds, where zero means no limit.
+     */
+    void setTimeLimitInMs(long ms);
 }
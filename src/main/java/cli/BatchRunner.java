@@ -0,0 +1,174 @@
+package cli;
+
+import common.util.Stopwatch;
+import core.parser.StringProblemParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.list.mutable.FastList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs many problems with many modes in one JVM on a bounded pool of
+ * workers, printing one JSON line per run in the order the runs are given.
+ * <p>
+ * The time limit (if any) is set on each prover, which stops at the next
+ * cancellation checkpoint after it.  A run still going on well past it is
+ * reported as timed out, and its worker thread (a daemon) is interrupted,
+ * which makes the run stop at its next checkpoint.  What the provers
+ * print is discarded while the batch runs, so only the results (and the
+ * log) are printed.
+ */
+final class BatchRunner
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final long TIMEOUT_GRACE_IN_MS = 10000L;
+    private static final long POLLING_INTERVAL_IN_MS = 1000L;
+
+    private final CommandLine cmd;
+    private final long timeLimitInMs;
+    private final int workerNumber;
+
+    private final class Run
+    {
+        private final Path file;
+        private final String mode;
+        private volatile long startTime; // zero until started
+        private Future<String> result;
+
+        private Run(Path file, String mode)
+        {
+            this.file = file;
+            this.mode = mode;
+        }
+
+        private String execute()
+        {
+            startTime = Stopwatch.epochTimeInMs();
+            final var record = new JsonRecord().add("file", file.toString());
+
+            return new ProverRun(cmd, mode).execute(record, () -> {
+                try (var input = Files.newInputStream(file)) {
+                    return new StringProblemParser().parse(input).getOnly();
+                }
+            }, problem -> Main.deriveArtifacts(cmd, problem)).toString();
+        }
+    }
+
+    BatchRunner(CommandLine cmd)
+    {
+        this.cmd = cmd;
+        timeLimitInMs = cmd.hasOption("time-limit") ? Long.parseLong(cmd.getOptionValue("time-limit")) * 1000L : 0L;
+        workerNumber = cmd.hasOption("jobs")
+                       ? Integer.parseInt(cmd.getOptionValue("jobs"))
+                       : Runtime.getRuntime().availableProcessors();
+        if (workerNumber < 1) {
+            throw new IllegalArgumentException("number of jobs should be positive");
+        }
+    }
+
+    /**
+     * Returns the files the given path or glob refers to, sorted.
+     */
+    private static MutableList<Path> expand(String pattern) throws IOException
+    {
+        var globStart = -1;
+        for (var i = 0; i < pattern.length() && globStart < 0; i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                globStart = i;
+            }
+        }
+        if (globStart < 0) {
+            return FastList.newListWith(Paths.get(pattern));
+        }
+
+        final var baseEnd = pattern.lastIndexOf('/', globStart);
+        final var base = Paths.get(baseEnd < 0 ? "" : pattern.substring(0, baseEnd + 1));
+        final var matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        final MutableList<Path> result = FastList.newList();
+        try (var paths = Files.walk(base)) {
+            paths.filter(Files::isRegularFile).filter(matcher::matches).forEach(result::add);
+        }
+
+        return result.sortThis();
+    }
+
+    private String awaitResult(Run run) throws InterruptedException
+    {
+        while (true) {
+            try {
+                return run.result.get(POLLING_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                return new JsonRecord().add("file", run.file.toString()).add("mode", run.mode)
+                                       .add("outcome", "error").add("error", e.getCause().toString()).toString();
+            } catch (TimeoutException e) {
+                final var startTime = run.startTime;
+                final var now = Stopwatch.epochTimeInMs();
+                if (timeLimitInMs > 0 && startTime > 0 && now - startTime > timeLimitInMs + TIMEOUT_GRACE_IN_MS) {
+                    run.result.cancel(true);
+                    return new JsonRecord().add("file", run.file.toString()).add("mode", run.mode)
+                                           .add("outcome", "timeout").add("wallMs", now - startTime).toString();
+                }
+            }
+        }
+    }
+
+    void run() throws IOException, InterruptedException
+    {
+        final MutableList<Path> files = FastList.newList();
+        for (var pattern : cmd.getArgList()) {
+            final var expanded = expand(pattern);
+            if (expanded.isEmpty()) {
+                LOGGER.warn("No file matches {}.", pattern);
+            }
+            files.addAll(expanded);
+        }
+        final var modes = cmd.getOptionValue("mode", "fairness-sat").split(",");
+        final MutableList<Run> runs = FastList.newList(files.size() * modes.length);
+        for (var file : files) {
+            for (var mode : modes) {
+                runs.add(new Run(file, mode.trim()));
+            }
+        }
+
+        final var results = System.out;
+        final ExecutorService workers = Executors.newFixedThreadPool(workerNumber, task -> {
+            final var thread = new Thread(task);
+            thread.setDaemon(true); // not to keep the JVM for the abandoned runs
+            return thread;
+        });
+        System.setOut(new PrintStream(new OutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+                // discard
+            }
+        }));
+        try {
+            runs.forEach(run -> run.result = workers.submit(run::execute));
+            for (var run : runs) {
+                results.println(awaitResult(run));
+                results.flush();
+            }
+        } finally {
+            System.setOut(results);
+            workers.shutdownNow();
+        }
+    }
+}
@@ -13,15 +13,45 @@ public final class CommandLineInterface
 
     CommandLineInterface(String[] args) throws ParseException
     {
-        cmdSyntax = "slrp-ext [OPTIONS] FILE" + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "options:" + DISPLAY_NEWLINE;
+        cmdSyntax = "slrp-ext [OPTIONS] FILE" + DISPLAY_NEWLINE //
+            + "       slrp-ext --batch [OPTIONS] FILE|GLOB ..." + DISPLAY_NEWLINE //
+            + "       slrp-ext --daemon [OPTIONS]" + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "options:"
+            + DISPLAY_NEWLINE;
         final var helpDesc = "print this message and exit";
         final var versionDesc = "print the version information and exit";
         final var waitDesc = "wait before run for a manual profiler setup";
         final var shapeInvariantDesc = "use the shape constraint when searching invariant";
         final var shapeOrderDesc = "use the shape constraint when searching order";
         final var looseInvariantDesc = "allow loose invariant";
+        final var binaryInvariantDesc = "use the binary state encoding when searching invariant";
+        final var binaryOrderDesc = "use the binary state encoding when searching order";
+        final var bfsNumberingDesc = "number the candidate states in breadth-first order to break symmetries";
         final var logLevelDesc = "set the logging level (\"debug\"|\"info\"|\"warn\"|\"error\"|\"fatal\") " //
             + "(default \"warn\")";
+        final var cardinalityDesc = "set the cardinality constraint encoding " //
+            + "(\"native\"|\"pairwise\"|\"sequential-counter\"|\"commander\"|\"totalizer\") (default \"native\")";
+        final var timeLimitDesc = "stop the proof searching after the given seconds of wall-clock time " //
+            + "(default no limit)";
+        final var proofCacheDesc = "reuse the proofs cached in the given directory, checking them before searching, " //
+            + "and cache the ones found";
+        final var artifactCacheDesc = "store the automata derived from the problem in the given directory, " //
+            + "and reuse the ones stored there";
+        final var batchDesc = "run every given file (or glob) with every mode given by --mode (comma-separated), " //
+            + "printing one JSON line per run";
+        final var jobsDesc = "set the number of the runs in parallel in the batch mode " //
+            + "(default the number of processors)";
+        final var daemonDesc = "stay resident, reading the requests on the standard input and answering them " //
+            + "on the standard output, one after another";
+        final var invariantSizesDesc = "search the invariant in the given size range instead of the one in the file";
+        final var orderSizesDesc = "search the order in the given size range instead of the one in the file";
+        final var metricsDesc = "write the metrics collected (SAT calls, rule checks, automata sizes, " //
+            + "cache lookups) as JSON to the given file at the end";
+        final var stateBudgetDesc = "give up an automata operation building more than the given number of states, " //
+            + "abandoning the state space searched (0 for no limit) (default 1000000)";
+        final var transitionBudgetDesc = "give up an automata operation building more than the given number of " //
+            + "transitions (0 for no limit) (default 20000000)";
+        final var learnerDesc = "set the L* learner of the fairness-learning mode (\"basic\"|\"ttt\") " //
+            + "(default \"basic\")";
         final var modeDesc = "set the mode (\"fairness-sat\"|\"fairness-learning\"|\"cav16-mono\") " //
             + "(default \"fairness-sat\")";
 
@@ -32,10 +62,37 @@ public final class CommandLineInterface
         options.addOption("si", "shape-invariant", false, shapeInvariantDesc);
         options.addOption("so", "shape-order", false, shapeOrderDesc);
         options.addOption("li", "loose-invariant", false, looseInvariantDesc);
+        options.addOption("bi", "binary-invariant", false, binaryInvariantDesc);
+        options.addOption("bo", "binary-order", false, binaryOrderDesc);
+        options.addOption("bfs", "bfs-numbering", false, bfsNumberingDesc);
+        options.addOption("b", "batch", false, batchDesc);
+        options.addOption("d", "daemon", false, daemonDesc);
         options.addOption(Option.builder("l").longOpt("log-level") //
                                 .desc(logLevelDesc).hasArg().argName("LEVEL").build());
         options.addOption(Option.builder("m").longOpt("mode") //
                                 .desc(modeDesc).hasArg().argName("MODE").build());
+        options.addOption(Option.builder("lr").longOpt("learner") //
+                                .desc(learnerDesc).hasArg().argName("LEARNER").build());
+        options.addOption(Option.builder("c").longOpt("cardinality") //
+                                .desc(cardinalityDesc).hasArg().argName("ENCODING").build());
+        options.addOption(Option.builder("t").longOpt("time-limit") //
+                                .desc(timeLimitDesc).hasArg().argName("SECONDS").build());
+        options.addOption(Option.builder("pc").longOpt("proof-cache") //
+                                .desc(proofCacheDesc).hasArg().argName("DIR").build());
+        options.addOption(Option.builder("ac").longOpt("artifact-cache") //
+                                .desc(artifactCacheDesc).hasArg().argName("DIR").build());
+        options.addOption(Option.builder("is").longOpt("invariant-sizes") //
+                                .desc(invariantSizesDesc).hasArg().argName("FROM..TO").build());
+        options.addOption(Option.builder("os").longOpt("order-sizes") //
+                                .desc(orderSizesDesc).hasArg().argName("FROM..TO").build());
+        options.addOption(Option.builder("mx").longOpt("metrics") //
+                                .desc(metricsDesc).hasArg().argName("FILE").build());
+        options.addOption(Option.builder("sb").longOpt("state-budget") //
+                                .desc(stateBudgetDesc).hasArg().argName("NUMBER").build());
+        options.addOption(Option.builder("tb").longOpt("transition-budget") //
+                                .desc(transitionBudgetDesc).hasArg().argName("NUMBER").build());
+        options.addOption(Option.builder("j").longOpt("jobs") //
+                                .desc(jobsDesc).hasArg().argName("NUMBER").build());
 
         helpFormatter = new HelpFormatter();
         helpFormatter.setWidth(90);
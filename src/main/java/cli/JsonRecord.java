@@ -0,0 +1,70 @@
+package cli;
+
+/**
+ * Builds a JSON object of string and number fields in the order added.
+ */
+final class JsonRecord
+{
+    private final StringBuilder content = new StringBuilder();
+
+    private JsonRecord addKey(String key)
+    {
+        content.append(content.length() == 0 ? "{" : ", ");
+        appendString(key);
+        content.append(": ");
+
+        return this;
+    }
+
+    private void appendString(String text)
+    {
+        content.append('"');
+        for (var i = 0; i < text.length(); i++) {
+            final var c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    content.append("\\\"");
+                    break;
+                case '\\':
+                    content.append("\\\\");
+                    break;
+                case '\n':
+                    content.append("\\n");
+                    break;
+                case '\r':
+                    content.append("\\r");
+                    break;
+                case '\t':
+                    content.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        content.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        content.append(c);
+                    }
+            }
+        }
+        content.append('"');
+    }
+
+    JsonRecord add(String key, String value)
+    {
+        addKey(key).appendString(value);
+
+        return this;
+    }
+
+    JsonRecord add(String key, long value)
+    {
+        addKey(key).content.append(value);
+
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        return content.length() == 0 ? "{}" : content + "}";
+    }
+}
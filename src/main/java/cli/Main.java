@@ -1,19 +1,33 @@
 package cli;
 
+import api.automata.fsa.LStarLearnings;
 import api.parser.Parser;
 import api.proof.Problem;
-import api.proof.Prover;
+import common.metrics.Metrics;
+import common.sat.SatSolver.CardinalityEncoding;
+import common.util.CancelledException;
+import common.util.StateBudget;
+import common.util.Stopwatch;
 import core.parser.StringProblemParser;
+import core.proof.AbstractProver;
+import core.proof.BasicProblem;
 import core.proof.CAV16MonoProver;
+import core.proof.DerivedArtifacts;
 import core.proof.FairnessLearningBasedProver;
 import core.proof.FairnessSATBasedProver;
+import org.apache.commons.cli.CommandLine;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.eclipse.collections.api.tuple.primitive.IntIntPair;
+import org.eclipse.collections.impl.tuple.primitive.PrimitiveTuples;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static common.util.Constants.DISPLAY_NEWLINE;
 
@@ -21,6 +35,14 @@ public final class Main
 {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    private static final String LOG_TARGET_PROPERTY = "slrp.log.target"; // read by `resources/log4j2.xml`
+
+    private static void setLogTarget(String target)
+    {
+        System.setProperty(LOG_TARGET_PROPERTY, target);
+        ((LoggerContext) LogManager.getContext(false)).reconfigure();
+    }
+
     private static void setLogLevel(Level level)
     {
         final var ctx = (LoggerContext) LogManager.getContext(false);
@@ -29,10 +51,121 @@ public final class Main
         ctx.updateLoggers();
     }
 
+    static AbstractProver<String> createProver(CommandLine cmd, String mode, DerivedArtifacts<String> artifacts)
+    {
+        final var shapeInvariant = cmd.hasOption("shape-invariant");
+        final var shapeOrder = cmd.hasOption("shape-order");
+        final var loosenInvariant = cmd.hasOption("loose-invariant");
+        final var binaryInvariant = cmd.hasOption("binary-invariant");
+        final var binaryOrder = cmd.hasOption("binary-order");
+        final var bfsNumbering = cmd.hasOption("bfs-numbering");
+        final CardinalityEncoding cardinalityEncoding;
+        switch (cmd.getOptionValue("cardinality", "native")) {
+            case "pairwise":
+                cardinalityEncoding = CardinalityEncoding.PAIRWISE;
+                break;
+            case "sequential-counter":
+                cardinalityEncoding = CardinalityEncoding.SEQUENTIAL_COUNTER;
+                break;
+            case "commander":
+                cardinalityEncoding = CardinalityEncoding.COMMANDER;
+                break;
+            case "totalizer":
+                cardinalityEncoding = CardinalityEncoding.TOTALIZER;
+                break;
+            default: // should be 'native'
+                cardinalityEncoding = CardinalityEncoding.NATIVE;
+        }
+        final AbstractProver<String> prover;
+        switch (mode) {
+            case "cav16-mono":
+                prover = new CAV16MonoProver<>(artifacts, shapeInvariant, shapeOrder, loosenInvariant,
+                                               binaryInvariant, binaryOrder, bfsNumbering, cardinalityEncoding);
+                break;
+            case "fairness-learning":
+                final var learningProver = new FairnessLearningBasedProver<>(artifacts, shapeInvariant, shapeOrder,
+                                                                             loosenInvariant);
+                if (cmd.getOptionValue("learner", "basic").equals("ttt")) {
+                    learningProver.setLearning(LStarLearnings.tttLearner());
+                }
+                prover = learningProver;
+                break;
+            default: // should be 'fairness-sat'
+                prover = new FairnessSATBasedProver<>(artifacts, shapeInvariant, shapeOrder, loosenInvariant,
+                                                      binaryInvariant, binaryOrder, bfsNumbering, cardinalityEncoding);
+        }
+        if (cmd.hasOption("state-budget") || cmd.hasOption("transition-budget")) {
+            final var defaultBudget = StateBudget.defaultBudget();
+            final var stateLimit = cmd.hasOption("state-budget")
+                                   ? Integer.parseInt(cmd.getOptionValue("state-budget"))
+                                   : defaultBudget.stateLimit();
+            final var transitionLimit = cmd.hasOption("transition-budget")
+                                        ? Long.parseLong(cmd.getOptionValue("transition-budget"))
+                                        : defaultBudget.transitionLimit();
+            prover.setStateBudget(new StateBudget(stateLimit, transitionLimit));
+        }
+
+        return prover;
+    }
+
+    static DerivedArtifacts<String> deriveArtifacts(CommandLine cmd, Problem<String> problem)
+    {
+        if (cmd.hasOption("artifact-cache")) {
+            return DerivedArtifacts.persistedIn(Paths.get(cmd.getOptionValue("artifact-cache")), problem);
+        }
+
+        return DerivedArtifacts.of(problem);
+    }
+
+    private static IntIntPair parseSizeBound(String range)
+    {
+        final var bounds = range.split("\\.\\.");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("size bound should be given as FROM..TO: " + range);
+        }
+        final var from = Math.max(Integer.parseInt(bounds[0].trim()), 0);
+        final var to = Math.max(Integer.parseInt(bounds[1].trim()), 0);
+
+        return from > to ? PrimitiveTuples.pair(to, from) : PrimitiveTuples.pair(from, to);
+    }
+
+    /**
+     * Returns the problem with the size bounds given on the command line in
+     * place of the ones in the problem file.
+     */
+    static Problem<String> applySizeBounds(CommandLine cmd, Problem<String> problem)
+    {
+        if (!cmd.hasOption("invariant-sizes") && !cmd.hasOption("order-sizes")) {
+            return problem;
+        }
+
+        final var invariantSizeBound = cmd.hasOption("invariant-sizes")
+                                       ? parseSizeBound(cmd.getOptionValue("invariant-sizes"))
+                                       : problem.invariantSizeBound();
+        final var orderSizeBound = cmd.hasOption("order-sizes")
+                                   ? parseSizeBound(cmd.getOptionValue("order-sizes"))
+                                   : problem.orderSizeBound();
+        return new BasicProblem<>(problem.initialConfigs(), problem.finalConfigs(), problem.scheduler(),
+                                  problem.process(), problem.invariant(), problem.order(), invariantSizeBound,
+                                  orderSizeBound, problem.invariantEnclosesAllBehavior());
+    }
+
     public static void main(String[] args) throws Exception
     {
         final var cli = new CommandLineInterface(args);
+        Metrics.setEnabled(cli.invokedCmd().hasOption("metrics"));
+        try {
+            run(cli);
+        } finally {
+            if (cli.invokedCmd().hasOption("metrics")) {
+                final var file = Paths.get(cli.invokedCmd().getOptionValue("metrics"));
+                Files.write(file, (Metrics.toJson() + DISPLAY_NEWLINE).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
 
+    private static void run(CommandLineInterface cli) throws Exception
+    {
         // handle general CLI arguments
         if (cli.invokedCmd().hasOption("help")) {
             cli.printHelpMessage();
@@ -42,6 +175,9 @@ public final class Main
             System.out.println("0.0.0-SNAPSHOT");
             return;
         }
+        if (cli.invokedCmd().hasOption("daemon")) {
+            setLogTarget("SYSTEM_ERR"); // leave the standard output to the daemon protocol
+        }
         if (cli.invokedCmd().hasOption("log-level")) {
             switch (cli.invokedCmd().getOptionValue("log-level")) {
                 case "debug":
@@ -60,6 +196,19 @@ public final class Main
                     // use the setting in `resources/log4j2.xml`
             }
         }
+        if (cli.invokedCmd().hasOption("batch")) {
+            if (cli.invokedCmd().getArgList().isEmpty()) {
+                System.out.println("No input file is provided." + DISPLAY_NEWLINE);
+                cli.printHelpMessage();
+                return;
+            }
+            new BatchRunner(cli.invokedCmd()).run();
+            return;
+        }
+        if (cli.invokedCmd().hasOption("daemon")) {
+            new ProverDaemon(System.in, System.out).run();
+            return;
+        }
         if (cli.invokedCmd().getArgList().isEmpty() || cli.invokedCmd().getArgList().size() > 1) {
             System.out.println("Input file is not provided correctly." + DISPLAY_NEWLINE);
             cli.printHelpMessage();
@@ -73,7 +222,7 @@ public final class Main
         // parse the input file
         final InputStream input = new FileInputStream(cli.invokedCmd().getArgList().get(0));
         final Parser<Problem<String>> problemParser = new StringProblemParser();
-        final var problem = problemParser.parse(input).getOnly();
+        final var problem = applySizeBounds(cli.invokedCmd(), problemParser.parse(input).getOnly());
         LOGGER.debug("Initial config parsed:" + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", //
                      problem.initialConfigs());
         LOGGER.debug("Final config parsed:" + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", //
@@ -86,27 +235,73 @@ public final class Main
         LOGGER.debug("Order relation search bound parsed: {}", problem.orderSizeBound());
 
         // process the input problem
-        final Prover prover;
-        final var mode = cli.invokedCmd().hasOption("mode") ? cli.invokedCmd().getOptionValue("mode") : "default";
-        final var shapeInvariant = cli.invokedCmd().hasOption("shape-invariant");
-        final var shapeOrder = cli.invokedCmd().hasOption("shape-order");
-        final var loosenInvariant = cli.invokedCmd().hasOption("loose-invariant");
-        switch (mode) {
-            case "cav16-mono":
-                prover = new CAV16MonoProver<>(problem, shapeInvariant, shapeOrder, loosenInvariant);
-                break;
-            case "fairness-learning":
-                prover = new FairnessLearningBasedProver<>(problem, shapeInvariant, shapeOrder, loosenInvariant);
-                break;
-            default: // should be 'fairness-sat'
-                prover = new FairnessSATBasedProver<>(problem, shapeInvariant, shapeOrder, loosenInvariant);
-        }
+        final var mode = cli.invokedCmd().getOptionValue("mode", "fairness-sat");
+        final var prover = createProver(cli.invokedCmd(), mode, deriveArtifacts(cli.invokedCmd(), problem));
+        final var timeLimitInMs = cli.invokedCmd().hasOption("time-limit")
+                                  ? Long.parseLong(cli.invokedCmd().getOptionValue("time-limit")) * 1000L
+                                  : 0L;
+        prover.setTimeLimitInMs(timeLimitInMs);
         if (problem.invariant() != null && problem.order() != null) {
             LOGGER.info("Invoke a verification on input.");
-            prover.verify();
-        } else {
+            try {
+                prover.verify();
+            } catch (CancelledException e) {
+                System.out.println("Verification stopped (" + e.getMessage() + ").");
+            }
+            return;
+        }
+        if (!cli.invokedCmd().hasOption("proof-cache") || mode.equals("fairness-learning")) {
             LOGGER.info("Invoke a proof searching on input.");
             prover.prove();
+            return;
+        }
+
+        // check the cached proof first, as it takes far less than searching one
+        final var cache = new ProofCache(Paths.get(cli.invokedCmd().getOptionValue("proof-cache")));
+        final var key = ProofCache.keyOf(problem, mode, //
+                                         String.valueOf(cli.invokedCmd().hasOption("shape-invariant")),
+                                         String.valueOf(cli.invokedCmd().hasOption("shape-order")),
+                                         String.valueOf(cli.invokedCmd().hasOption("loose-invariant")));
+        final var cached = cache.load(key);
+        Metrics.countCacheLookup("proof-cache", cached != null);
+        if (cached != null) {
+            // the key only picks the entry, so the proof is checked against the problem given, not the cached one
+            LOGGER.info("Invoke a verification on the cached proof.");
+            final var checkedProblem = new BasicProblem<>(problem.initialConfigs(), problem.finalConfigs(),
+                                                          problem.scheduler(), problem.process(),
+                                                          cached.invariant(), cached.order(),
+                                                          problem.invariantSizeBound(), problem.orderSizeBound(),
+                                                          problem.invariantEnclosesAllBehavior());
+            final var checkedArtifacts = deriveArtifacts(cli.invokedCmd(), checkedProblem);
+            final var verifier = createProver(cli.invokedCmd(), mode, checkedArtifacts);
+            verifier.setTimeLimitInMs(timeLimitInMs);
+            final var startTime = Stopwatch.currentThreadCpuTimeInMs();
+            final var startEpochTime = Stopwatch.epochTimeInMs();
+            try {
+                if (verifier.verify()) {
+                    final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
+                    System.out.println("A proof found in the proof cache in " + timeSpent + "ms.");
+                    System.out.println();
+                    System.out.println("A " + cached.invariant());
+                    System.out.println("T (>) " + cached.order());
+                    return;
+                }
+                LOGGER.warn("The cached proof does not pass the checks; searching again.");
+            } catch (CancelledException e) {
+                System.out.println("Verification of the cached proof stopped (" + e.getMessage() + ").");
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.warn("The cached proof cannot be checked against the problem; searching again: {}", e);
+            }
+            if (timeLimitInMs > 0) {
+                // the search takes what is left of the time limit
+                prover.setTimeLimitInMs(Math.max(timeLimitInMs - (Stopwatch.epochTimeInMs() - startEpochTime), 1L));
+            }
+        }
+        LOGGER.info("Invoke a proof searching on input.");
+        prover.prove();
+        if (prover.proof() != null) {
+            cache.store(key, problem, prover.proof());
         }
     }
 }
@@ -0,0 +1,214 @@
+package cli;
+
+import api.automata.Automaton;
+import api.automata.State;
+import api.automata.fsa.FSA;
+import api.automata.fst.FST;
+import api.proof.Problem;
+import core.parser.StringProblemParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.block.function.Function;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.tuple.Pair;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static api.util.Constants.DISPLAY_EPSILON_SYMBOL;
+import static common.util.Constants.DISPLAY_NEWLINE;
+
+/**
+ * Keeps the invariants and orders found on disk, so a problem proved before
+ * only needs its proof verified again.
+ * <p>
+ * An entry is keyed by a hash of the minimized DFAs of the initial and final
+ * configurations, the ones of the scheduler and process taken as automata
+ * over the symbol pairs, and the given settings (the mode and the flags
+ * deciding which proofs count), so renaming the states or rewriting the
+ * automata in the input does not miss the entry.  The entry itself is a
+ * problem file giving the invariant and order, which can be run on its own.
+ */
+final class ProofCache
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String KEY_FORMAT_VERSION = "1";
+    private static final String ENTRY_SUFFIX = ".txt";
+
+    private final Path directory;
+
+    ProofCache(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    private static <S> void appendCanonically(StringBuilder result, FSA<S> dfa)
+    {
+        // number the states in breadth-first order, taking the symbols in their textual order
+        final MutableObjectIntMap<State<S>> stateNumbers = ObjectIntHashMap.newMap();
+        final MutableList<State<S>> visitOrder = FastList.newList(dfa.states().size());
+        stateNumbers.put(dfa.startState(), 0);
+        visitOrder.add(dfa.startState());
+        for (var i = 0; i < visitOrder.size(); i++) {
+            final var state = visitOrder.get(i);
+            result.append(i).append(dfa.isAcceptState(state) ? "*" : "").append(':');
+            for (var transition : state.transitions().toSortedListBy(trans -> trans.getOne().toString())) {
+                final var successor = transition.getTwo();
+                if (!stateNumbers.containsKey(successor)) {
+                    stateNumbers.put(successor, visitOrder.size());
+                    visitOrder.add(successor);
+                }
+                result.append(' ').append(transition.getOne()).append('>').append(stateNumbers.get(successor));
+            }
+            result.append('\n');
+        }
+        result.append('\n');
+    }
+
+    /**
+     * Returns the key of the proofs of the given problem under the given
+     * settings.
+     */
+    static String keyOf(Problem<String> problem, String... settings)
+    {
+        final var text = new StringBuilder(KEY_FORMAT_VERSION).append('\n');
+        for (var setting : settings) {
+            text.append(setting).append('\n');
+        }
+        text.append(problem.invariantEnclosesAllBehavior()).append('\n');
+        appendCanonically(text, problem.initialConfigs().determinize().minimize());
+        appendCanonically(text, problem.finalConfigs().determinize().minimize());
+        appendCanonically(text, problem.scheduler().asFSA().determinize().minimize());
+        appendCanonically(text, problem.process().asFSA().determinize().minimize());
+
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            final var hash = digest.digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            final var result = new StringBuilder(hash.length * 2);
+            for (var b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private Path entryOf(String key)
+    {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Returns the problem stored with the given key, which comes with the
+     * invariant and order found, or null if there is none usable.
+     */
+    Problem<String> load(String key)
+    {
+        final var entry = entryOf(key);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        try (var input = Files.newInputStream(entry)) {
+            final var result = new StringProblemParser().parse(input).getOnly();
+            if (result.invariant() == null || result.order() == null) {
+                LOGGER.warn("Ignoring the proof cache entry {} without a proof.", entry);
+                return null;
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring the unreadable proof cache entry {}: {}", entry, e);
+            return null;
+        }
+    }
+
+    private static String labelOf(String symbol)
+    {
+        return symbol.equals(DISPLAY_EPSILON_SYMBOL) ? "" : symbol;
+    }
+
+    private static String labelOf(Pair<String, String> symbol)
+    {
+        final var input = symbol.getOne();
+        final var output = symbol.getTwo();
+        if (input.equals(DISPLAY_EPSILON_SYMBOL) && output.equals(DISPLAY_EPSILON_SYMBOL)) {
+            return "";
+        }
+        if (input.equals(DISPLAY_EPSILON_SYMBOL) || output.equals(DISPLAY_EPSILON_SYMBOL)) {
+            throw new IllegalArgumentException("half-epsilon label not expressible: " + symbol);
+        }
+
+        return input + "/" + output;
+    }
+
+    private static <S> void appendInProblemFormat(StringBuilder result, String nameTag, Automaton<S> automaton,
+        Function<S, String> labelOf)
+    {
+        if (automaton.acceptStates().isEmpty()) {
+            throw new IllegalArgumentException("automaton without accept states not expressible");
+        }
+
+        final MutableObjectIntMap<State<S>> stateNumbers = ObjectIntHashMap.newMap();
+        automaton.states().forEach(state -> stateNumbers.put(state, stateNumbers.size()));
+        final Function<State<S>, String> nameOf = state -> "s" + stateNumbers.get(state);
+
+        result.append(nameTag).append(" {").append(DISPLAY_NEWLINE);
+        result.append("    start: ").append(nameOf.valueOf(automaton.startState())).append(";").append(DISPLAY_NEWLINE);
+        for (var state : automaton.states()) {
+            for (var transition : state.transitions()) {
+                result.append("    ").append(nameOf.valueOf(state)).append(" -> ")
+                      .append(nameOf.valueOf(transition.getTwo())).append(" [")
+                      .append(labelOf.valueOf(transition.getOne())).append("];").append(DISPLAY_NEWLINE);
+            }
+        }
+        result.append("    accept: ").append(automaton.acceptStates().collect(nameOf).makeString()).append(";")
+              .append(DISPLAY_NEWLINE);
+        result.append("}").append(DISPLAY_NEWLINE).append(DISPLAY_NEWLINE);
+    }
+
+    /**
+     * Stores the given invariant and order found for the given problem with
+     * the given key.  Nothing is stored if they cannot be written in the
+     * problem format.
+     */
+    void store(String key, Problem<String> problem, Pair<FSA<String>, FST<String, String>> proof)
+    {
+        final var text = new StringBuilder();
+        try {
+            appendInProblemFormat(text, "I0", problem.initialConfigs(), ProofCache::labelOf);
+            appendInProblemFormat(text, "F", problem.finalConfigs(), ProofCache::labelOf);
+            appendInProblemFormat(text, "P1", problem.scheduler(), ProofCache::labelOf);
+            appendInProblemFormat(text, "P2", problem.process(), ProofCache::labelOf);
+            appendInProblemFormat(text, "Given A", proof.getOne(), ProofCache::labelOf);
+            appendInProblemFormat(text, "Given T", proof.getTwo(), ProofCache::labelOf);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Not caching the proof: {}", e::getMessage);
+            return;
+        }
+        if (problem.invariantEnclosesAllBehavior()) {
+            text.append("closedUnderTransitions;").append(DISPLAY_NEWLINE);
+        }
+
+        // write in full before moving in place, so concurrent runs never see a partial entry
+        try {
+            Files.createDirectories(directory);
+            final var temporary = Files.createTempFile(directory, key, ENTRY_SUFFIX + ".tmp");
+            Files.write(temporary, text.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, entryOf(key), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Proof cached in {}.", () -> entryOf(key));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to cache the proof: {}", e);
+        }
+    }
+}
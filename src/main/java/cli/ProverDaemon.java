@@ -0,0 +1,174 @@
+package cli;
+
+import core.parser.StringProblemParser;
+import core.proof.DerivedArtifacts;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers the proof requests one after another in a resident JVM, so the JIT
+ * compiled code, the static automata and encoder caches, and the derived
+ * artifacts of the problems asked before all stay warm.
+ * <p>
+ * The protocol is line-based.  Once it prints {@code ready}, the daemon
+ * reads requests of the form
+ * <pre>
+ * run [OPTIONS]
+ * PROBLEM TEXT ...
+ * end
+ * </pre>
+ * where the options are the ones of the command line (such as {@code --mode}
+ * or {@code --invariant-sizes}), and stops on {@code quit} or at the end of
+ * the input.  What a run prints comes as {@code progress LINE}, and the
+ * answer as {@code result JSON} in the form of the batch mode, while a
+ * malformed request is answered with {@code error MESSAGE}.  Nothing else
+ * is written to the output: the log is sent to the standard error by
+ * {@link Main}, and so is whatever gets printed outside a run.
+ */
+final class ProverDaemon
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String RUN_REQUEST = "run";
+    private static final String END_OF_PROBLEM = "end";
+    private static final String QUIT_REQUEST = "quit";
+
+    private final BufferedReader requests;
+    private final PrintStream answers;
+
+    ProverDaemon(InputStream input, PrintStream output)
+    {
+        requests = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        answers = output;
+    }
+
+    /**
+     * An output stream passing each line written as a progress line of the
+     * answer.
+     */
+    private final class ProgressForwarder extends OutputStream
+    {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b)
+        {
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        private void flushLine()
+        {
+            synchronized (answers) {
+                answers.println("progress " + new String(line.toByteArray(), StandardCharsets.UTF_8));
+                answers.flush();
+            }
+            line.reset();
+        }
+
+        @Override
+        public void close()
+        {
+            if (line.size() > 0) {
+                flushLine();
+            }
+        }
+    }
+
+    private void answer(String kind, String content)
+    {
+        synchronized (answers) {
+            answers.println(kind + " " + content);
+            answers.flush();
+        }
+    }
+
+    private String answerRun(CommandLine cmd, String problemText)
+    {
+        final var mode = cmd.getOptionValue("mode", "fairness-sat");
+
+        final var stdout = System.out;
+        final var progress = new ProgressForwarder();
+        System.setOut(new PrintStream(progress, true));
+        try {
+            final var run = new ProverRun(cmd, mode);
+            return run.execute(new JsonRecord(), () -> new StringProblemParser().parse(problemText).getOnly(),
+                               problem -> cmd.hasOption("artifact-cache")
+                                          ? Main.deriveArtifacts(cmd, problem)
+                                          : DerivedArtifacts.residentFor(problem)).toString();
+        } finally {
+            System.out.flush();
+            progress.close();
+            System.setOut(stdout);
+        }
+    }
+
+    void run() throws IOException
+    {
+        final var stdout = System.out;
+        System.setOut(System.err); // the runs still print to the progress lines
+        try {
+            serveRequests();
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private void serveRequests() throws IOException
+    {
+        synchronized (answers) {
+            answers.println("ready");
+            answers.flush();
+        }
+        String request;
+        while ((request = requests.readLine()) != null) {
+            final var tokens = request.trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+            if (tokens[0].equals(QUIT_REQUEST)) {
+                break;
+            }
+            if (!tokens[0].equals(RUN_REQUEST)) {
+                answer("error", "unknown request: " + tokens[0]);
+                continue;
+            }
+
+            final var problemText = new StringBuilder();
+            String line;
+            while ((line = requests.readLine()) != null && !line.trim().equals(END_OF_PROBLEM)) {
+                problemText.append(line).append('\n');
+            }
+            if (line == null) {
+                answer("error", "input ended in the middle of a problem");
+                break;
+            }
+
+            final var arguments = new String[tokens.length - 1];
+            System.arraycopy(tokens, 1, arguments, 0, arguments.length);
+            LOGGER.info("Request received with options: {}", () -> String.join(" ", arguments));
+            final CommandLine cmd;
+            try {
+                cmd = new CommandLineInterface(arguments).invokedCmd();
+            } catch (ParseException e) {
+                answer("error", "malformed options: " + e.getMessage());
+                continue;
+            }
+            answer("result", answerRun(cmd, problemText.toString()));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cli;
+
+import api.proof.Problem;
+import common.util.Stopwatch;
+import core.proof.AbstractProver;
+import core.proof.DerivedArtifacts;
+import org.apache.commons.cli.CommandLine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.block.function.Function;
+
+import java.util.concurrent.Callable;
+
+/**
+ * One run of a prover on a problem under the given options, reported as a
+ * {@link JsonRecord} with the outcome, the timings, the proof sizes and the
+ * number of the SAT calls.
+ */
+final class ProverRun
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final CommandLine cmd;
+    private final String mode;
+
+    ProverRun(CommandLine cmd, String mode)
+    {
+        this.cmd = cmd;
+        this.mode = mode;
+    }
+
+    private static String outcomeOf(AbstractProver<?> prover)
+    {
+        final var outcome = prover.outcome();
+
+        return outcome == null ? "unknown" : outcome.toString().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Parses the problem, sets the prover up and runs it, adding the result
+     * to the given record.
+     *
+     * @param parsing    gives the problem parsed
+     * @param derivation gives the derived artifacts of the problem
+     */
+    JsonRecord execute(JsonRecord record, Callable<Problem<String>> parsing,
+        Function<Problem<String>, DerivedArtifacts<String>> derivation)
+    {
+        final var startTime = Stopwatch.epochTimeInMs();
+        final var cpuStartTime = Stopwatch.currentThreadCpuTimeInMs();
+        record.add("mode", mode);
+        try {
+            final var problem = Main.applySizeBounds(cmd, parsing.call());
+            final var parsedTime = Stopwatch.epochTimeInMs();
+            final var prover = Main.createProver(cmd, mode, derivation.valueOf(problem));
+            if (cmd.hasOption("time-limit")) {
+                prover.setTimeLimitInMs(Long.parseLong(cmd.getOptionValue("time-limit")) * 1000L);
+            }
+            final var setUpTime = Stopwatch.epochTimeInMs();
+            final String outcome;
+            if (problem.invariant() != null && problem.order() != null) {
+                outcome = prover.verify() ? "verified" : "rejected";
+            } else {
+                prover.prove();
+                outcome = outcomeOf(prover);
+            }
+            final var endTime = Stopwatch.epochTimeInMs();
+            record.add("outcome", outcome);
+            record.add("parseMs", parsedTime - startTime).add("setupMs", setUpTime - parsedTime);
+            record.add("solveMs", endTime - setUpTime).add("wallMs", endTime - startTime);
+            record.add("cpuMs", Stopwatch.currentThreadCpuTimeInMs() - cpuStartTime);
+            final var proof = prover.proof();
+            if (proof != null) {
+                record.add("invariantStates", proof.getOne().states().size());
+                record.add("orderStates", proof.getTwo().states().size());
+            }
+            record.add("satCalls", prover.satCallNumber());
+        } catch (Exception e) {
+            LOGGER.error("Run in mode {} failed.", mode, e);
+            record.add("outcome", "error").add("error", e.toString());
+            record.add("wallMs", Stopwatch.epochTimeInMs() - startTime);
+        }
+
+        return record;
+    }
+}
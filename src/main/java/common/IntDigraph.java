@@ -0,0 +1,317 @@
+package common;
+
+import common.util.CancellationToken;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * A directed graph on the nodes numbered densely from 0, with its arcs kept
+ * in the compressed sparse row layout: the successors of node {@code n} are
+ * the ones from {@code offsets[n]} (inclusive) to {@code offsets[n + 1]}
+ * (exclusive) of one array.  The searches run iteratively on primitive
+ * arrays and bitsets, so they neither box nor hash a node, and do not
+ * overflow the stack on long paths.
+ */
+public final class IntDigraph
+{
+    private final int nodeNumber;
+    private final int[] offsets;
+    private final int[] successors;
+    private IntDigraph reverse; // built on demand
+
+    private IntDigraph(int nodeNumber, int[] offsets, int[] successors)
+    {
+        this.nodeNumber = nodeNumber;
+        this.offsets = offsets;
+        this.successors = successors;
+    }
+
+    /**
+     * Collects the arcs in any order and lays them out by their sources with
+     * a counting sort.
+     */
+    public static final class Builder
+    {
+        private final int nodeNumber;
+        private final MutableIntList sources;
+        private final MutableIntList targets;
+
+        private Builder(int nodeNumber, int arcCapacity)
+        {
+            this.nodeNumber = nodeNumber;
+            sources = new IntArrayList(arcCapacity);
+            targets = new IntArrayList(arcCapacity);
+        }
+
+        public Builder addArc(int source, int target)
+        {
+            if (source < 0 || source >= nodeNumber || target < 0 || target >= nodeNumber) {
+                throw new IndexOutOfBoundsException("arc " + source + " -> " + target + " out of " + nodeNumber);
+            }
+            sources.add(source);
+            targets.add(target);
+
+            return this;
+        }
+
+        public IntDigraph build()
+        {
+            return IntDigraph.layOut(nodeNumber, sources, targets);
+        }
+    }
+
+    public static Builder builder(int nodeNumber, int arcCapacity)
+    {
+        return new Builder(nodeNumber, arcCapacity);
+    }
+
+    private static IntDigraph layOut(int nodeNumber, IntList sources, IntList targets)
+    {
+        final var offsets = new int[nodeNumber + 1];
+        for (var i = 0; i < sources.size(); i++) {
+            offsets[sources.get(i) + 1]++;
+        }
+        for (var node = 0; node < nodeNumber; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        final var successors = new int[sources.size()];
+        final var filled = Arrays.copyOf(offsets, nodeNumber);
+        for (var i = 0; i < sources.size(); i++) {
+            successors[filled[sources.get(i)]++] = targets.get(i);
+        }
+
+        return new IntDigraph(nodeNumber, offsets, successors);
+    }
+
+    public int nodeNumber()
+    {
+        return nodeNumber;
+    }
+
+    public int arcNumber()
+    {
+        return successors.length;
+    }
+
+    public int outDegreeOf(int node)
+    {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Returns the {@code i}-th successor of the given node, for {@code i}
+     * below its out-degree.
+     */
+    public int successorOf(int node, int i)
+    {
+        return successors[offsets[node] + i];
+    }
+
+    /**
+     * Returns the graph with all the arcs reversed, built once.
+     */
+    public IntDigraph reverse()
+    {
+        if (reverse == null) {
+            final MutableIntList sources = new IntArrayList(successors.length);
+            final MutableIntList targets = new IntArrayList(successors.length);
+            for (var node = 0; node < nodeNumber; node++) {
+                for (var i = offsets[node]; i < offsets[node + 1]; i++) {
+                    sources.add(successors[i]);
+                    targets.add(node);
+                }
+            }
+            reverse = layOut(nodeNumber, sources, targets);
+            reverse.reverse = this;
+        }
+
+        return reverse;
+    }
+
+    /**
+     * Returns the nodes reachable from the given ones (themselves included),
+     * by a breadth-first search.
+     */
+    public BitSet reachableFrom(BitSet sources)
+    {
+        final var result = (BitSet) sources.clone();
+        final var queue = new int[nodeNumber];
+        var tail = 0;
+        for (var node = sources.nextSetBit(0); node >= 0; node = sources.nextSetBit(node + 1)) {
+            queue[tail++] = node;
+        }
+        for (var head = 0; head < tail; head++) {
+            final var node = queue[head];
+            for (var i = offsets[node]; i < offsets[node + 1]; i++) {
+                final var successor = successors[i];
+                if (!result.get(successor)) {
+                    result.set(successor);
+                    queue[tail++] = successor;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public BitSet reachableFrom(int source)
+    {
+        final var sources = new BitSet(nodeNumber);
+        sources.set(source);
+
+        return reachableFrom(sources);
+    }
+
+    /**
+     * Returns the nodes on one shortest path from the given node to a node
+     * satisfying the given predicate, both ends included, or {@code null} if
+     * there is none.
+     */
+    public IntList shortestPath(int source, IntPredicate isTarget)
+    {
+        final var parents = new int[nodeNumber];
+        Arrays.fill(parents, -1);
+        parents[source] = source;
+        final var queue = new int[nodeNumber];
+        queue[0] = source;
+        var tail = 1;
+        for (var head = 0; head < tail; head++) {
+            CancellationToken.checkpoint();
+            var node = queue[head];
+            if (isTarget.test(node)) {
+                final MutableIntList result = new IntArrayList();
+                for (; node != source; node = parents[node]) {
+                    result.add(node);
+                }
+                result.add(source);
+
+                return result.reverseThis();
+            }
+            for (var i = offsets[node]; i < offsets[node + 1]; i++) {
+                final var successor = successors[i];
+                if (parents[successor] < 0) {
+                    parents[successor] = node;
+                    queue[tail++] = successor;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the nodes reachable from the given one in the order a
+     * depth-first search finishes them, so every node comes after its
+     * successors but the ones closing a cycle.
+     */
+    public IntList depthFirstPostOrder(int source)
+    {
+        final MutableIntList result = new IntArrayList();
+        final var visited = new BitSet(nodeNumber);
+        final var stack = new int[nodeNumber];
+        final var nextArcs = new int[nodeNumber]; // the arc of each node on the stack to follow next
+        var depth = 0;
+        stack[depth++] = source;
+        nextArcs[source] = offsets[source];
+        visited.set(source);
+        while (depth > 0) {
+            final var node = stack[depth - 1];
+            if (nextArcs[node] < offsets[node + 1]) {
+                final var successor = successors[nextArcs[node]++];
+                if (!visited.get(successor)) {
+                    visited.set(successor);
+                    nextArcs[successor] = offsets[successor];
+                    stack[depth++] = successor;
+                }
+            } else {
+                result.add(node);
+                depth--;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the strongly connected component of every node, by Tarjan's
+     * algorithm.  The components are numbered from 0 in a reverse topological
+     * order: an arc between two components always goes to the one numbered
+     * lower, so component 0 has no arc leaving it.
+     */
+    public int[] stronglyConnectedComponents()
+    {
+        final var components = new int[nodeNumber];
+        Arrays.fill(components, -1);
+        final var indices = new int[nodeNumber];
+        Arrays.fill(indices, -1);
+        final var lowLinks = new int[nodeNumber];
+        final var nextArcs = new int[nodeNumber];
+        final var callStack = new int[nodeNumber];
+        final var componentStack = new int[nodeNumber];
+        var componentStackSize = 0;
+        var nextIndex = 0;
+        var componentNumber = 0;
+
+        for (var root = 0; root < nodeNumber; root++) {
+            if (indices[root] >= 0) {
+                continue;
+            }
+            var depth = 0;
+            callStack[depth++] = root;
+            indices[root] = lowLinks[root] = nextIndex++;
+            nextArcs[root] = offsets[root];
+            componentStack[componentStackSize++] = root;
+            while (depth > 0) {
+                final var node = callStack[depth - 1];
+                if (nextArcs[node] < offsets[node + 1]) {
+                    final var successor = successors[nextArcs[node]++];
+                    if (indices[successor] < 0) {
+                        indices[successor] = lowLinks[successor] = nextIndex++;
+                        nextArcs[successor] = offsets[successor];
+                        componentStack[componentStackSize++] = successor;
+                        callStack[depth++] = successor;
+                    } else if (components[successor] < 0) { // still on the component stack
+                        lowLinks[node] = Math.min(lowLinks[node], indices[successor]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    final var caller = callStack[depth - 1];
+                    lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[node]);
+                }
+                if (lowLinks[node] == indices[node]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentStackSize];
+                        components[member] = componentNumber;
+                    } while (member != node);
+                    componentNumber++;
+                }
+            }
+        }
+
+        return components;
+    }
+
+    @Override
+    public String toString()
+    {
+        final var result = new StringBuilder();
+        for (var node = 0; node < nodeNumber; node++) {
+            result.append(node).append(" ->");
+            for (var i = offsets[node]; i < offsets[node + 1]; i++) {
+                result.append(' ').append(successors[i]);
+            }
+            result.append('\n');
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package common.metrics;
+
+/**
+ * The distribution of the values observed under one name, kept as the count,
+ * the sum, the extremes and the counts in the power-of-two buckets, where
+ * the bucket {@code i} holds the values in [2^(i-1), 2^i) and the bucket 0
+ * the values below 1.
+ */
+public final class Histogram
+{
+    private static final int BUCKET_NUMBER = Long.SIZE;
+
+    private final long[] buckets = new long[BUCKET_NUMBER];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    Histogram()
+    {
+    }
+
+    private static int bucketOf(long value)
+    {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    public synchronized void observe(long value)
+    {
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long count()
+    {
+        return count;
+    }
+
+    public synchronized long sum()
+    {
+        return sum;
+    }
+
+    public synchronized long min()
+    {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long max()
+    {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Returns the number of the values observed in the bucket with the given
+     * (exclusive) upper bound, which should be a power of two.
+     */
+    public synchronized long bucketCount(long upperBound)
+    {
+        return buckets[Long.numberOfTrailingZeros(upperBound)];
+    }
+
+    synchronized void appendJson(StringBuilder result)
+    {
+        result.append("{\"count\":").append(count).append(",\"sum\":").append(sum);
+        result.append(",\"min\":").append(min()).append(",\"max\":").append(max());
+        result.append(",\"mean\":").append(count == 0 ? 0.0 : (double) sum / count);
+        result.append(",\"buckets\":{"); // keyed by their exclusive upper bounds
+        var first = true;
+        for (var i = 0; i < BUCKET_NUMBER; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            if (!first) {
+                result.append(',');
+            }
+            first = false;
+            result.append('"').append(Long.toUnsignedString(1L << i)).append("\":").append(buckets[i]);
+        }
+        result.append("}}");
+    }
+}
@@ -0,0 +1,176 @@
+package common.metrics;
+
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The process-wide registry of the named counters and histograms, shared by
+ * all the provers running in the JVM and dumped as one JSON object.
+ * <p>
+ * The cache lookups are counted as {@code cache.NAME.hits} and
+ * {@code cache.NAME.misses}, from which the dump also derives the hit rate
+ * of each cache.
+ *
+ * @see Probes
+ */
+public final class Metrics
+{
+    private static final String CACHE_PREFIX = "cache.";
+    private static final String HITS_SUFFIX = ".hits";
+    private static final String MISSES_SUFFIX = ".misses";
+
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS;
+    private static final ConcurrentHashMap<String, Histogram> HISTOGRAMS;
+    private static volatile boolean enabled;
+
+    static {
+        COUNTERS = new ConcurrentHashMap<>();
+        HISTOGRAMS = new ConcurrentHashMap<>();
+    }
+
+    private Metrics()
+    {
+    }
+
+    /**
+     * Turns the recording on or off; while it is off, nothing is recorded
+     * and the probes return at once.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        Metrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void count(String name)
+    {
+        count(name, 1L);
+    }
+
+    public static void count(String name, long delta)
+    {
+        if (!enabled) {
+            return;
+        }
+
+        COUNTERS.computeIfAbsent(name, __ -> new LongAdder()).add(delta);
+    }
+
+    public static void observe(String name, long value)
+    {
+        if (!enabled) {
+            return;
+        }
+
+        HISTOGRAMS.computeIfAbsent(name, __ -> new Histogram()).observe(value);
+    }
+
+    public static void countCacheLookup(String cache, boolean hit)
+    {
+        if (!enabled) {
+            return;
+        }
+
+        count(CACHE_PREFIX + cache + (hit ? HITS_SUFFIX : MISSES_SUFFIX));
+    }
+
+    public static void countCacheLookups(String cache, long hits, long misses)
+    {
+        if (!enabled) {
+            return;
+        }
+
+        count(CACHE_PREFIX + cache + HITS_SUFFIX, hits);
+        count(CACHE_PREFIX + cache + MISSES_SUFFIX, misses);
+    }
+
+    /**
+     * Returns the value of the given counter, zero if never counted.
+     */
+    public static long counter(String name)
+    {
+        final var counter = COUNTERS.get(name);
+
+        return counter == null ? 0L : counter.sum();
+    }
+
+    /**
+     * Returns the given histogram, {@code null} if nothing observed.
+     */
+    public static Histogram histogram(String name)
+    {
+        return HISTOGRAMS.get(name);
+    }
+
+    public static void reset()
+    {
+        COUNTERS.clear();
+        HISTOGRAMS.clear();
+    }
+
+    private static void appendKey(StringBuilder result, String key)
+    {
+        result.append('"');
+        for (var i = 0; i < key.length(); i++) {
+            final var c = key.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\');
+            }
+            result.append(c);
+        }
+        result.append("\":");
+    }
+
+    /**
+     * Returns everything registered so far as a JSON object with the fields
+     * {@code counters}, {@code histograms} and {@code cacheHitRates}, each
+     * keyed by name in order.
+     */
+    public static String toJson()
+    {
+        final var result = new StringBuilder("{\"counters\":{");
+        final var counterNames = new TreeSet<>(COUNTERS.keySet());
+        var first = true;
+        for (var name : counterNames) {
+            result.append(first ? "" : ",");
+            appendKey(result, name);
+            result.append(counter(name));
+            first = false;
+        }
+
+        result.append("},\"histograms\":{");
+        first = true;
+        for (var name : new TreeSet<>(HISTOGRAMS.keySet())) {
+            result.append(first ? "" : ",");
+            appendKey(result, name);
+            HISTOGRAMS.get(name).appendJson(result);
+            first = false;
+        }
+
+        result.append("},\"cacheHitRates\":{");
+        final var caches = new TreeSet<String>();
+        for (var name : counterNames) {
+            if (name.startsWith(CACHE_PREFIX) && name.endsWith(HITS_SUFFIX)) {
+                caches.add(name.substring(CACHE_PREFIX.length(), name.length() - HITS_SUFFIX.length()));
+            } else if (name.startsWith(CACHE_PREFIX) && name.endsWith(MISSES_SUFFIX)) {
+                caches.add(name.substring(CACHE_PREFIX.length(), name.length() - MISSES_SUFFIX.length()));
+            }
+        }
+        first = true;
+        for (var cache : caches) {
+            final var hits = counter(CACHE_PREFIX + cache + HITS_SUFFIX);
+            final var misses = counter(CACHE_PREFIX + cache + MISSES_SUFFIX);
+            result.append(first ? "" : ",");
+            appendKey(result, cache);
+            result.append((double) hits / (hits + misses));
+            first = false;
+        }
+
+        return result.append("}}").toString();
+    }
+}
@@ -0,0 +1,124 @@
+package common.metrics;
+
+/**
+ * The instrumentation points on the hot paths, each recording into the
+ * {@link Metrics}, and doing nothing more than a check of a flag while the
+ * metrics are off.  The names of the metrics are made once per operation
+ * and outcome, not on every call.
+ * <p>
+ * The durations are taken by the caller from {@link System#nanoTime()}, and
+ * kept in the metrics in microseconds.
+ */
+public final class Probes
+{
+    private Probes()
+    {
+    }
+
+    /**
+     * An automaton operation probed, with the names of its metrics.
+     */
+    public static final class AutomatonOperation
+    {
+        private final String inputStatesName;
+        private final String outputStatesName;
+        private final String timeName;
+
+        private AutomatonOperation(String operation)
+        {
+            inputStatesName = "automata." + operation + ".inputStates";
+            outputStatesName = "automata." + operation + ".outputStates";
+            timeName = "automata." + operation + ".timeUs";
+        }
+    }
+
+    public static final AutomatonOperation PRODUCT = new AutomatonOperation("product");
+    public static final AutomatonOperation DETERMINIZATION = new AutomatonOperation("determinize");
+
+    /**
+     * A proof rule checked, with the names of its metrics.
+     */
+    public static final class ProofRule
+    {
+        private final String timeName;
+        private final String counterexamplesName;
+
+        private ProofRule(String rule)
+        {
+            timeName = "check." + rule + ".timeUs";
+            counterexamplesName = "counterexamples." + rule;
+        }
+    }
+
+    public static final ProofRule L1 = new ProofRule("l1");
+    public static final ProofRule L2 = new ProofRule("l2");
+    public static final ProofRule L3 = new ProofRule("l3");
+    public static final ProofRule L4 = new ProofRule("l4");
+    public static final ProofRule L4_PRECHECK = new ProofRule("l4-precheck");
+
+    public enum SatOutcome
+    {
+        SAT("sat.sat"), UNSAT("sat.unsat"), TIMEOUT("sat.timeout");
+
+        private final String counterName;
+
+        SatOutcome(String counterName)
+        {
+            this.counterName = counterName;
+        }
+    }
+
+    private static long elapsedInUsSince(long startTimeInNs)
+    {
+        return (System.nanoTime() - startTimeInNs) / 1000L;
+    }
+
+    /**
+     * Records a SAT call on a CNF of the given size.
+     */
+    public static void satCall(long startTimeInNs, int variables, int clauses, SatOutcome outcome)
+    {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+
+        Metrics.count("sat.calls");
+        Metrics.count(outcome.counterName);
+        Metrics.observe("sat.timeUs", elapsedInUsSince(startTimeInNs));
+        Metrics.observe("sat.variables", variables);
+        Metrics.observe("sat.clauses", clauses);
+    }
+
+    /**
+     * Records a check of the given proof rule, where a rejection counts as a
+     * counterexample of the rule.
+     */
+    public static void check(ProofRule rule, long startTimeInNs, boolean passed)
+    {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+
+        Metrics.observe(rule.timeName, elapsedInUsSince(startTimeInNs));
+        if (!passed) {
+            Metrics.count(rule.counterexamplesName);
+        }
+    }
+
+    /**
+     * Records an automaton operation taking the given number of states, or
+     * the product of the numbers for a binary operation, to the given number
+     * of states.
+     */
+    public static void automatonOperation(AutomatonOperation operation, long startTimeInNs, long inputStates,
+        long outputStates)
+    {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+
+        Metrics.observe(operation.inputStatesName, inputStates);
+        Metrics.observe(operation.outputStatesName, outputStates);
+        Metrics.observe(operation.timeName, elapsedInUsSince(startTimeInNs));
+    }
+}
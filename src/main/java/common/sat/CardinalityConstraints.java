@@ -0,0 +1,269 @@
+package common.sat;
+
+import common.sat.SatSolver.CardinalityEncoding;
+import common.util.ContradictionException;
+
+import java.util.Arrays;
+
+import static core.Parameters.SAT_SOLVER_PAIRWISE_CLAUSE_LIMIT;
+
+/**
+ * The clausal translations of the cardinality constraints, used by the
+ * {@link SatSolver} implementations when an encoding other than
+ * {@link CardinalityEncoding#NATIVE} is selected.  Only plain clauses and
+ * fresh variables are requested from the given solver.
+ */
+final class CardinalityConstraints
+{
+    private static final int COMMANDER_GROUP_SIZE = 3;
+
+    private CardinalityConstraints()
+    {
+    }
+
+    private static int[] negate(int[] literals)
+    {
+        final var result = new int[literals.length];
+        for (var i = 0; i < literals.length; i++) {
+            result[i] = -literals[i];
+        }
+
+        return result;
+    }
+
+    private static boolean pairwiseAffordable(int degree, int literalNumber)
+    {
+        // the number of the (degree + 1)-subsets of the literals
+        long subsetNumber = 1;
+        for (var i = 0; i < degree + 1; i++) {
+            subsetNumber = subsetNumber * (literalNumber - i) / (i + 1);
+            if (subsetNumber > SAT_SOLVER_PAIRWISE_CLAUSE_LIMIT) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void encodePairwise(SatSolver solver, int degree, int[] literals)
+    {
+        if (literals.length <= degree) {
+            return; // trivially held
+        }
+
+        // block every (degree + 1)-subset from being all true
+        final var chosen = new int[degree + 1];
+        final var blockingClause = new int[degree + 1];
+        for (var i = 0; i < chosen.length; i++) {
+            chosen[i] = i;
+        }
+        while (true) {
+            for (var i = 0; i < chosen.length; i++) {
+                blockingClause[i] = -literals[chosen[i]];
+            }
+            solver.addClause(blockingClause.clone());
+
+            // move to the next subset in the lexicographical order
+            var i = chosen.length - 1;
+            while (i >= 0 && chosen[i] == literals.length - chosen.length + i) {
+                i--;
+            }
+            if (i < 0) {
+                return;
+            }
+            chosen[i]++;
+            for (var j = i + 1; j < chosen.length; j++) {
+                chosen[j] = chosen[j - 1] + 1;
+            }
+        }
+    }
+
+    private static void encodeSequentialCounter(SatSolver solver, int degree, int[] literals)
+    {
+        // counterAt[i][j] <-- more than j of the literals up to i are true
+        final var n = literals.length;
+        final var counterAt = new int[n - 1][degree];
+        for (var i = 0; i < n - 1; i++) {
+            for (var j = 0; j < degree; j++) {
+                counterAt[i][j] = solver.newFreeVariable();
+            }
+        }
+
+        solver.addImplication(literals[0], counterAt[0][0]);
+        for (var j = 1; j < degree; j++) {
+            solver.setLiteralFalsy(counterAt[0][j]);
+        }
+        for (var i = 1; i < n - 1; i++) {
+            final var curr = literals[i];
+            solver.addImplication(curr, counterAt[i][0]);
+            solver.addImplication(counterAt[i - 1][0], counterAt[i][0]);
+            for (var j = 1; j < degree; j++) {
+                solver.addClause(-curr, -counterAt[i - 1][j - 1], counterAt[i][j]);
+                solver.addImplication(counterAt[i - 1][j], counterAt[i][j]);
+            }
+            solver.addClause(-curr, -counterAt[i - 1][degree - 1]); // no overflow
+        }
+        solver.addClause(-literals[n - 1], -counterAt[n - 2][degree - 1]);
+    }
+
+    private static void encodeCommanderAtMostOne(SatSolver solver, int[] literals)
+    {
+        if (literals.length <= COMMANDER_GROUP_SIZE + 1) {
+            encodePairwise(solver, 1, literals);
+            return;
+        }
+
+        final var groupNumber = (literals.length + COMMANDER_GROUP_SIZE - 1) / COMMANDER_GROUP_SIZE;
+        final var commanders = new int[groupNumber];
+        for (var g = 0; g < groupNumber; g++) {
+            final var group = Arrays.copyOfRange(literals, g * COMMANDER_GROUP_SIZE,
+                                                 Math.min(literals.length, (g + 1) * COMMANDER_GROUP_SIZE));
+            final var commander = solver.newFreeVariable();
+            commanders[g] = commander;
+
+            // commander <--> some literal in the group, and at most one of them
+            final var commanderImplied = Arrays.copyOf(group, group.length + 1);
+            commanderImplied[group.length] = -commander;
+            solver.addClause(commanderImplied);
+            for (var literal : group) {
+                solver.addImplication(literal, commander);
+            }
+            encodePairwise(solver, 1, group);
+        }
+        encodeCommanderAtMostOne(solver, commanders);
+    }
+
+    /**
+     * Returns the unary outputs of a totalizer over the given range of the
+     * literals; the i-th output is true iff more than i literals are true.
+     * Only the first {@code cap} outputs are built.
+     */
+    private static int[] buildTotalizer(SatSolver solver, int[] literals, int from, int to, int cap)
+    {
+        if (to - from == 1) {
+            return new int[]{literals[from]};
+        }
+
+        final var middle = (from + to) / 2;
+        final var left = buildTotalizer(solver, literals, from, middle, cap);
+        final var right = buildTotalizer(solver, literals, middle, to, cap);
+        final var outputs = new int[Math.min(left.length + right.length, cap)];
+        for (var k = 0; k < outputs.length; k++) {
+            outputs[k] = solver.newFreeVariable();
+        }
+        for (var i = 0; i <= left.length; i++) {
+            for (var j = 0; j <= right.length; j++) {
+                // more than i - 1 on the left && more than j - 1 on the right --> more than i + j - 1 in total
+                final var sum = i + j;
+                if (sum >= 1 && sum <= outputs.length) {
+                    if (i == 0) {
+                        solver.addClause(-right[j - 1], outputs[sum - 1]);
+                    } else if (j == 0) {
+                        solver.addClause(-left[i - 1], outputs[sum - 1]);
+                    } else {
+                        solver.addClause(-left[i - 1], -right[j - 1], outputs[sum - 1]);
+                    }
+                }
+                // at most i on the left && at most j on the right --> at most i + j in total
+                if (sum + 1 <= outputs.length) {
+                    if (i == left.length) {
+                        solver.addClause(right[j], -outputs[sum]);
+                    } else if (j == right.length) {
+                        solver.addClause(left[i], -outputs[sum]);
+                    } else {
+                        solver.addClause(left[i], right[j], -outputs[sum]);
+                    }
+                }
+            }
+        }
+
+        return outputs;
+    }
+
+    private static void encodeTotalizer(SatSolver solver, int atLeast, int atMost, int[] literals)
+    {
+        final var outputs = buildTotalizer(solver, literals, 0, literals.length, atMost + 1);
+        if (atLeast > 0) {
+            solver.setLiteralTruthy(outputs[atLeast - 1]);
+        }
+        if (atMost < outputs.length) {
+            solver.setLiteralFalsy(outputs[atMost]);
+        }
+    }
+
+    private static String describe(String kind, int degree, int[] literals)
+    {
+        return kind + "-" + degree + " clause " + Arrays.toString(literals);
+    }
+
+    static void addAtMost(SatSolver solver, CardinalityEncoding encoding, int degree, int... literals)
+    {
+        if (degree < 0) {
+            throw new ContradictionException(describe("at-most", degree, literals));
+        }
+        if (degree >= literals.length) {
+            return; // trivially held
+        }
+        if (degree == 0) {
+            for (var literal : literals) {
+                solver.setLiteralFalsy(literal);
+            }
+            return;
+        }
+
+        switch (encoding) {
+            case PAIRWISE:
+                if (pairwiseAffordable(degree, literals.length)) {
+                    encodePairwise(solver, degree, literals);
+                } else {
+                    encodeSequentialCounter(solver, degree, literals);
+                }
+                break;
+            case COMMANDER:
+                if (degree == 1) {
+                    encodeCommanderAtMostOne(solver, literals);
+                } else {
+                    encodeSequentialCounter(solver, degree, literals);
+                }
+                break;
+            case TOTALIZER:
+                encodeTotalizer(solver, 0, degree, literals);
+                break;
+            case SEQUENTIAL_COUNTER:
+                encodeSequentialCounter(solver, degree, literals);
+                break;
+            default:
+                throw new IllegalArgumentException("not a clausal encoding: " + encoding);
+        }
+    }
+
+    static void addAtLeast(SatSolver solver, CardinalityEncoding encoding, int degree, int... literals)
+    {
+        if (degree > literals.length) {
+            throw new ContradictionException(describe("at-least", degree, literals));
+        }
+        if (degree <= 0) {
+            return; // trivially held
+        }
+        if (degree == 1) {
+            solver.addClause(literals.clone());
+            return;
+        }
+
+        addAtMost(solver, encoding, literals.length - degree, negate(literals));
+    }
+
+    static void addExactly(SatSolver solver, CardinalityEncoding encoding, int degree, int... literals)
+    {
+        if (degree < 0 || degree > literals.length) {
+            throw new ContradictionException(describe("exactly", degree, literals));
+        }
+
+        if (encoding == CardinalityEncoding.TOTALIZER && degree > 0 && degree < literals.length) {
+            encodeTotalizer(solver, degree, degree, literals); // share one tree for both bounds
+        } else {
+            addAtLeast(solver, encoding, degree, literals);
+            addAtMost(solver, encoding, degree, literals);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package common.sat;
+
+import org.eclipse.collections.api.IntIterable;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
+import org.eclipse.collections.api.set.primitive.IntSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.list.primitive.IntInterval;
+
+/**
+ * A {@link SatSolver} that only writes down the variables and the
+ * constraints given, so they can be replayed into other solvers later by
+ * the {@link CnfTemplate} it produces.  The cardinality constraints are kept
+ * as they are, and get encoded by the solver they are loaded into.
+ */
+public class CnfRecorder implements SatSolver
+{
+    private static final String CANNOT_SOLVE = "a recorder does not solve the constraints";
+
+    private int nextFreeVariableId = 1;
+    private final MutableIntList constraints = new IntArrayList();
+    private final RecordingClauseBuilder clauseBuilder = new RecordingClauseBuilder();
+
+    private void record(int kind, int degree, int... literals)
+    {
+        constraints.add(kind);
+        constraints.add(degree);
+        constraints.add(literals.length);
+        constraints.addAll(literals);
+    }
+
+    public CnfTemplate toTemplate()
+    {
+        return new CnfTemplate(nextFreeVariableId - 1, constraints.toArray());
+    }
+
+    @Override
+    public boolean isVerbose()
+    {
+        return false;
+    }
+
+    @Override
+    public void setVerbose(boolean value)
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public int getTimeoutInSec()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public void setTimeoutInSec(int s)
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public long getTimeoutInMs()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public void setTimeoutInMs(long ms)
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public CardinalityEncoding getCardinalityEncoding()
+    {
+        return CardinalityEncoding.NATIVE;
+    }
+
+    @Override
+    public void setCardinalityEncoding(CardinalityEncoding encoding)
+    {
+        throw new UnsupportedOperationException("the encoding is decided by the solver loading the template");
+    }
+
+    @Override
+    public int newFreeVariable()
+    {
+        return nextFreeVariableId++;
+    }
+
+    @Override
+    public ImmutableIntList newFreeVariables(int howMany)
+    {
+        if (howMany < 0) {
+            throw new IllegalArgumentException("number given cannot be less than 0");
+        }
+        if (howMany == 0) {
+            return IntLists.immutable.empty();
+        }
+
+        final var from = nextFreeVariableId;
+        nextFreeVariableId += howMany;
+
+        return IntInterval.fromTo(from, nextFreeVariableId - 1);
+    }
+
+    @Override
+    public void addClause(int... clause)
+    {
+        record(CnfTemplate.CLAUSE, 0, clause);
+    }
+
+    @Override
+    public ClauseBuilder newClause()
+    {
+        clauseBuilder.literals.clear();
+
+        return clauseBuilder;
+    }
+
+    @Override
+    public void addClauseAtLeast(int degree, int... clause)
+    {
+        record(CnfTemplate.AT_LEAST, degree, clause);
+    }
+
+    @Override
+    public void addClauseAtMost(int degree, int... clause)
+    {
+        record(CnfTemplate.AT_MOST, degree, clause);
+    }
+
+    @Override
+    public void addClauseExactly(int degree, int... clause)
+    {
+        record(CnfTemplate.EXACTLY, degree, clause);
+    }
+
+    @Override
+    public boolean findItSatisfiable()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public ImmutableIntSet getModel()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public boolean isTruthyInModel(int literal)
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public ImmutableIntSet getModelTruthyVariables()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public IntSet getModelFalsyVariables()
+    {
+        throw new UnsupportedOperationException(CANNOT_SOLVE);
+    }
+
+    @Override
+    public void reset()
+    {
+        nextFreeVariableId = 1;
+        constraints.clear();
+    }
+
+    private final class RecordingClauseBuilder implements ClauseBuilder, IntProcedure
+    {
+        private final MutableIntList literals = new IntArrayList();
+        private final IntProcedure negatedAdder = literal -> literals.add(-literal);
+
+        @Override
+        public void value(int literal)
+        {
+            literals.add(literal);
+        }
+
+        @Override
+        public ClauseBuilder add(int literal)
+        {
+            literals.add(literal);
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAll(int... literals)
+        {
+            this.literals.addAll(literals);
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAll(IntIterable literals)
+        {
+            literals.forEach(this);
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAllNegated(int... literals)
+        {
+            for (var literal : literals) {
+                this.literals.add(-literal);
+            }
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAllNegated(IntIterable literals)
+        {
+            literals.forEach(negatedAdder);
+
+            return this;
+        }
+
+        @Override
+        public void commit()
+        {
+            constraints.add(CnfTemplate.CLAUSE);
+            constraints.add(0);
+            constraints.add(literals.size());
+            constraints.addAll(literals);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package common.sat;
+
+/**
+ * A fixed set of constraints over the variables numbered from 1, kept in one
+ * compact int buffer.  Each constraint takes a kind, a degree, a length, and
+ * then the literals.  The template can be loaded into any {@link SatSolver}
+ * with its variables moved into a block newly allocated there.
+ *
+ * @see CnfRecorder
+ */
+public final class CnfTemplate
+{
+    static final int CLAUSE = 0;
+    static final int AT_LEAST = 1;
+    static final int AT_MOST = 2;
+    static final int EXACTLY = 3;
+
+    private final int variableNumber;
+    private final int[] constraints;
+
+    CnfTemplate(int variableNumber, int[] constraints)
+    {
+        this.variableNumber = variableNumber;
+        this.constraints = constraints;
+    }
+
+    public int variableNumber()
+    {
+        return variableNumber;
+    }
+
+    private static int relocate(int literal, int offset)
+    {
+        return literal > 0 ? literal + offset : literal - offset;
+    }
+
+    /**
+     * Adds all the constraints to the given solver under fresh variables.
+     *
+     * @return the offset added to the template variables, i.e. variable
+     * {@code v} of the template becomes {@code v + offset} in the solver
+     */
+    public int loadInto(SatSolver solver)
+    {
+        final var offset = variableNumber == 0 ? 0 : solver.newFreeVariables(variableNumber).getFirst() - 1;
+
+        var cursor = 0;
+        while (cursor < constraints.length) {
+            final var kind = constraints[cursor];
+            final var degree = constraints[cursor + 1];
+            final var length = constraints[cursor + 2];
+            final var from = cursor + 3;
+            cursor = from + length;
+            if (kind == CLAUSE) {
+                final var clause = solver.newClause();
+                for (var i = from; i < cursor; i++) {
+                    clause.add(relocate(constraints[i], offset));
+                }
+                clause.commit();
+                continue;
+            }
+            final var literals = new int[length];
+            for (var i = 0; i < length; i++) {
+                literals[i] = relocate(constraints[from + i], offset);
+            }
+            switch (kind) {
+                case AT_LEAST:
+                    solver.addClauseAtLeast(degree, literals);
+                    break;
+                case AT_MOST:
+                    solver.addClauseAtMost(degree, literals);
+                    break;
+                default: // should be 'EXACTLY'
+                    solver.addClauseExactly(degree, literals);
+            }
+        }
+
+        return offset;
+    }
+}
@@ -1,10 +1,15 @@
 package common.sat;
 
+import common.metrics.Probes;
+import common.metrics.Probes.SatOutcome;
+import common.util.Assert;
 import common.util.ContradictionException;
 import common.util.Stopwatch;
 import common.util.TimeoutException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.IntIterable;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
 import org.eclipse.collections.api.set.primitive.IntSet;
@@ -24,28 +29,39 @@ import static core.Parameters.SAT_SOLVER_MAX_VARIABLE_NUMBER;
 public class Sat4jSolverAdapter implements SatSolver
 {
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final ImmutableIntSet NONSOLUTION = IntSets.immutable.empty();
+    private static final int[] NONSOLUTION = new int[0];
 
     private ISolver solver;
     private int nextFreeVariableId = 1;
-    private ImmutableIntSet model;
+    private int[] modelLiterals;
+    private boolean[] modelValues; // indexed by variable ID
+    private ImmutableIntSet model; // created on demand from the literals
     private long profilingStartTime;
+    private CardinalityEncoding cardinalityEncoding;
+    private final VecInt clauseBuffer = new VecInt();
+    private final VecIntClauseBuilder clauseBuilder = new VecIntClauseBuilder();
 
     private static ISolver newSolverInstance()
     {
         return SolverFactory.newDefault(); // TODO: [tuning] see if there's any effects of modifying this
     }
 
-    public Sat4jSolverAdapter()
+    public Sat4jSolverAdapter(CardinalityEncoding cardinalityEncoding)
     {
         solver = newSolverInstance();
         solver.newVar(SAT_SOLVER_MAX_VARIABLE_NUMBER);
         solver.setExpectedNumberOfClauses(SAT_SOLVER_MAX_CLAUSE_NUMBER);
+        setCardinalityEncoding(cardinalityEncoding);
+    }
+
+    public Sat4jSolverAdapter()
+    {
+        this(CardinalityEncoding.NATIVE);
     }
 
     private void assertModelValid()
     {
-        if (model == null || model == NONSOLUTION) {
+        if (modelLiterals == null || modelLiterals == NONSOLUTION) {
             throw new IllegalStateException("try to get the valuation before a model found");
         }
     }
@@ -86,6 +102,20 @@ public class Sat4jSolverAdapter implements SatSolver
         solver.setTimeoutMs(t);
     }
 
+    @Override
+    public CardinalityEncoding getCardinalityEncoding()
+    {
+        return cardinalityEncoding;
+    }
+
+    @Override
+    public void setCardinalityEncoding(CardinalityEncoding encoding)
+    {
+        Assert.argumentNotNull(encoding);
+
+        cardinalityEncoding = encoding;
+    }
+
     @Override
     public int newFreeVariable()
     {
@@ -116,23 +146,50 @@ public class Sat4jSolverAdapter implements SatSolver
         return IntInterval.fromTo(from, to);
     }
 
+    private VecInt fillClauseBuffer(int[] clause)
+    {
+        clauseBuffer.clear();
+        for (var literal : clause) {
+            clauseBuffer.push(literal);
+        }
+
+        return clauseBuffer;
+    }
+
+    private void addBufferedClause(VecInt buffer) throws org.sat4j.specs.ContradictionException
+    {
+        modelLiterals = null;
+        solver.addClause(buffer); // SAT4J copies the literals, so the buffer can be reused
+    }
+
     @Override
     public void addClause(int... clause)
     {
-        model = null;
         try {
-            solver.addClause(new VecInt(clause));
+            addBufferedClause(fillClauseBuffer(clause));
         } catch (org.sat4j.specs.ContradictionException e) {
             throw new ContradictionException("clause " + Arrays.toString(clause));
         }
     }
 
+    @Override
+    public ClauseBuilder newClause()
+    {
+        clauseBuilder.literals.clear();
+
+        return clauseBuilder;
+    }
+
     @Override
     public void addClauseAtLeast(int degree, int... clause)
     {
-        model = null;
+        modelLiterals = null;
+        if (cardinalityEncoding != CardinalityEncoding.NATIVE) {
+            CardinalityConstraints.addAtLeast(this, cardinalityEncoding, degree, clause);
+            return;
+        }
         try {
-            solver.addAtLeast(new VecInt(clause), degree);
+            solver.addAtLeast(fillClauseBuffer(clause), degree);
         } catch (org.sat4j.specs.ContradictionException e) {
             throw new ContradictionException("at-least-" + degree + " clause " + Arrays.toString(clause));
         }
@@ -141,9 +198,13 @@ public class Sat4jSolverAdapter implements SatSolver
     @Override
     public void addClauseAtMost(int degree, int... clause)
     {
-        model = null;
+        modelLiterals = null;
+        if (cardinalityEncoding != CardinalityEncoding.NATIVE) {
+            CardinalityConstraints.addAtMost(this, cardinalityEncoding, degree, clause);
+            return;
+        }
         try {
-            solver.addAtMost(new VecInt(clause), degree);
+            solver.addAtMost(fillClauseBuffer(clause), degree);
         } catch (org.sat4j.specs.ContradictionException e) {
             throw new ContradictionException("at-most-" + degree + " clause " + Arrays.toString(clause));
         }
@@ -152,9 +213,13 @@ public class Sat4jSolverAdapter implements SatSolver
     @Override
     public void addClauseExactly(int degree, int... clause)
     {
-        model = null;
+        modelLiterals = null;
+        if (cardinalityEncoding != CardinalityEncoding.NATIVE) {
+            CardinalityConstraints.addExactly(this, cardinalityEncoding, degree, clause);
+            return;
+        }
         try {
-            solver.addExactly(new VecInt(clause), degree);
+            solver.addExactly(fillClauseBuffer(clause), degree);
         } catch (org.sat4j.specs.ContradictionException e) {
             throw new ContradictionException("exact clause " + Arrays.toString(clause));
         }
@@ -163,46 +228,83 @@ public class Sat4jSolverAdapter implements SatSolver
     @Override
     public boolean findItSatisfiable()
     {
-        if (model != null) {
-            return model != NONSOLUTION;
+        if (modelLiterals != null) {
+            return modelLiterals != NONSOLUTION;
         }
 
         LOGGER.info("Invoke a SAT solving on SAT4J at thread time {}ms.", //
                     () -> (profilingStartTime = Stopwatch.currentThreadCpuTimeInMs()));
+        final var startTime = System.nanoTime();
+        final var variableNumber = nextFreeVariableId - 1;
+        final var clauseNumber = solver.nConstraints();
         try {
             if (solver.isSatisfiable()) {
+                Probes.satCall(startTime, variableNumber, clauseNumber, SatOutcome.SAT);
                 LOGGER.info("SAT4J found a solution in {}ms.", //
                             () -> Stopwatch.currentThreadCpuTimeInMs() - profilingStartTime);
-                model = IntSets.immutable.of(solver.model());
+                setModel(solver.model());
 
                 return true;
             }
         } catch (org.sat4j.specs.TimeoutException e) {
+            Probes.satCall(startTime, variableNumber, clauseNumber, SatOutcome.TIMEOUT);
             LOGGER.info("SAT4J failed to solve the problem within {}ms.", //
                         () -> Stopwatch.currentThreadCpuTimeInMs() - profilingStartTime);
             throw new TimeoutException();
         }
+        Probes.satCall(startTime, variableNumber, clauseNumber, SatOutcome.UNSAT);
         LOGGER.info("SAT4J found it unsatisfiable in {}ms.", //
                     () -> Stopwatch.currentThreadCpuTimeInMs() - profilingStartTime);
-        model = NONSOLUTION;
+        setModel(NONSOLUTION);
 
         return false;
     }
 
+    private void setModel(int[] literals)
+    {
+        modelLiterals = literals;
+        model = null;
+        var maxVariable = 0;
+        for (var literal : literals) {
+            maxVariable = Math.max(maxVariable, Math.abs(literal));
+        }
+        modelValues = new boolean[maxVariable + 1];
+        for (var literal : literals) {
+            if (literal > 0) {
+                modelValues[literal] = true;
+            }
+        }
+    }
+
     @Override
     public ImmutableIntSet getModel()
     {
         assertModelValid();
 
+        if (model == null) {
+            model = IntSets.immutable.of(modelLiterals);
+        }
+
         return model;
     }
 
+    @Override
+    public boolean isTruthyInModel(int literal)
+    {
+        assertModelValid();
+
+        final var variable = Math.abs(literal);
+        final var truthy = variable < modelValues.length && modelValues[variable];
+
+        return literal > 0 ? truthy : !truthy;
+    }
+
     @Override
     public ImmutableIntSet getModelTruthyVariables()
     {
         assertModelValid();
 
-        return model.select(x -> x > 0);
+        return getModel().select(x -> x > 0);
     }
 
     @Override
@@ -210,6 +312,8 @@ public class Sat4jSolverAdapter implements SatSolver
     {
         assertModelValid();
 
+        final var model = getModel();
+
         return model.select(x -> x < 0).collectInt(x -> -x, new IntHashSet(model.size())); // upper bound, one-off
     }
 
@@ -219,6 +323,75 @@ public class Sat4jSolverAdapter implements SatSolver
         solver = newSolverInstance();
         solver.newVar(SAT_SOLVER_MAX_VARIABLE_NUMBER);
         nextFreeVariableId = 1;
+        modelLiterals = null;
+        modelValues = null;
         model = null;
     }
+
+    private final class VecIntClauseBuilder implements ClauseBuilder, IntProcedure
+    {
+        private final VecInt literals = new VecInt();
+        private final IntProcedure negatedAdder = literal -> literals.push(-literal);
+
+        @Override
+        public void value(int literal)
+        {
+            literals.push(literal);
+        }
+
+        @Override
+        public ClauseBuilder add(int literal)
+        {
+            literals.push(literal);
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAll(int... literals)
+        {
+            for (var literal : literals) {
+                this.literals.push(literal);
+            }
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAll(IntIterable literals)
+        {
+            literals.forEach(this);
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAllNegated(int... literals)
+        {
+            for (var literal : literals) {
+                this.literals.push(-literal);
+            }
+
+            return this;
+        }
+
+        @Override
+        public ClauseBuilder addAllNegated(IntIterable literals)
+        {
+            literals.forEach(negatedAdder);
+
+            return this;
+        }
+
+        @Override
+        public void commit()
+        {
+            try {
+                addBufferedClause(literals);
+            } catch (org.sat4j.specs.ContradictionException e) {
+                // SAT4J may have consumed the literals by now, and keeping a copy of each clause is not worth it
+                throw new ContradictionException("clause built");
+            }
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package common.sat;
 
+import org.eclipse.collections.api.IntIterable;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
@@ -11,6 +12,35 @@ import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
  */
 public interface SatSolver
 {
+    /**
+     * The ways a cardinality constraint (at-least, at-most, exactly) can be
+     * handed to the solver.  {@code NATIVE} passes it to the solver as a
+     * constraint object, the others translate it into plain clauses.
+     */
+    enum CardinalityEncoding
+    {
+        NATIVE, PAIRWISE, SEQUENTIAL_COUNTER, COMMANDER, TOTALIZER
+    }
+
+    /**
+     * Collects the literals of a clause one by one without allocating arrays
+     * for them, and adds the clause to the solver on {@link #commit()}.
+     */
+    interface ClauseBuilder
+    {
+        ClauseBuilder add(int literal);
+
+        ClauseBuilder addAll(int... literals);
+
+        ClauseBuilder addAll(IntIterable literals);
+
+        ClauseBuilder addAllNegated(int... literals);
+
+        ClauseBuilder addAllNegated(IntIterable literals);
+
+        void commit();
+    }
+
     boolean isVerbose();
 
     void setVerbose(boolean value);
@@ -23,13 +53,17 @@ public interface SatSolver
 
     void setTimeoutInMs(long ms);
 
+    CardinalityEncoding getCardinalityEncoding();
+
+    void setCardinalityEncoding(CardinalityEncoding encoding);
+
     int newFreeVariable();
 
     ImmutableIntList newFreeVariables(int howMany);
 
     default void setLiteralTruthy(int literal)
     {
-        addClause(literal);
+        newClause().add(literal).commit();
     }
 
     default void setLiteralsTruthy(int... literals)
@@ -41,7 +75,7 @@ public interface SatSolver
 
     default void setLiteralFalsy(int literal)
     {
-        addClause(-literal);
+        newClause().add(-literal).commit();
     }
 
     default void setLiteralsFalsy(int... literals)
@@ -53,16 +87,16 @@ public interface SatSolver
 
     default void markAsEquivalent(int literal1, int literal2)
     {
-        addClause(-literal1, literal2);
-        addClause(literal1, -literal2);
+        addImplication(literal1, literal2);
+        addImplication(literal2, literal1);
     }
 
     default void markAllAsEquivalent(int... literals)
     {
         for (var i = 0; i < literals.length - 1; i++) {
-            addClause(-literals[i], literals[i + 1]);
+            addImplication(literals[i], literals[i + 1]);
         }
-        addClause(-literals[literals.length - 1], literals[0]);
+        addImplication(literals[literals.length - 1], literals[0]);
     }
 
     /**
@@ -80,7 +114,7 @@ public interface SatSolver
 
         // greaterHere <-- alreadyGreater || (digit1 && -digit2)
         addImplication(alreadyGreater, greaterHere);
-        addClause(-digit1, digit2, greaterHere);
+        newClause().add(-digit1).add(digit2).add(greaterHere).commit();
         // greaterHere --> alreadyGreater || (digit1 && -digit2)
         addClauseIf(greaterHere, alreadyGreater, digit1);
         addClauseIf(greaterHere, alreadyGreater, -digit2);
@@ -151,13 +185,20 @@ public interface SatSolver
      */
     void addClause(int... clause);
 
+    /**
+     * Returns an empty {@link ClauseBuilder} for adding a clause without the
+     * intermediate arrays.  The builder may be shared across the calls, so a
+     * clause should be committed before any other clause is added.
+     */
+    ClauseBuilder newClause();
+
     /**
      * Behaves the same as {@link #addClause(int...)}, but accepting an
      * {@link ImmutableIntList} as the given clause.
      */
     default void addClause(ImmutableIntList clause)
     {
-        addClause(clause.toArray());
+        newClause().addAll(clause).commit();
     }
 
     /**
@@ -166,7 +207,7 @@ public interface SatSolver
      */
     default void addClause(ImmutableIntSet clause)
     {
-        addClause(clause.toArray());
+        newClause().addAll(clause).commit();
     }
 
     /**
@@ -179,10 +220,7 @@ public interface SatSolver
      */
     default void addClauseIf(int indicator, int... clause)
     {
-        final MutableIntList mutableClause = new IntArrayList(clause.length + 1);
-        mutableClause.addAll(clause);
-        mutableClause.add(-indicator);
-        addClause(mutableClause.toArray());
+        newClause().addAll(clause).add(-indicator).commit();
     }
 
     /**
@@ -191,7 +229,7 @@ public interface SatSolver
      */
     default void addClauseIf(int indicator, ImmutableIntList clause)
     {
-        addClauseIf(indicator, clause.toArray());
+        newClause().addAll(clause).add(-indicator).commit();
     }
 
     /**
@@ -200,7 +238,7 @@ public interface SatSolver
      */
     default void addClauseIf(int indicator, ImmutableIntSet clause)
     {
-        addClauseIf(indicator, clause.toArray());
+        newClause().addAll(clause).add(-indicator).commit();
     }
 
     /**
@@ -353,11 +391,7 @@ public interface SatSolver
      */
     default void addClauseBlocking(int... clause)
     {
-        final var blockingClause = new int[clause.length];
-        for (var i = 0; i < clause.length; i++) {
-            blockingClause[i] = -clause[i];
-        }
-        addClause(blockingClause);
+        newClause().addAllNegated(clause).commit();
     }
 
     /**
@@ -366,7 +400,7 @@ public interface SatSolver
      */
     default void addClauseBlocking(ImmutableIntSet clause)
     {
-        addClauseBlocking(clause.toArray());
+        newClause().addAllNegated(clause).commit();
     }
 
     /**
@@ -379,12 +413,7 @@ public interface SatSolver
      */
     default void addClauseBlockingIf(int indicator, int... clause)
     {
-        final var blockingClause = new int[clause.length + 1];
-        for (var i = 0; i < clause.length; i++) {
-            blockingClause[i] = -clause[i];
-        }
-        blockingClause[clause.length] = -indicator;
-        addClause(blockingClause);
+        newClause().addAllNegated(clause).add(-indicator).commit();
     }
 
     /**
@@ -393,7 +422,7 @@ public interface SatSolver
      */
     default void addClauseBlockingIf(int indicator, ImmutableIntSet clause)
     {
-        addClauseBlockingIf(indicator, clause.toArray());
+        newClause().addAllNegated(clause).add(-indicator).commit();
     }
 
     /**
@@ -404,7 +433,7 @@ public interface SatSolver
      */
     default void addImplication(int antecedent, int consequent)
     {
-        addClause(-antecedent, consequent);
+        newClause().add(-antecedent).add(consequent).commit();
     }
 
     /**
@@ -418,7 +447,7 @@ public interface SatSolver
      */
     default void addImplicationIf(int indicator, int antecedent, int consequent)
     {
-        addClause(-indicator, -antecedent, consequent);
+        newClause().add(-indicator).add(-antecedent).add(consequent).commit();
     }
 
     /**
@@ -457,6 +486,13 @@ public interface SatSolver
      */
     ImmutableIntSet getModel();
 
+    /**
+     * Returns whether the given literal is assigned true in the model after
+     * the satisfiability has been determined.  Unlike {@link #getModel()},
+     * it takes constant time and creates no collections.
+     */
+    boolean isTruthyInModel(int literal);
+
     /**
      * Returns the variables in the model that have been assigned true of the
      * given constraints after the satisfiability has been determined.
@@ -0,0 +1,129 @@
+package common.util;
+
+import static core.Parameters.CANCELLATION_CLOCK_CHECK_INTERVAL;
+
+/**
+ * The cancellation state of a piece of work, which is cancelled either on
+ * request (from any thread) or once its deadline passes.
+ * <p>
+ * A token is bound to the thread doing the work, so the long loops in the
+ * automata algorithms, the checkers and the provers can poll it by
+ * {@link #checkpoint()} without it being passed down through all of them.
+ * A checkpoint costs a thread-local read and a few field reads; the clock
+ * is only read every {@link core.Parameters#CANCELLATION_CLOCK_CHECK_INTERVAL}
+ * checkpoints.  An interrupted thread is taken as cancelled too.
+ */
+public final class CancellationToken
+{
+    private static final CancellationToken NEVER_CANCELLED = new CancellationToken();
+    private static final ThreadLocal<CancellationToken> BOUND_TOKEN = ThreadLocal.withInitial(() -> NEVER_CANCELLED);
+
+    private volatile boolean cancelled;
+    private volatile long deadline = Long.MAX_VALUE; // epoch time in ms
+    private int checkpointsToClockCheck; // racy by design, only steering how often the clock is read
+
+    /**
+     * The binding of a token to the current thread, which restores the one
+     * bound before when closed.
+     */
+    public final class Binding implements AutoCloseable
+    {
+        private final CancellationToken previous;
+
+        private Binding(CancellationToken previous)
+        {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close()
+        {
+            BOUND_TOKEN.set(previous);
+        }
+    }
+
+    /**
+     * Returns the token bound to the current thread, one never cancelled if
+     * there is none.
+     */
+    public static CancellationToken current()
+    {
+        return BOUND_TOKEN.get();
+    }
+
+    /**
+     * Throws {@link CancelledException} if the work on the current thread
+     * has been cancelled.
+     */
+    public static void checkpoint()
+    {
+        BOUND_TOKEN.get().throwIfCancelled();
+    }
+
+    public Binding bindToCurrentThread()
+    {
+        final var result = new Binding(BOUND_TOKEN.get());
+        BOUND_TOKEN.set(this);
+
+        return result;
+    }
+
+    private void ensureNotShared()
+    {
+        if (this == NEVER_CANCELLED) {
+            throw new UnsupportedOperationException("the token of unbound threads is never cancelled");
+        }
+    }
+
+    public void cancel()
+    {
+        ensureNotShared();
+        cancelled = true;
+    }
+
+    /**
+     * Sets the epoch time (in ms) after which the work counts as cancelled,
+     * {@link Long#MAX_VALUE} for none.
+     */
+    public void setDeadline(long deadline)
+    {
+        ensureNotShared();
+        this.deadline = deadline;
+    }
+
+    public long deadline()
+    {
+        return deadline;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled || Thread.currentThread().isInterrupted()
+            || (deadline != Long.MAX_VALUE && Stopwatch.epochTimeInMs() >= deadline);
+    }
+
+    /**
+     * Returns whether the deadline has passed, as opposed to the work being
+     * cancelled on request.
+     */
+    public boolean hasDeadlinePassed()
+    {
+        return deadline != Long.MAX_VALUE && Stopwatch.epochTimeInMs() >= deadline;
+    }
+
+    public void throwIfCancelled()
+    {
+        if (cancelled) {
+            throw new CancelledException("cancelled on request");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancelledException("thread interrupted");
+        }
+        if (deadline != Long.MAX_VALUE && --checkpointsToClockCheck <= 0) {
+            checkpointsToClockCheck = CANCELLATION_CLOCK_CHECK_INTERVAL;
+            if (Stopwatch.epochTimeInMs() >= deadline) {
+                throw new CancelledException("deadline passed");
+            }
+        }
+    }
+}
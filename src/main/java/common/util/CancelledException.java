@@ -0,0 +1,13 @@
+package common.util;
+
+/**
+ * Thrown at a {@link CancellationToken#checkpoint()} once the work going on
+ * has been cancelled or has passed its deadline.
+ */
+public class CancelledException extends RuntimeException
+{
+    public CancelledException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,131 @@
+package common.util;
+
+import common.metrics.Metrics;
+
+import static core.Parameters.AUTOMATON_STATE_BUDGET;
+import static core.Parameters.AUTOMATON_TRANSITION_BUDGET;
+
+/**
+ * The most states and transitions a single automata operation (such as a
+ * determinization, a product or a pre*&#47;post* fixpoint) may build before
+ * it gives up with a {@link StateExplosionException}, instead of running
+ * the JVM out of memory.
+ * <p>
+ * Like {@link CancellationToken}, a budget is bound to the thread doing the
+ * work, and the operations check the one in effect by the static methods.
+ * Threads without one bound take the defaults in {@link core.Parameters}.
+ * A limit of 0 means no limit.
+ */
+public final class StateBudget
+{
+    private static final StateBudget DEFAULT = new StateBudget(AUTOMATON_STATE_BUDGET, AUTOMATON_TRANSITION_BUDGET);
+    private static final ThreadLocal<StateBudget> BOUND_BUDGET = ThreadLocal.withInitial(() -> DEFAULT);
+
+    private final int stateLimit;
+    private final long transitionLimit;
+
+    public StateBudget(int stateLimit, long transitionLimit)
+    {
+        if (stateLimit < 0 || transitionLimit < 0) {
+            throw new IllegalArgumentException("budget cannot be negative");
+        }
+
+        this.stateLimit = stateLimit;
+        this.transitionLimit = transitionLimit;
+    }
+
+    /**
+     * The binding of a budget to the current thread, which restores the one
+     * bound before when closed.
+     */
+    public final class Binding implements AutoCloseable
+    {
+        private final StateBudget previous;
+
+        private Binding(StateBudget previous)
+        {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close()
+        {
+            BOUND_BUDGET.set(previous);
+        }
+    }
+
+    public static StateBudget defaultBudget()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the budget bound to the current thread, the default one if
+     * there is none.
+     */
+    public static StateBudget current()
+    {
+        return BOUND_BUDGET.get();
+    }
+
+    public Binding bindToCurrentThread()
+    {
+        final var result = new Binding(BOUND_BUDGET.get());
+        BOUND_BUDGET.set(this);
+
+        return result;
+    }
+
+    public int stateLimit()
+    {
+        return stateLimit;
+    }
+
+    public long transitionLimit()
+    {
+        return transitionLimit;
+    }
+
+    /**
+     * Returns the given initial capacity for the states of a result, capped
+     * by the state limit in effect and by {@link Integer#MAX_VALUE}.
+     */
+    public static int cappedStateCapacity(long capacity)
+    {
+        final var limit = BOUND_BUDGET.get().stateLimit;
+        final var capped = limit > 0 ? Math.min(capacity, limit) : capacity;
+
+        return (int) Math.min(capped, Integer.MAX_VALUE);
+    }
+
+    private static StateExplosionException exceeded(String operation, String what, long limit)
+    {
+        Metrics.count("budget.exceeded." + operation);
+        return new StateExplosionException(operation, "more than " + limit + " " + what);
+    }
+
+    /**
+     * Throws {@link StateExplosionException} if the given number of states
+     * built by the given operation exceeds the state limit in effect.
+     */
+    public static void checkStates(String operation, long states)
+    {
+        final var limit = BOUND_BUDGET.get().stateLimit;
+        if (limit > 0 && states > limit) {
+            throw exceeded(operation, "states", limit);
+        }
+    }
+
+    /**
+     * Throws {@link StateExplosionException} if the given number of
+     * transitions built by the given operation exceeds the transition limit
+     * in effect.
+     */
+    public static void checkTransitions(String operation, long transitions)
+    {
+        final var limit = BOUND_BUDGET.get().transitionLimit;
+        if (limit > 0 && transitions > limit) {
+            throw exceeded(operation, "transitions", limit);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package common.util;
+
+/**
+ * Thrown when an automata operation is about to build more states or
+ * transitions than the {@link StateBudget} in effect allows.
+ */
+public class StateExplosionException extends RuntimeException
+{
+    private final String operation;
+
+    public StateExplosionException(String operation, String message)
+    {
+        super(operation + ": " + message);
+        this.operation = operation;
+    }
+
+    /**
+     * Returns the operation which exceeded the budget, such as
+     * {@code "determinize"}.
+     */
+    public String operation()
+    {
+        return operation;
+    }
+}
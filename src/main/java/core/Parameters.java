@@ -5,10 +5,21 @@ public final class Parameters
     // TODO: [tuning] see if there's any effects of modifying these
     public static final int NONDETERMINISTIC_TRANSITION_CAPACITY = 7;
     public static final int LSTAR_LEARNING_STATE_CAPACITY = 7;
+    public static final int LSTAR_PARALLEL_QUERY_THRESHOLD = 8; // fewer new queries in a batch are answered in turn
     public static final int SAT_SOLVER_MAX_VARIABLE_NUMBER = 1000000;
     public static final int SAT_SOLVER_MAX_CLAUSE_NUMBER = 1000000;
+    public static final int SAT_SOLVER_PAIRWISE_CLAUSE_LIMIT = 128;
     public static final int PARSER_COMMON_CAPACITY = 10;
+    public static final long PROVER_CELL_TIME_SLICE_IN_MS = 1000L;
+    public static final int PROVER_LIVE_SUSPENDED_CELL_LIMIT = 8; // suspended cells keeping their solvers
+    public static final int LEARNED_CONSTRAINT_STORE_CAPACITY = 0; // no limit
     public static final double ADDITIONAL_CAPACITY_MULTIPLIER = 1.85;
+    public static final int CANCELLATION_CLOCK_CHECK_INTERVAL = 256; // checkpoints between two clock readings
+    public static final int AUTOMATON_STATE_BUDGET = 1000000; // 0 for no limit
+    public static final long AUTOMATON_TRANSITION_BUDGET = 20000000L; // 0 for no limit
+    public static final int REVERSE_TRANSITION_INDEX_THRESHOLD = 32; // states, beyond which a removal builds the index
+    public static final int INVARIANT_PREFETCH_DEPTH = 2; // lengths computed ahead of the one asked
+    public static final long INVARIANT_PREFETCH_STATE_BUDGET = 2000000L; // states prefetched but not asked yet
 
     private Parameters()
     {
@@ -2,6 +2,9 @@ package core.automata;
 
 import api.automata.*;
 import common.util.Assert;
+import common.util.CancellationToken;
+import common.util.StateBudget;
+import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.bimap.MutableBiMap;
 import org.eclipse.collections.api.map.MapIterable;
 import org.eclipse.collections.api.map.MutableMap;
@@ -9,6 +12,8 @@ import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.tuple.Pair;
 import org.eclipse.collections.impl.bimap.mutable.HashBiMap;
+import org.eclipse.collections.impl.factory.Maps;
+import org.eclipse.collections.impl.factory.Sets;
 import org.eclipse.collections.impl.map.mutable.UnifiedMap;
 import org.eclipse.collections.impl.set.mutable.UnifiedSet;
 import org.eclipse.collections.impl.tuple.Tuples;
@@ -17,6 +22,7 @@ import java.util.LinkedList;
 import java.util.Queue;
 
 import static api.util.Constants.NONEXISTING_STATE;
+import static core.Parameters.REVERSE_TRANSITION_INDEX_THRESHOLD;
 import static core.Parameters.estimateExtendedSize;
 
 public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
@@ -30,12 +36,14 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
     protected boolean hasChanged;
     private MapIterable<State<S>, String> stateNames;
     private SetIterable<State<S>> nonAcceptStates;
+    private StateNumbering<S> stateNumbering;
     private SetIterable<State<S>> reachableStates;
     private SetIterable<State<S>> unreachableStates;
     private MapIterable<State<S>, SetIterable<State<S>>> predecessorRelation;
     private SetIterable<State<S>> liveStates;
     private SetIterable<State<S>> deadEndStates;
     private SetIterable<State<S>> danglingStates;
+    private MutableMap<State<S>, MutableMap<S, MutableSet<State<S>>>> incomingArcs; // built on demand
 
     public AbstractMutableAutomaton(Alphabet<S> alphabet, int stateCapacity)
     {
@@ -122,6 +130,16 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         return (nonAcceptStates = states.difference(acceptStates));
     }
 
+    @Override
+    public StateNumbering<S> stateNumbering()
+    {
+        if (!hasChanged && stateNumbering != null) {
+            return stateNumbering;
+        }
+
+        return (stateNumbering = MutableAutomaton.super.stateNumbering());
+    }
+
     @Override
     public SetIterable<State<S>> reachableStates()
     {
@@ -142,6 +160,45 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         return (unreachableStates = MutableAutomaton.super.unreachableStates());
     }
 
+    /**
+     * Returns the index of the transitions by their destinations, from each
+     * state to the sources of its incoming transitions by symbol.  It is only
+     * built once asked, by a predecessor query or by a state removal on more
+     * than {@link core.Parameters#REVERSE_TRANSITION_INDEX_THRESHOLD} states,
+     * and then kept up to date by the mutations made through the automaton.
+     */
+    private MutableMap<State<S>, MutableMap<S, MutableSet<State<S>>>> incomingArcs()
+    {
+        if (incomingArcs == null) {
+            incomingArcs = UnifiedMap.newMap(states.size());
+            states.forEach(dept -> dept.transitions().forEach(arc -> indexArc(dept, arc.getOne(), arc.getTwo())));
+        }
+
+        return incomingArcs;
+    }
+
+    private void indexArc(State<S> dept, S symbol, State<S> dest)
+    {
+        incomingArcs.computeIfAbsent(dest, __ -> UnifiedMap.newMap())
+                    .computeIfAbsent(symbol, __ -> UnifiedSet.newSet())
+                    .add(dept);
+    }
+
+    private void unindexArc(State<S> dept, S symbol, State<S> dest)
+    {
+        final var arcsBySymbol = incomingArcs.get(dest);
+        if (arcsBySymbol == null) {
+            return;
+        }
+        final var depts = arcsBySymbol.get(symbol);
+        if (depts != null && depts.remove(dept) && depts.isEmpty()) {
+            arcsBySymbol.remove(symbol);
+            if (arcsBySymbol.isEmpty()) {
+                incomingArcs.remove(dest);
+            }
+        }
+    }
+
     @Override
     public MapIterable<State<S>, SetIterable<State<S>>> predecessorRelation()
     {
@@ -149,7 +206,15 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
             return predecessorRelation;
         }
 
-        return (predecessorRelation = MutableAutomaton.super.predecessorRelation());
+        final var index = incomingArcs();
+        final MutableMap<State<S>, SetIterable<State<S>>> result = UnifiedMap.newMap(index.size());
+        index.forEachKeyValue((dest, arcsBySymbol) -> {
+            final MutableSet<State<S>> depts = UnifiedSet.newSet();
+            arcsBySymbol.forEachValue(depts::addAll);
+            result.put(dest, depts);
+        });
+
+        return (predecessorRelation = result);
     }
 
     @Override
@@ -220,6 +285,9 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         Assert.argumentNotNull(state);
 
         states.add(state);
+        if (incomingArcs != null) {
+            state.transitions().forEach(arc -> indexArc(state, arc.getOne(), arc.getTwo()));
+        }
         hasChanged = true;
 
         return this;
@@ -236,7 +304,17 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         }
 
         states.remove(state);
-        states.forEach(affected -> ((MutableState<S>) affected).removeTransitionsTo(state));
+        if (incomingArcs == null && states.size() < REVERSE_TRANSITION_INDEX_THRESHOLD) {
+            states.forEach(affected -> ((MutableState<S>) affected).removeTransitionsTo(state));
+        } else {
+            final var arcsBySymbol = incomingArcs().remove(state);
+            if (arcsBySymbol != null) {
+                final MutableSet<State<S>> depts = UnifiedSet.newSet();
+                arcsBySymbol.forEachValue(depts::addAll);
+                depts.forEach(affected -> ((MutableState<S>) affected).removeTransitionsTo(state));
+            }
+            state.transitions().forEach(arc -> unindexArc(state, arc.getOne(), arc.getTwo()));
+        }
         hasChanged = true;
 
         return this;
@@ -298,6 +376,25 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         }
 
         dept.addTransition(symbol, dest);
+        if (incomingArcs != null) {
+            indexArc(dept, symbol, dest);
+        }
+        hasChanged = true;
+
+        return this;
+    }
+
+    @Override
+    public MutableAutomaton<S> removeTransition(MutableState<S> dept, MutableState<S> dest, S symbol)
+    {
+        if (!states.containsAllArguments(dept, dest)) {
+            throw new IllegalArgumentException(NONEXISTING_STATE);
+        }
+
+        dept.removeTransition(symbol, dest);
+        if (incomingArcs != null) {
+            unindexArc(dept, symbol, dest);
+        }
         hasChanged = true;
 
         return this;
@@ -333,6 +430,55 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
 
             return (size = MutableAutomaton.TransitionGraph.super.size());
         }
+
+        private MapIterable<S, MutableSet<State<S>>> arcsBySymbolTo(State<S> node)
+        {
+            if (!nodeExists(node)) {
+                throw new IllegalArgumentException(NONEXISTING_STATE);
+            }
+
+            final MapIterable<S, MutableSet<State<S>>> result = incomingArcs().get(node);
+
+            return result != null ? result : Maps.immutable.empty();
+        }
+
+        @Override
+        public RichIterable<Pair<State<S>, S>> arcsTo(State<S> node)
+        {
+            return arcsBySymbolTo(node).keyValuesView().flatCollect(each -> {
+                final var arcLabel = each.getOne();
+                return each.getTwo().collect(dept -> Tuples.pair(dept, arcLabel));
+            }).toList(); // one-off
+        }
+
+        @Override
+        public SetIterable<S> arcLabelsTo(State<S> node)
+        {
+            return Sets.immutable.withAll(arcsBySymbolTo(node).keysView()); // one-off
+        }
+
+        @Override
+        public boolean arcLabeledTo(State<S> node, S arcLabel)
+        {
+            return arcsBySymbolTo(node).containsKey(arcLabel);
+        }
+
+        @Override
+        public SetIterable<State<S>> directPredecessorsOf(State<S> node)
+        {
+            final MutableSet<State<S>> result = UnifiedSet.newSet();
+            arcsBySymbolTo(node).forEachValue(result::addAll);
+
+            return result; // one-off
+        }
+
+        @Override
+        public SetIterable<State<S>> directPredecessorsOf(State<S> node, S arcLabel)
+        {
+            final var result = arcsBySymbolTo(node).get(arcLabel);
+
+            return result != null ? result.asUnmodifiable() : Sets.immutable.empty();
+        }
     }
 
     protected class ProductHandler<T, R>
@@ -343,6 +489,7 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         private final MutableAutomaton<R> result;
         private final MutableBiMap<Pair<State<S>, State<T>>, MutableState<R>> stateMapping;
         private final Queue<Pair<State<S>, State<T>>> pendingChecks;
+        private long transitionNumber;
 
         public ProductHandler(Automaton<T> target, MutableAutomaton<R> result, int capacity)
         {
@@ -357,6 +504,7 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
         private MutableState<R> takeState(Pair<State<S>, State<T>> statePair)
         {
             return stateMapping.computeIfAbsent(statePair, pair -> {
+                StateBudget.checkStates("product", stateMapping.size() + 1L);
                 pendingChecks.add(pair);
                 return result.newState();
             });
@@ -374,6 +522,7 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
             result.removeState(dummyStart);
             Pair<State<S>, State<T>> currStatePair;
             while ((currStatePair = pendingChecks.poll()) != null) {
+                CancellationToken.checkpoint();
                 final var deptP = stateMapping.get(currStatePair);
                 final var dept1 = currStatePair.getOne();
                 final var dept2 = currStatePair.getTwo();
@@ -391,8 +540,10 @@ public abstract class AbstractMutableAutomaton<S> implements MutableAutomaton<S>
                         if (symbolP == null) {
                             continue; // no step should be made
                         }
-                        dept1.successors(symbol1).forEach(dest1 -> dept2.successors(symbol2).forEach(
-                            dest2 -> result.addTransition(deptP, takeState(dest1, dest2), symbolP)));
+                        dept1.successors(symbol1).forEach(dest1 -> dept2.successors(symbol2).forEach(dest2 -> {
+                            StateBudget.checkTransitions("product", ++transitionNumber);
+                            result.addTransition(deptP, takeState(dest1, dest2), symbolP);
+                        }));
                     }
                 }
             }
@@ -0,0 +1,350 @@
+package core.automata;
+
+import api.automata.Alphabet;
+import api.automata.Alphabets;
+import api.automata.Automaton;
+import api.automata.MutableAutomaton;
+import api.automata.MutableState;
+import api.automata.State;
+import api.automata.fsa.FSAs;
+import api.automata.fsa.MutableFSA;
+import api.automata.fst.FSTs;
+import api.automata.fst.MutableFST;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.tuple.Pair;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
+import org.eclipse.collections.impl.tuple.Tuples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only automaton indexed by integers, stored in a compact binary
+ * format and loaded by mapping the file into memory.
+ * <p>
+ * The states are numbered from 0 and the symbols are numbered by a symbol
+ * table where 0 is the epsilon.  The transitions are kept in the compressed
+ * sparse row layout: those from state {@code q} are the ones from
+ * {@link #transitionBegin(int) transitionBegin(q)} (inclusive) to
+ * {@link #transitionEnd(int) transitionEnd(q)} (exclusive), sorted by symbol
+ * then successor.  Nothing is allocated per state or transition when loading
+ * or querying; {@link #toFSA()} and {@link #toFST(AutomatonSnapshot)} build
+ * the usual automata when their operations are needed.
+ * <p>
+ * The format, all in big-endian 32-bit integers, is: the magic number and the
+ * version; the symbol number and, for each symbol, the byte length and the
+ * UTF-8 bytes of its encoding padded to 4 bytes; the state number, the start
+ * state and the transition number; the row offsets (one more than the
+ * states), the transition symbols and the transition successors; and the
+ * accept states as a bitset in 32-bit words.
+ *
+ * @param <S> the symbol type
+ */
+public final class AutomatonSnapshot<S>
+{
+    private static final int MAGIC = 0x534c5250; // "SLRP"
+    private static final int VERSION = 1;
+
+    private final ImmutableList<S> symbols;
+    private final Alphabet<S> alphabet;
+    private final int stateNumber;
+    private final int startState;
+    private final int transitionNumber;
+    private final IntBuffer offsets;
+    private final IntBuffer transitionSymbols;
+    private final IntBuffer transitionSuccessors;
+    private final IntBuffer acceptBits;
+
+    /**
+     * Converts the symbols of the automata into text and back for the symbol
+     * table.
+     */
+    public interface SymbolCodec<S>
+    {
+        String encode(S symbol);
+
+        S decode(String text);
+    }
+
+    public static final SymbolCodec<String> STRING_SYMBOLS = new SymbolCodec<>()
+    {
+        @Override
+        public String encode(String symbol)
+        {
+            return symbol;
+        }
+
+        @Override
+        public String decode(String text)
+        {
+            return text;
+        }
+    };
+
+    public static final SymbolCodec<Pair<String, String>> STRING_PAIR_SYMBOLS = new SymbolCodec<>()
+    {
+        private static final char SEPARATOR = '\u001f'; // the unit separator, never in the symbols parsed
+
+        @Override
+        public String encode(Pair<String, String> symbol)
+        {
+            return symbol.getOne() + SEPARATOR + symbol.getTwo();
+        }
+
+        @Override
+        public Pair<String, String> decode(String text)
+        {
+            final var separatorIndex = text.indexOf(SEPARATOR);
+
+            return Tuples.pair(text.substring(0, separatorIndex), text.substring(separatorIndex + 1));
+        }
+    };
+
+    private static IntBuffer intSlice(ByteBuffer buffer, int intLength)
+    {
+        final var result = buffer.slice().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        result.limit(intLength);
+        buffer.position(buffer.position() + intLength * Integer.BYTES);
+
+        return result.slice();
+    }
+
+    private static int paddedLength(int byteLength)
+    {
+        return (byteLength + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+    }
+
+    private AutomatonSnapshot(ByteBuffer buffer, SymbolCodec<S> codec)
+    {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not an automaton snapshot");
+        }
+        final var version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version: " + version);
+        }
+
+        final var symbolNumber = buffer.getInt();
+        final MutableList<S> symbolTable = FastList.newList(symbolNumber);
+        for (var i = 0; i < symbolNumber; i++) {
+            final var length = buffer.getInt();
+            final var bytes = new byte[length];
+            buffer.get(bytes);
+            buffer.position(buffer.position() + paddedLength(length) - length);
+            symbolTable.add(codec.decode(new String(bytes, StandardCharsets.UTF_8)));
+        }
+        symbols = symbolTable.toImmutable();
+        alphabet = Alphabets.create(UnifiedSet.newSet(symbols), symbols.get(0));
+
+        stateNumber = buffer.getInt();
+        startState = buffer.getInt();
+        transitionNumber = buffer.getInt();
+        offsets = intSlice(buffer, stateNumber + 1);
+        transitionSymbols = intSlice(buffer, transitionNumber);
+        transitionSuccessors = intSlice(buffer, transitionNumber);
+        acceptBits = intSlice(buffer, (stateNumber + Integer.SIZE - 1) / Integer.SIZE);
+    }
+
+    /**
+     * Loads the snapshot in the given file by mapping it read-only, so the
+     * transitions are only paged in when used.
+     */
+    public static <S> AutomatonSnapshot<S> load(Path file, SymbolCodec<S> codec) throws IOException
+    {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new AutomatonSnapshot<>(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), codec);
+        }
+    }
+
+    /**
+     * Writes the given automaton into the given file in the snapshot format.
+     */
+    public static <S> void write(Automaton<S> automaton, Path file, SymbolCodec<S> codec) throws IOException
+    {
+        final var alphabet = automaton.alphabet();
+        final MutableList<byte[]> encodedSymbols = FastList.newList(alphabet.size());
+        final MutableObjectIntMap<S> symbolIndices = new ObjectIntHashMap<>(alphabet.size());
+        encodedSymbols.add(codec.encode(alphabet.epsilon()).getBytes(StandardCharsets.UTF_8));
+        symbolIndices.put(alphabet.epsilon(), 0);
+        for (var symbol : alphabet.noEpsilonSet()) {
+            symbolIndices.put(symbol, encodedSymbols.size());
+            encodedSymbols.add(codec.encode(symbol).getBytes(StandardCharsets.UTF_8));
+        }
+
+        final var states = automaton.states();
+        final MutableObjectIntMap<State<S>> stateIndices = new ObjectIntHashMap<>(states.size());
+        stateIndices.put(automaton.startState(), 0);
+        for (var state : states) {
+            if (!stateIndices.containsKey(state)) {
+                stateIndices.put(state, stateIndices.size());
+            }
+        }
+        final var orderedStates = FastList.<State<S>>newList(states.size());
+        orderedStates.addAll(states.toSortedListBy(stateIndices::get));
+        final var transitionNumber = (int) states.sumOfInt(state -> state.transitions().size());
+
+        var byteLength = 3 * Integer.BYTES;
+        for (var encoded : encodedSymbols) {
+            byteLength += Integer.BYTES + paddedLength(encoded.length);
+        }
+        byteLength += (3 + states.size() + 1 + 2 * transitionNumber) * Integer.BYTES;
+        byteLength += (states.size() + Integer.SIZE - 1) / Integer.SIZE * Integer.BYTES;
+        final var buffer = ByteBuffer.allocate(byteLength).order(ByteOrder.BIG_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(encodedSymbols.size());
+        for (var encoded : encodedSymbols) {
+            buffer.putInt(encoded.length).put(encoded);
+            buffer.position(buffer.position() + paddedLength(encoded.length) - encoded.length);
+        }
+        buffer.putInt(states.size()).putInt(0).putInt(transitionNumber);
+
+        // each transition as (symbol, successor) packed into a long, so sorting them sorts by symbol first
+        final var rows = FastList.<LongArrayList>newList(states.size());
+        var offset = 0;
+        for (var state : orderedStates) {
+            final var row = new LongArrayList(state.transitions().size());
+            state.transitions().forEach(trans -> row.add((long) symbolIndices.get(trans.getOne()) << Integer.SIZE
+                                                             | stateIndices.get(trans.getTwo())));
+            row.sortThis();
+            rows.add(row);
+            buffer.putInt(offset);
+            offset += row.size();
+        }
+        buffer.putInt(offset);
+        rows.forEach(row -> row.forEach(packed -> buffer.putInt((int) (packed >>> Integer.SIZE))));
+        rows.forEach(row -> row.forEach(packed -> buffer.putInt((int) packed)));
+
+        final var acceptBits = new int[(states.size() + Integer.SIZE - 1) / Integer.SIZE];
+        automaton.acceptStates().forEach(state -> {
+            final var index = stateIndices.get(state);
+            acceptBits[index / Integer.SIZE] |= 1 << (index % Integer.SIZE);
+        });
+        for (var word : acceptBits) {
+            buffer.putInt(word);
+        }
+
+        buffer.flip();
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public Alphabet<S> alphabet()
+    {
+        return alphabet;
+    }
+
+    public int symbolNumber()
+    {
+        return symbols.size();
+    }
+
+    public S symbolOf(int symbol)
+    {
+        return symbols.get(symbol);
+    }
+
+    public int stateNumber()
+    {
+        return stateNumber;
+    }
+
+    public int startState()
+    {
+        return startState;
+    }
+
+    public boolean isAcceptState(int state)
+    {
+        return (acceptBits.get(state / Integer.SIZE) & 1 << (state % Integer.SIZE)) != 0;
+    }
+
+    public int transitionNumber()
+    {
+        return transitionNumber;
+    }
+
+    public int transitionBegin(int state)
+    {
+        return offsets.get(state);
+    }
+
+    public int transitionEnd(int state)
+    {
+        return offsets.get(state + 1);
+    }
+
+    public int symbolAt(int transition)
+    {
+        return transitionSymbols.get(transition);
+    }
+
+    public int successorAt(int transition)
+    {
+        return transitionSuccessors.get(transition);
+    }
+
+    /**
+     * Returns the least successor of the given state on the given symbol, or
+     * -1 if there is none.
+     */
+    public int successorOf(int state, int symbol)
+    {
+        var low = transitionBegin(state);
+        var high = transitionEnd(state);
+        while (low < high) { // find the first transition with the symbol not less than the given one
+            final var middle = (low + high) >>> 1;
+            if (transitionSymbols.get(middle) < symbol) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low < transitionEnd(state) && transitionSymbols.get(low) == symbol ? transitionSuccessors.get(low) : -1;
+    }
+
+    private <A extends MutableAutomaton<S>> A copyInto(A result)
+    {
+        final MutableList<MutableState<S>> states = FastList.newList(stateNumber);
+        for (var i = 0; i < stateNumber; i++) {
+            states.add(i == startState ? result.startState() : result.newState());
+        }
+        for (var state = 0; state < stateNumber; state++) {
+            for (var trans = transitionBegin(state); trans < transitionEnd(state); trans++) {
+                result.addTransition(states.get(state), states.get(successorAt(trans)), symbolOf(symbolAt(trans)));
+            }
+            if (isAcceptState(state)) {
+                result.setAsAccept(states.get(state));
+            }
+        }
+
+        return result;
+    }
+
+    public MutableFSA<S> toFSA()
+    {
+        return copyInto(FSAs.create(alphabet, stateNumber));
+    }
+
+    public static <S, T> MutableFST<S, T> toFST(AutomatonSnapshot<Pair<S, T>> snapshot)
+    {
+        return snapshot.copyInto(FSTs.create(snapshot.alphabet, snapshot.stateNumber));
+    }
+}
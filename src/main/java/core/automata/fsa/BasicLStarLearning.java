@@ -5,6 +5,7 @@ import api.automata.MutableState;
 import api.automata.fsa.FSA;
 import api.automata.fsa.FSAs;
 import api.automata.fsa.LStarLearning;
+import common.util.CancellationToken;
 import common.util.InterruptException;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
@@ -14,6 +15,7 @@ import org.eclipse.collections.api.set.MutableSet;
 import org.eclipse.collections.impl.factory.Lists;
 import org.eclipse.collections.impl.factory.Sets;
 import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
 import org.eclipse.collections.impl.map.mutable.UnifiedMap;
 
 import java.util.Iterator;
@@ -23,6 +25,11 @@ import java.util.Stack;
 
 import static core.Parameters.LSTAR_LEARNING_STATE_CAPACITY;
 
+/**
+ * The learning by a discrimination tree, where the membership queries are
+ * answered once each, and the ones of a hypothesis construction are made in
+ * batches, in parallel when the teacher is thread-safe.
+ */
 public class BasicLStarLearning implements LStarLearning
 {
     @Override
@@ -39,6 +46,7 @@ public class BasicLStarLearning implements LStarLearning
         private DTNode bookkeepingTree;
         private MapIterable<MutableState<S>, ListIterable<S>> representativeWords;
         private MutableSet<ListIterable<S>> distinguishingWords;
+        private final MembershipQueryCache<S> answeredQueries;
 
         private Learner(Alphabet<S> alphabet, Teacher<S> teacher)
         {
@@ -46,6 +54,45 @@ public class BasicLStarLearning implements LStarLearning
             this.teacher = teacher;
             emptyWord = Lists.immutable.empty();
             distinguishingWords = Sets.mutable.empty();
+            answeredQueries = new MembershipQueryCache<>(teacher);
+        }
+
+        /**
+         * Sifts all the given words down the discrimination tree together, one
+         * level at a time, with the queries of each level made in a batch.
+         */
+        private ListIterable<DTNode> siftAll(ListIterable<? extends ListIterable<S>> words)
+        {
+            final MutableList<DTNode> result = FastList.newList(words.size());
+            for (var i = 0; i < words.size(); i++) {
+                result.add(bookkeepingTree);
+            }
+
+            while (true) {
+                final MutableList<ListIterable<S>> queries = FastList.newList();
+                final var querying = new IntArrayList();
+                for (var i = 0; i < words.size(); i++) {
+                    final var node = result.get(i);
+                    if (node.left != null && node.right != null) {
+                        final MutableList<S> query = FastList.newList(words.get(i).size() + node.word.size());
+                        query.addAllIterable(words.get(i));
+                        query.addAllIterable(node.word);
+                        queries.add(query);
+                        querying.add(i);
+                    }
+                }
+                if (queries.isEmpty()) {
+                    return result;
+                }
+
+                CancellationToken.checkpoint();
+                final var answers = answeredQueries.queryAll(queries);
+                for (var j = 0; j < answers.length; j++) {
+                    final var i = querying.get(j);
+                    final var node = result.get(i);
+                    result.set(i, answers[j] ? node.right : node.left);
+                }
+            }
         }
 
         private FSA<S> learn() throws InterruptException
@@ -58,7 +105,7 @@ public class BasicLStarLearning implements LStarLearning
         private FSA<S> attemptTrivialCase() throws InterruptException
         {
             var hypothesis = FSAs.create(alphabet, LSTAR_LEARNING_STATE_CAPACITY);
-            final var startBeAccept = teacher.targetAccepts(emptyWord);
+            final var startBeAccept = answeredQueries.query(emptyWord);
             if (startBeAccept) {
                 hypothesis.setAsAccept(hypothesis.startState());
             }
@@ -79,6 +126,7 @@ public class BasicLStarLearning implements LStarLearning
             var hypothesis = settle();
             var check = teacher.checkAnswer(hypothesis);
             while (check.rejected()) {
+                CancellationToken.checkpoint();
                 final var hasPositiveCounterexample = check.positiveCounterexample() != null;
                 final var counterexample = hasPositiveCounterexample
                                            ? check.positiveCounterexample()
@@ -121,7 +169,7 @@ public class BasicLStarLearning implements LStarLearning
                                 a.addAll(previousFindingPrefix);
                                 b.addAll(previousFindingPrefix);
 
-                                if (teacher.targetAccepts(a) != teacher.targetAccepts(b)) {
+                                if (answeredQueries.query(a) != answeredQueries.query(b)) {
                                     bestDistinguishingWord = previousFindingPrefix;
                                 }
                             }
@@ -132,7 +180,7 @@ public class BasicLStarLearning implements LStarLearning
 
                         final var a = Lists.mutable.ofAll(nodeA.word);
                         a.addAll(bestDistinguishingWord);
-                        if (teacher.targetAccepts(a)) {
+                        if (answeredQueries.query(a)) {
                             lastSifted.right = nodeA;
                             lastSifted.left = nodeB;
                         } else {
@@ -177,18 +225,21 @@ public class BasicLStarLearning implements LStarLearning
             result.setAsStart(wordToState.get(emptyWord));
             result.removeState(dummyStart);
 
+            final MutableList<ListIterable<S>> successorWords = FastList.newList();
+            final MutableList<MutableState<S>> sources = FastList.newList();
+            final MutableList<S> symbols = FastList.newList();
             for (var i = 0; i < 2; i++) {
                 final var it = (i == 0 ? bookkeepingTree.left : bookkeepingTree.right).leafIterator();
                 while (it.hasNext()) {
                     final var leaf = it.next();
                     final var state = wordToState.get(leaf.word);
-                    final MutableList<S> word = FastList.newList(leaf.word.size() + 1);
-                    word.addAllIterable(leaf.word);
-
                     for (var symbol : alphabet.noEpsilonSet()) {
+                        final MutableList<S> word = FastList.newList(leaf.word.size() + 1);
+                        word.addAllIterable(leaf.word);
                         word.add(symbol);
-                        result.addTransition(state, wordToState.get(bookkeepingTree.sift(word).word), symbol);
-                        word.remove(word.size() - 1);
+                        successorWords.add(word);
+                        sources.add(state);
+                        symbols.add(symbol);
                     }
 
                     if (i == 1) {
@@ -196,6 +247,10 @@ public class BasicLStarLearning implements LStarLearning
                     }
                 }
             }
+            final var sifted = siftAll(successorWords);
+            for (var j = 0; j < sifted.size(); j++) {
+                result.addTransition(sources.get(j), wordToState.get(sifted.get(j).word), symbols.get(j));
+            }
 
             representativeWords = stateToWord;
             return result;
@@ -230,7 +285,7 @@ public class BasicLStarLearning implements LStarLearning
 
                 final var originSize = word.size();
                 word.addAllIterable(this.word);
-                final var targetAccepts = teacher.targetAccepts(word);
+                final var targetAccepts = answeredQueries.query(word);
                 while (word.size() > originSize) {
                     word.remove(word.size() - 1);
                 }
@@ -22,6 +22,12 @@ public class BasicLStarTeacher<S> implements Teacher<S>
         return target.accepts(word);
     }
 
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true; // only reading the target
+    }
+
     @Override
     public EquivalenceCheckResult<S> checkAnswer(FSA<S> answer)
     {
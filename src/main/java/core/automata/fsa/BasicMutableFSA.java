@@ -7,6 +7,8 @@ import api.automata.MutableState;
 import api.automata.fsa.FSA;
 import api.automata.fsa.LanguageSubsetChecker;
 import api.automata.fsa.MutableFSA;
+import common.metrics.Probes;
+import common.util.StateBudget;
 import core.automata.AbstractMutableAutomaton;
 import core.automata.MapSetState;
 
@@ -39,10 +41,14 @@ public class BasicMutableFSA<S> extends AbstractMutableFSA<S> implements Mutable
     public <T, R> Automaton<R> product(Automaton<T> target, Alphabet<R> alphabet, StepMaker<S, T, R> stepMaker,
         Finalizer<S, T, R> finalizer)
     {
-        final var capacity = states().size() * target.states().size(); // upper bound
+        final var startTime = System.nanoTime();
+        final var capacity = StateBudget.cappedStateCapacity((long) states().size() * target.states().size());
         final MutableAutomaton<R> result = new BasicMutableFSA<>(alphabet, capacity);
+        final var product = new ProductHandler<>(target, result, capacity).makeProduct(stepMaker).settle(finalizer);
+        Probes.automatonOperation(Probes.PRODUCT, startTime, (long) states().size() * target.states().size(),
+                                  product.states().size());
 
-        return new ProductHandler<>(target, result, capacity).makeProduct(stepMaker).settle(finalizer);
+        return product;
     }
 
     @Override
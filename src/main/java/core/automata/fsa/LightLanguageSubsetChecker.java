@@ -3,6 +3,7 @@ package core.automata.fsa;
 import api.automata.State;
 import api.automata.fsa.FSA;
 import api.automata.fsa.LanguageSubsetChecker;
+import common.util.CancellationToken;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.map.MutableMap;
@@ -98,6 +99,7 @@ public class LightLanguageSubsetChecker implements LanguageSubsetChecker
             State<S> dept1, dept2, dest2;
             boolean includerAccepts;
             while ((currStatePair = pendingChecks.poll()) != null) {
+                CancellationToken.checkpoint();
                 dept1 = currStatePair.getOne();
                 dept2 = currStatePair.getTwo();
                 if (dept2.enabledSymbols().contains(epsilon)) {
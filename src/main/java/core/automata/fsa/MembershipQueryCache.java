@@ -0,0 +1,140 @@
+package core.automata.fsa;
+
+import common.metrics.Metrics;
+import common.util.CancellationToken;
+import common.util.StateBudget;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+
+import java.util.stream.IntStream;
+
+import static api.automata.fsa.LStarLearning.Teacher;
+import static core.Parameters.LSTAR_PARALLEL_QUERY_THRESHOLD;
+
+/**
+ * The membership queries of a learner, each asked to the teacher once, with
+ * the answers kept in a trie keyed by the symbols of the words, so the many
+ * queries sharing their prefixes (as the ones of a sift do) share their
+ * nodes too.
+ * <p>
+ * Not thread-safe itself; only the teacher is called from several threads,
+ * when it allows, by {@link #queryAll}.
+ */
+class MembershipQueryCache<S>
+{
+    private static final String CACHE_NAME = "membership-query";
+    private static final byte UNKNOWN = 0;
+    private static final byte REJECTED = 1;
+    private static final byte ACCEPTED = 2;
+
+    private final Teacher<S> teacher;
+    private final Node root = new Node();
+
+    MembershipQueryCache(Teacher<S> teacher)
+    {
+        this.teacher = teacher;
+    }
+
+    private class Node
+    {
+        private MutableMap<S, Node> children;
+        private byte answer = UNKNOWN;
+    }
+
+    private Node find(ListIterable<S> word)
+    {
+        var node = root;
+        for (var i = 0; i < word.size() && node != null; i++) {
+            node = node.children == null ? null : node.children.get(word.get(i));
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the answer to the given word, {@code null} if not answered yet.
+     */
+    private Boolean get(ListIterable<S> word)
+    {
+        final var node = find(word);
+
+        return node == null || node.answer == UNKNOWN ? null : node.answer == ACCEPTED;
+    }
+
+    private void put(ListIterable<S> word, boolean accepted)
+    {
+        var node = root;
+        for (var i = 0; i < word.size(); i++) {
+            if (node.children == null) {
+                node.children = UnifiedMap.newMap(2);
+            }
+            node = node.children.getIfAbsentPut(word.get(i), Node::new);
+        }
+        node.answer = accepted ? ACCEPTED : REJECTED;
+    }
+
+    /**
+     * Returns whether the target accepts the given word, which may be changed
+     * afterwards as it is not kept.
+     */
+    boolean query(ListIterable<S> word)
+    {
+        final var answer = get(word);
+        Metrics.countCacheLookup(CACHE_NAME, answer != null);
+        if (answer != null) {
+            return answer;
+        }
+
+        final var result = teacher.targetAccepts(word);
+        put(word, result);
+
+        return result;
+    }
+
+    /**
+     * Answers all the given queries, the new ones in parallel if there are
+     * enough of them and the teacher allows, each worker bound to the
+     * cancellation token and the state budget of the calling thread.
+     */
+    boolean[] queryAll(ListIterable<? extends ListIterable<S>> words)
+    {
+        final MutableList<ListIterable<S>> newWords = FastList.newList();
+        final var newWordSet = Sets.mutable.<ListIterable<S>>empty();
+        for (var word : words) {
+            if (get(word) == null && newWordSet.add(word)) {
+                newWords.add(word);
+            }
+        }
+        Metrics.countCacheLookups(CACHE_NAME, words.size() - newWords.size(), newWords.size());
+
+        final var newAnswers = new boolean[newWords.size()];
+        if (teacher.isThreadSafe() && newWords.size() >= LSTAR_PARALLEL_QUERY_THRESHOLD) {
+            final var cancellation = CancellationToken.current();
+            final var stateBudget = StateBudget.current();
+            IntStream.range(0, newWords.size()).parallel().forEach(i -> {
+                try (var binding = cancellation.bindToCurrentThread();
+                     var budgetBinding = stateBudget.bindToCurrentThread()) {
+                    newAnswers[i] = teacher.targetAccepts(newWords.get(i));
+                }
+            });
+        } else {
+            for (var i = 0; i < newWords.size(); i++) {
+                newAnswers[i] = teacher.targetAccepts(newWords.get(i));
+            }
+        }
+        for (var i = 0; i < newWords.size(); i++) {
+            put(newWords.get(i), newAnswers[i]);
+        }
+
+        final var result = new boolean[words.size()];
+        for (var i = 0; i < result.length; i++) {
+            result[i] = get(words.get(i));
+        }
+
+        return result;
+    }
+}
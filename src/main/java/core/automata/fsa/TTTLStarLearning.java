@@ -0,0 +1,316 @@
+package core.automata.fsa;
+
+import api.automata.Alphabet;
+import api.automata.MutableState;
+import api.automata.fsa.FSA;
+import api.automata.fsa.FSAs;
+import api.automata.fsa.LStarLearning;
+import common.util.CancellationToken;
+import common.util.InterruptException;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableBooleanList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.list.mutable.primitive.BooleanArrayList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+
+/**
+ * The learning by a discrimination tree in the way of TTT: a counterexample
+ * is decomposed by a binary search (as by Rivest and Schapire) into the one
+ * state it splits, with a logarithmic number of membership queries, and the
+ * suffix found to tell the two states apart is replaced, when there is a
+ * shorter one, by a symbol followed by a discriminator already in the tree.
+ * Only the transitions into the split state are sifted again, from the new
+ * inner node.
+ * <p>
+ * Keeping the discriminators short keeps the queries short, which matters to
+ * the teachers answering a query by a computation on the length of the word.
+ */
+public class TTTLStarLearning implements LStarLearning
+{
+    @Override
+    public <S> FSA<S> learn(Alphabet<S> alphabet, Teacher<S> teacher) throws InterruptException
+    {
+        return new Learner<>(alphabet, teacher).learn();
+    }
+
+    private class Learner<S>
+    {
+        private final Alphabet<S> alphabet;
+        private final SetIterable<S> symbols;
+        private final Teacher<S> teacher;
+        private final MembershipQueryCache<S> answeredQueries;
+        private final MutableList<ListIterable<S>> accessWords;
+        private final MutableBooleanList acceptances;
+        private final MutableList<MutableMap<S, DTNode>> successorLeaves;
+        private final DTNode root;
+
+        private Learner(Alphabet<S> alphabet, Teacher<S> teacher)
+        {
+            this.alphabet = alphabet;
+            this.teacher = teacher;
+            symbols = alphabet.noEpsilonSet();
+            answeredQueries = new MembershipQueryCache<>(teacher);
+            accessWords = FastList.newList();
+            acceptances = new BooleanArrayList();
+            successorLeaves = FastList.newList();
+            root = new DTNode(null, 0);
+        }
+
+        private FSA<S> learn() throws InterruptException
+        {
+            root.state = addState(Lists.immutable.empty());
+            final MutableMap<S, DTNode> rootSuccessors = UnifiedMap.newMap(symbols.size());
+            symbols.forEach(symbol -> rootSuccessors.put(symbol, root));
+            successorLeaves.add(rootSuccessors);
+
+            var hypothesis = hypothesis();
+            var check = teacher.checkAnswer(hypothesis);
+            while (check.rejected()) {
+                CancellationToken.checkpoint();
+                final var hasPositiveCounterexample = check.positiveCounterexample() != null;
+                final var counterexample = (hasPositiveCounterexample
+                                            ? check.positiveCounterexample()
+                                            : check.negativeCounterexample()).select(alphabet::notEpsilon);
+                refine(counterexample, hasPositiveCounterexample);
+
+                hypothesis = hypothesis();
+                if (hasPositiveCounterexample == hypothesis.accepts(counterexample)) {
+                    check = teacher.checkAnswer(hypothesis);
+                }
+            }
+
+            return hypothesis;
+        }
+
+        private int addState(ListIterable<S> accessWord)
+        {
+            accessWords.add(accessWord);
+            acceptances.add(answeredQueries.query(accessWord));
+
+            return accessWords.size() - 1;
+        }
+
+        private ListIterable<S> concat(ListIterable<S> prefix, ListIterable<S> word, int from)
+        {
+            final MutableList<S> result = FastList.newList(prefix.size() + word.size() - from);
+            result.addAllIterable(prefix);
+            for (var i = from; i < word.size(); i++) {
+                result.add(word.get(i));
+            }
+
+            return result;
+        }
+
+        private ListIterable<S> append(ListIterable<S> prefix, S symbol)
+        {
+            final MutableList<S> result = FastList.newList(prefix.size() + 1);
+            result.addAllIterable(prefix);
+            result.add(symbol);
+
+            return result;
+        }
+
+        /**
+         * Finds by a binary search the position where the run of the
+         * hypothesis on the counterexample goes wrong, which is where the
+         * answer to the access word of the state reached followed by the rest
+         * of the counterexample changes, and splits the state there.
+         */
+        private void refine(ListIterable<S> counterexample, boolean targetAccepts)
+        {
+            final var length = counterexample.size();
+            final var run = new int[length + 1];
+            for (var i = 0; i < length; i++) {
+                run[i + 1] = successorLeaves.get(run[i]).get(counterexample.get(i)).state;
+            }
+            if (acceptances.get(run[length]) == targetAccepts) {
+                throw new IllegalStateException("not a counterexample of the hypothesis: " + counterexample);
+            }
+
+            var low = 0; // where the answer is the one of the target
+            var high = length; // where the answer is the one of the hypothesis
+            while (high - low > 1) {
+                final var middle = (low + high) >>> 1;
+                if (answeredQueries.query(concat(accessWords.get(run[middle]), counterexample, middle))
+                    == targetAccepts) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+
+            split(run[low], counterexample.get(low), concat(Lists.immutable.empty(), counterexample, low + 1));
+        }
+
+        /**
+         * Adds the state reached by the given transition as a new one, split
+         * from the state the transition goes to in the hypothesis by the given
+         * discriminator, or by a shorter one if found.
+         */
+        private void split(int source, S symbol, ListIterable<S> discriminator)
+        {
+            final var splitLeaf = successorLeaves.get(source).get(symbol);
+            final var oldState = splitLeaf.state;
+            final var newAccessWord = append(accessWords.get(source), symbol);
+
+            // sift the successors of the new state on the tree not split yet
+            final MutableList<ListIterable<S>> successorWords = FastList.newList(symbols.size());
+            symbols.forEach(each -> successorWords.add(append(newAccessWord, each)));
+            final var newSuccessors = siftAll(root, successorWords);
+
+            // look for a symbol whose successors are already told apart
+            var shortestDiscriminator = discriminator;
+            var i = 0;
+            for (var each : symbols) {
+                final var oldSuccessor = successorLeaves.get(oldState).get(each);
+                final var newSuccessor = newSuccessors.get(i++);
+                if (oldSuccessor != newSuccessor) {
+                    final var separator = lowestCommonAncestor(oldSuccessor, newSuccessor).discriminator;
+                    if (separator.size() + 1 < shortestDiscriminator.size()) {
+                        shortestDiscriminator = concat(Lists.immutable.of(each), separator, 0);
+                    }
+                }
+            }
+
+            final var newState = addState(newAccessWord);
+            final var oldLeaf = new DTNode(splitLeaf, splitLeaf.depth + 1);
+            final var newLeaf = new DTNode(splitLeaf, splitLeaf.depth + 1);
+            oldLeaf.state = oldState;
+            newLeaf.state = newState;
+            splitLeaf.state = -1;
+            splitLeaf.discriminator = shortestDiscriminator;
+            if (answeredQueries.query(concat(accessWords.get(oldState), shortestDiscriminator, 0))) {
+                splitLeaf.accepting = oldLeaf;
+                splitLeaf.rejecting = newLeaf;
+            } else {
+                splitLeaf.accepting = newLeaf;
+                splitLeaf.rejecting = oldLeaf;
+            }
+
+            final MutableMap<S, DTNode> newStateSuccessors = UnifiedMap.newMap(symbols.size());
+            i = 0;
+            for (var each : symbols) {
+                newStateSuccessors.put(each, newSuccessors.get(i++));
+            }
+            successorLeaves.add(newStateSuccessors);
+
+            // sift the transitions into the split state again, from its node
+            final var sources = new IntArrayList();
+            final MutableList<S> sourceSymbols = FastList.newList();
+            final MutableList<ListIterable<S>> words = FastList.newList();
+            for (var state = 0; state < successorLeaves.size(); state++) {
+                for (var each : symbols) {
+                    if (successorLeaves.get(state).get(each) == splitLeaf) {
+                        sources.add(state);
+                        sourceSymbols.add(each);
+                        words.add(append(accessWords.get(state), each));
+                    }
+                }
+            }
+            final var sifted = siftAll(splitLeaf, words);
+            for (var j = 0; j < sifted.size(); j++) {
+                successorLeaves.get(sources.get(j)).put(sourceSymbols.get(j), sifted.get(j));
+            }
+        }
+
+        private DTNode lowestCommonAncestor(DTNode node1, DTNode node2)
+        {
+            var ancestor1 = node1;
+            var ancestor2 = node2;
+            while (ancestor1.depth > ancestor2.depth) {
+                ancestor1 = ancestor1.parent;
+            }
+            while (ancestor2.depth > ancestor1.depth) {
+                ancestor2 = ancestor2.parent;
+            }
+            while (ancestor1 != ancestor2) {
+                ancestor1 = ancestor1.parent;
+                ancestor2 = ancestor2.parent;
+            }
+
+            return ancestor1;
+        }
+
+        /**
+         * Sifts all the given words down the discrimination tree together from
+         * the given node, one level at a time, with the queries of each level
+         * made in a batch.
+         */
+        private ListIterable<DTNode> siftAll(DTNode from, ListIterable<ListIterable<S>> words)
+        {
+            final MutableList<DTNode> result = FastList.newList(words.size());
+            for (var i = 0; i < words.size(); i++) {
+                result.add(from);
+            }
+
+            while (true) {
+                final MutableList<ListIterable<S>> queries = FastList.newList();
+                final var querying = new IntArrayList();
+                for (var i = 0; i < words.size(); i++) {
+                    final var node = result.get(i);
+                    if (node.discriminator != null) {
+                        queries.add(concat(words.get(i), node.discriminator, 0));
+                        querying.add(i);
+                    }
+                }
+                if (queries.isEmpty()) {
+                    return result;
+                }
+
+                CancellationToken.checkpoint();
+                final var answers = answeredQueries.queryAll(queries);
+                for (var j = 0; j < answers.length; j++) {
+                    final var i = querying.get(j);
+                    final var node = result.get(i);
+                    result.set(i, answers[j] ? node.accepting : node.rejecting);
+                }
+            }
+        }
+
+        private FSA<S> hypothesis()
+        {
+            final var stateNumber = accessWords.size();
+            final var result = FSAs.create(alphabet, stateNumber);
+            final MutableList<MutableState<S>> states = FastList.newList(stateNumber);
+            states.add(result.startState());
+            for (var i = 1; i < stateNumber; i++) {
+                states.add(result.newState());
+            }
+            for (var i = 0; i < stateNumber; i++) {
+                final var state = states.get(i);
+                if (acceptances.get(i)) {
+                    result.setAsAccept(state);
+                }
+                successorLeaves.get(i).forEachKeyValue(
+                    (symbol, leaf) -> result.addTransition(state, states.get(leaf.state), symbol));
+            }
+
+            return result;
+        }
+
+        /**
+         * A node of the discrimination tree, either inner with a discriminator
+         * and two children, or a leaf with a state of the hypothesis.
+         */
+        private class DTNode
+        {
+            private final DTNode parent;
+            private final int depth;
+            private ListIterable<S> discriminator;
+            private DTNode rejecting;
+            private DTNode accepting;
+            private int state = -1;
+
+            private DTNode(DTNode parent, int depth)
+            {
+                this.parent = parent;
+                this.depth = depth;
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import api.automata.Automaton;
 import api.automata.MutableAutomaton;
 import api.automata.MutableState;
 import api.automata.fst.MutableFST;
+import common.metrics.Probes;
+import common.util.StateBudget;
 import core.automata.AbstractMutableAutomaton;
 import core.automata.MapSetState;
 import core.automata.fsa.BasicMutableFSA;
@@ -31,16 +33,21 @@ public class BasicMutableFST<S, T> extends AbstractMutableFST<S, T> implements M
     public <U, R> Automaton<R> product(Automaton<U> target, Alphabet<R> alphabet, StepMaker<Pair<S, T>, U, R> stepMaker,
         Finalizer<Pair<S, T>, U, R> finalizer)
     {
-        final var capacityComputed = states().size() * target.states().size(); // upper bound
-        final var capacity = capacityComputed < 0 ? Integer.MAX_VALUE : capacityComputed;
+        final var startTime = System.nanoTime();
+        final var capacity = StateBudget.cappedStateCapacity((long) states().size() * target.states().size());
+        final Automaton<R> product;
         if (alphabet.epsilon() instanceof Pair<?, ?>) {
             @SuppressWarnings("unchecked")
             final MutableAutomaton<R> result = new BasicMutableFST(alphabet, capacity);
-            return (new ProductHandler<>(target, result, capacity)).makeProduct(stepMaker).settle(finalizer);
+            product = (new ProductHandler<>(target, result, capacity)).makeProduct(stepMaker).settle(finalizer);
         } else {
             final MutableAutomaton<R> result = new BasicMutableFSA<>(alphabet, capacity);
-            return (new ProductHandler<>(target, result, capacity)).makeProduct(stepMaker).settle(finalizer);
+            product = (new ProductHandler<>(target, result, capacity)).makeProduct(stepMaker).settle(finalizer);
         }
+        Probes.automatonOperation(Probes.PRODUCT, startTime, (long) states().size() * target.states().size(),
+                                  product.states().size());
+
+        return product;
     }
 
     @Override
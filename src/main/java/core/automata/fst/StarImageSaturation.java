@@ -0,0 +1,112 @@
+package core.automata.fst;
+
+import api.automata.fsa.FSA;
+import api.automata.fsa.VATA;
+import api.automata.fst.FST;
+import common.util.CancellationToken;
+import common.util.StateBudget;
+
+import static api.util.Connectives.AcceptStates;
+import static api.util.Connectives.Labels;
+import static api.util.Connectives.OR;
+
+/**
+ * The saturation of the image of an automaton under the repeated application
+ * of a length-preserving transducer, toward its post* (or pre*, given the
+ * inverse transducer), without ever composing the transducer with itself.
+ * <p>
+ * Each step applies the transducer only to the frontier, the configurations
+ * found in the step before, and keeps the ones not reached yet, taken as one
+ * product against the reached ones.  The reached ones are kept in a complete
+ * minimal DFA, extended by a union product with the new frontier.  The
+ * frontier may be reduced by simulation before its determinization, which
+ * pays off when the transducer is very nondeterministic.
+ * <p>
+ * The saturation can be run a number of steps at a time, so an under
+ * approximation can be extended on demand, and it tells when it has
+ * converged, where the image is the exact one.
+ */
+public final class StarImageSaturation<S>
+{
+    private final FST<S, S> step;
+    private final boolean reducingFrontier;
+    private FSA<S> image;
+    private FSA<S> frontier;
+    private int steps;
+    private boolean converged;
+
+    public StarImageSaturation(FST<S, S> step, FSA<S> initial, boolean reducingFrontier)
+    {
+        if (!step.isSameSpaceMapping()) {
+            throw new UnsupportedOperationException("only available on same space mapping instances");
+        }
+        if (step.hasEpsilonTransitions()) {
+            throw new UnsupportedOperationException("only available on transducers without epsilon transitions");
+        }
+
+        this.step = step;
+        this.reducingFrontier = reducingFrontier;
+        image = initial.determinize().minimize().complete();
+        frontier = image;
+    }
+
+    /**
+     * Applies the transducer the given number of steps more, or fewer if the
+     * image converges before.
+     */
+    public StarImageSaturation<S> saturate(int maxSteps)
+    {
+        final var alphabet = image.alphabet();
+        for (var i = 0; i < maxSteps && !converged; i++) {
+            CancellationToken.checkpoint();
+            steps++;
+            final var postImage = step.postImage(frontier);
+            final var reachedSoFar = image;
+            final var newlyReached = (FSA<S>) postImage.product(reachedSoFar, alphabet, Labels.matched(),
+                AcceptStates.select(postImage, reachedSoFar, (inPost, inReached) -> inPost && !inReached));
+            if (newlyReached.acceptsNone()) {
+                converged = true;
+                break;
+            }
+            final var frontierFound = reducingFrontier ? VATA.reduce(newlyReached) : newlyReached;
+            frontier = frontierFound.determinize().minimize().complete();
+            final var union = (FSA<S>) reachedSoFar.product(frontier, alphabet, Labels.matched(),
+                AcceptStates.select(reachedSoFar, frontier, OR));
+            image = union.minimize().complete();
+            StateBudget.checkStates("saturation", image.states().size());
+        }
+
+        return this;
+    }
+
+    /**
+     * Applies the transducer until the image converges.
+     */
+    public StarImageSaturation<S> saturate()
+    {
+        return saturate(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the configurations reached in the steps taken so far, as a
+     * complete minimal DFA.
+     */
+    public FSA<S> image()
+    {
+        return image;
+    }
+
+    /**
+     * Returns the number of the steps taken, counting the one finding
+     * nothing new on convergence.
+     */
+    public int steps()
+    {
+        return steps;
+    }
+
+    public boolean hasConverged()
+    {
+        return converged;
+    }
+}
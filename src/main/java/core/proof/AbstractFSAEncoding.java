@@ -0,0 +1,427 @@
+package core.proof;
+
+import api.automata.Alphabet;
+import api.automata.AlphabetIntEncoder;
+import api.automata.MutableState;
+import api.automata.State;
+import api.automata.fsa.FSA;
+import api.automata.fsa.FSAs;
+import api.automata.fsa.MutableFSA;
+import api.proof.FSAEncoding;
+import common.sat.SatSolver;
+import common.sat.SatSolver.ClauseBuilder;
+import common.util.Assert;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+/**
+ * The common part of the {@link FSAEncoding} implementations that encode
+ * the accept states in one-hot style.  How the transitions and the runs over
+ * the words are encoded is left to the subclasses.
+ *
+ * @param <S> the symbol type of the encoded automata
+ */
+public abstract class AbstractFSAEncoding<S> implements FSAEncoding<S>
+{
+    static final int START_STATE_INDEX = 0;
+    static final int EPSILON_SYMBOL_INDEX = AlphabetIntEncoder.INT_EPSILON;
+
+    final SatSolver solver;
+    final int stateNumber;
+    final AlphabetIntEncoder<S> intAlphabet;
+    ImmutableIntList acceptStateIndicators;
+
+    AbstractFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet)
+    {
+        Assert.argumentNotNull(solver, intAlphabet);
+
+        this.solver = solver;
+        this.stateNumber = stateNumber;
+        this.intAlphabet = intAlphabet;
+    }
+
+    /**
+     * Creates a copy of the given encoding which was recorded as a
+     * {@link common.sat.CnfTemplate}, and whose template has been loaded into
+     * the given solver under the given variable offset.
+     */
+    AbstractFSAEncoding(AbstractFSAEncoding<?> prototype, SatSolver solver, AlphabetIntEncoder<S> intAlphabet,
+        int offset)
+    {
+        this(solver, prototype.stateNumber, intAlphabet);
+
+        if (intAlphabet.size() != prototype.intAlphabet.size()) {
+            throw new IllegalArgumentException("alphabet size differs from the one of the prototype");
+        }
+        acceptStateIndicators = shift(prototype.acceptStateIndicators, offset);
+    }
+
+    static ImmutableIntList shift(ImmutableIntList variables, int offset)
+    {
+        final var shifted = variables.toArray();
+        for (var i = 0; i < shifted.length; i++) {
+            shifted[i] += offset;
+        }
+
+        return IntLists.immutable.with(shifted);
+    }
+
+    static ImmutableIntList[] shift(ImmutableIntList[] variables, int offset)
+    {
+        final var shifted = new ImmutableIntList[variables.length];
+        for (var i = 0; i < variables.length; i++) {
+            shifted[i] = shift(variables[i], offset);
+        }
+
+        return shifted;
+    }
+
+    /**
+     * Returns a copy of this encoding working on the given solver, into which
+     * the template recorded from this encoding has been loaded under the
+     * given variable offset.
+     */
+    abstract <T> AbstractFSAEncoding<T> copyOnto(SatSolver solver, AlphabetIntEncoder<T> intAlphabet, int offset);
+
+    /**
+     * Returns a literal which holds exactly when the encoded automaton has a
+     * transition from {@code dept} to {@code dest} on {@code symbol}.  Some
+     * encodings need to introduce a new variable for it on each call.
+     */
+    abstract int arcIndicator(int dept, int symbol, int dest);
+
+    /**
+     * Forces the states to be numbered in the order they are discovered by
+     * a breadth-first search from the start state, visiting the symbols in
+     * their encoded order.  Only one numbering of each automaton is left, so
+     * it replaces the structural ordering heuristics.  Every non-start state
+     * is given a parent with a smaller number, which also makes all of them
+     * reachable.
+     */
+    void applyBreadthFirstNumbering()
+    {
+        final var symbolNumber = intAlphabet.size();
+        final var arcIndicators = new int[stateNumber][stateNumber][symbolNumber];
+        final var anyArcIndicators = new int[stateNumber][stateNumber];
+        for (var dest = 1; dest < stateNumber; dest++) {
+            for (var dept = 0; dept < dest; dept++) {
+                final var anyArc = solver.newFreeVariable();
+                anyArcIndicators[dept][dest] = anyArc;
+                final var someArc = new int[symbolNumber];
+                someArc[0] = -anyArc;
+                for (var symbol = 1; symbol < symbolNumber; symbol++) {
+                    final var arc = arcIndicator(dept, symbol, dest);
+                    arcIndicators[dept][dest][symbol] = arc;
+                    solver.addImplication(arc, anyArc);
+                    someArc[symbol] = arc;
+                }
+                solver.addClause(someArc); // anyArc --> some arc
+            }
+        }
+
+        // parentIs[j][i] <--> i is the smallest state having an arc to j
+        final var parentIs = new int[stateNumber][stateNumber];
+        for (var child = 1; child < stateNumber; child++) {
+            final var someParent = new int[child];
+            for (var parent = 0; parent < child; parent++) {
+                final var beParent = solver.newFreeVariable();
+                parentIs[child][parent] = beParent;
+                someParent[parent] = beParent;
+                final var anyArc = anyArcIndicators[parent][child];
+                solver.addImplication(beParent, anyArc);
+                final var noSmallerOne = new int[parent + 2];
+                for (var smaller = 0; smaller < parent; smaller++) {
+                    final var smallerArc = anyArcIndicators[smaller][child];
+                    solver.addImplication(beParent, -smallerArc);
+                    noSmallerOne[smaller] = smallerArc;
+                }
+                noSmallerOne[parent] = -anyArc;
+                noSmallerOne[parent + 1] = beParent;
+                solver.addClause(noSmallerOne);
+            }
+            solver.addClause(someParent);
+        }
+
+        // minSymbolIs[i][j][s] <--> s is the smallest symbol on the arcs from i to j
+        final var minSymbolIs = new int[stateNumber][stateNumber][symbolNumber];
+        for (var dest = 1; dest < stateNumber; dest++) {
+            for (var dept = 0; dept < dest; dept++) {
+                for (var symbol = 1; symbol < symbolNumber; symbol++) {
+                    final var beMinSymbol = solver.newFreeVariable();
+                    minSymbolIs[dept][dest][symbol] = beMinSymbol;
+                    final var arc = arcIndicators[dept][dest][symbol];
+                    solver.addImplication(beMinSymbol, arc);
+                    final var noSmallerOne = new int[symbol + 1];
+                    for (var smaller = 1; smaller < symbol; smaller++) {
+                        final var smallerArc = arcIndicators[dept][dest][smaller];
+                        solver.addImplication(beMinSymbol, -smallerArc);
+                        noSmallerOne[smaller - 1] = smallerArc;
+                    }
+                    noSmallerOne[symbol - 1] = -arc;
+                    noSmallerOne[symbol] = beMinSymbol;
+                    solver.addClause(noSmallerOne);
+                }
+            }
+        }
+
+        // the parents are taken in order, and so are the symbols under the same parent
+        for (var child = 1; child < stateNumber - 1; child++) {
+            final var nextChild = child + 1;
+            for (var parent = 0; parent < child; parent++) {
+                final var beParent = parentIs[child][parent];
+                for (var smaller = 0; smaller < parent; smaller++) {
+                    solver.addClause(-beParent, -parentIs[nextChild][smaller]);
+                }
+                final var beParentOfNext = parentIs[nextChild][parent];
+                for (var symbol = 2; symbol < symbolNumber; symbol++) {
+                    for (var smaller = 1; smaller < symbol; smaller++) {
+                        solver.addClause(-beParent, -beParentOfNext, -minSymbolIs[parent][child][symbol],
+                                         -minSymbolIs[parent][nextChild][smaller]);
+                    }
+                }
+            }
+        }
+    }
+
+    void prepareAcceptStateIndicators()
+    {
+        acceptStateIndicators = solver.newFreeVariables(stateNumber);
+        solver.addClause(acceptStateIndicators); // at least one accept state
+    }
+
+    int[] encodeWord(ListIterable<S> definition)
+    {
+        final var epsilon = intAlphabet.originEpsilon();
+        final var givenWord = definition.select(symbol -> symbol != epsilon);
+        final var word = new int[givenWord.size()];
+        givenWord.forEachWithIndex((symbol, pos) -> word[pos] = intAlphabet.encode(symbol));
+
+        return word;
+    }
+
+    void prepareFailureIndicators(ImmutableIntList failAtIndicators, ImmutableIntList failedAlreadyIndicators)
+    {
+        failAtIndicators.forEachWithIndex((failAtCurr, i) -> {
+            final var failedAlreadyAtCurr = failedAlreadyIndicators.get(i);
+            final var failedAlreadyAtNext = failedAlreadyIndicators.get(i + 1);
+
+            // failedAlreadyAtNext <--> failAtCurr || failedAlreadyAtCurr
+            solver.addImplication(failAtCurr, failedAlreadyAtNext);
+            solver.addImplication(failedAlreadyAtCurr, failedAlreadyAtNext);
+            solver.addClause(-failedAlreadyAtNext, failedAlreadyAtCurr, failAtCurr);
+        });
+        final var initialStepNeverFailedAlready = -failedAlreadyIndicators.get(0);
+        solver.setLiteralTruthy(initialStepNeverFailedAlready);
+    }
+
+    /**
+     * Makes the encoded automaton accept the given concrete word (already
+     * encoded, with the epsilon symbols removed) if {@code activated} is
+     * valuated true.
+     */
+    abstract void ensureAcceptingIf(int activated, int[] word);
+
+    /**
+     * Makes the encoded automaton accept some word meeting the constraints
+     * carried by the given {@link CertainWord} if {@code activated} is
+     * valuated true.
+     */
+    abstract void ensureAcceptingIf(int activated, CertainWord word);
+
+    /**
+     * Makes the encoded automaton reject the given concrete word (already
+     * encoded, with the epsilon symbols removed) if {@code activated} is
+     * valuated true.
+     */
+    abstract void ensureNotAcceptWordIf(int activated, int[] word);
+
+    @Override
+    public void ensureAccepting(ListIterable<S> word)
+    {
+        final var activated = solver.newFreeVariable();
+        ensureAcceptingIf(activated, encodeWord(word));
+        solver.setLiteralTruthy(activated);
+    }
+
+    @Override
+    public void ensureNoAccepting(ListIterable<S> word)
+    {
+        final var activated = solver.newFreeVariable();
+        ensureNotAcceptWordIf(activated, encodeWord(word));
+        solver.setLiteralTruthy(activated);
+    }
+
+    @Override
+    public void ensureAcceptingIfOnlyIf(int indicator, ListIterable<S> word)
+    {
+        final var encodedWord = encodeWord(word);
+        ensureAcceptingIf(indicator, encodedWord);
+        ensureNotAcceptWordIf(-indicator, encodedWord);
+    }
+
+    @Override
+    public CertainWord ensureAcceptingCertainWordIf(int indicator, int length)
+    {
+        final var certainWord = new CertainWord(length);
+        ensureAcceptingIf(indicator, certainWord);
+
+        return certainWord;
+    }
+
+    /**
+     * Adds to the given clause the negation of how the given variables are
+     * valuated in the current model.
+     */
+    void addModelNegation(ClauseBuilder clause, ImmutableIntList variables)
+    {
+        for (var i = 0; i < variables.size(); i++) {
+            final var variable = variables.get(i);
+            clause.add(solver.isTruthyInModel(variable) ? -variable : variable);
+        }
+    }
+
+    /**
+     * Adds the transitions of the resolved automaton according to the current
+     * model.  The states given are indexed in the same way as the encoding.
+     */
+    abstract void decodeTransitions(MutableFSA<S> result, ListIterable<MutableState<S>> states);
+
+    @Override
+    public FSA<S> resolve()
+    {
+        if (!solver.findItSatisfiable()) {
+            return null;
+        }
+
+        // decode states
+        final var result = FSAs.create(intAlphabet.originAlphabet(), stateNumber);
+        final MutableList<MutableState<S>> states = FastList.newList(stateNumber);
+        states.add(START_STATE_INDEX, result.startState());
+        for (var i = 1; i < stateNumber; i++) {
+            states.add(i, result.newState("s" + i));
+        }
+        acceptStateIndicators.forEachWithIndex((indicator, stateIndex) -> {
+            if (solver.isTruthyInModel(indicator)) {
+                result.setAsAccept(states.get(stateIndex));
+            }
+        });
+
+        // decode transitions
+        decodeTransitions(result, states);
+
+        return result;
+    }
+
+    class CertainWord implements FSAEncoding.CertainWord<S>
+    {
+        final int length;
+        final ImmutableIntList[] characterIndicators;
+
+        CertainWord(int length)
+        {
+            this.length = length;
+            characterIndicators = new ImmutableIntList[length];
+
+            final var symbolNumber = intAlphabet.size();
+            for (var i = 0; i < length; i++) {
+                final var possibleSymbol = solver.newFreeVariables(symbolNumber);
+                final var characterCanBeEpsilon = possibleSymbol.get(EPSILON_SYMBOL_INDEX);
+                solver.setLiteralFalsy(characterCanBeEpsilon);
+                solver.addClause(possibleSymbol);
+                characterIndicators[i] = possibleSymbol;
+            }
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public Alphabet<S> alphabet()
+        {
+            return intAlphabet.originAlphabet();
+        }
+
+        @Override
+        public int getCharacterIndicator(int pos, S symbol)
+        {
+            if (pos >= length) {
+                throw new IndexOutOfBoundsException("non-existing character position");
+            }
+            if (symbol.equals(intAlphabet.originEpsilon())) {
+                throw new IllegalArgumentException("epsilon symbol not allowed");
+            }
+
+            return characterIndicators[pos].get(intAlphabet.encode(symbol));
+        }
+
+        @Override
+        public void setCharacterAt(int pos, S symbol)
+        {
+            if (pos >= length) {
+                throw new IndexOutOfBoundsException("non-existing character position");
+            }
+            if (symbol.equals(intAlphabet.originEpsilon())) {
+                throw new IllegalArgumentException("epsilon symbol not allowed");
+            }
+
+            solver.setLiteralTruthy(characterIndicators[pos].get(intAlphabet.encode(symbol)));
+        }
+
+        @Override
+        public void ensureAcceptedBy(FSA<S> fsa)
+        {
+            final var dfa = fsa.determinize();
+            final var stateNumber = dfa.states().size();
+            final var stateDecoder = dfa.states().toList();
+            final MutableObjectIntMap<State<S>> stateEncoder = new ObjectIntHashMap<>(stateNumber);
+            stateDecoder.forEachWithIndex(stateEncoder::put);
+
+            // define each possible step over the DFA's states with each character of the word
+            final var stepIndicators = new ImmutableIntList[length + 1];
+            for (var pos = 0; pos < length + 1; pos++) {
+                final var possibleStateStepping = solver.newFreeVariables(stateNumber);
+                stepIndicators[pos] = possibleStateStepping;
+                solver.addClause(possibleStateStepping);
+            }
+            final var initialStepBeStartState = stepIndicators[0].get(stateEncoder.get(dfa.startState()));
+            solver.setLiteralTruthy(initialStepBeStartState);
+
+            // make the taken steps represent the word
+            final var symbols = alphabet().asSet();
+            for (var pos = 0; pos < length; pos++) {
+                final var possibleSymbol = characterIndicators[pos];
+                for (var qi = 0; qi < stateNumber; qi++) {
+                    final var takenQiAsCurr = stepIndicators[pos].get(qi);
+                    final var stateQi = stateDecoder.get(qi);
+                    for (var qj = 0; qj < stateNumber; qj++) {
+                        final var takenQjAsNext = stepIndicators[pos + 1].get(qj);
+                        final var stateQj = stateDecoder.get(qj);
+                        final var enabledQiToQjArc = stateQi.enabledSymbolsTo(stateQj);
+                        for (var symbol : symbols) {
+                            if (enabledQiToQjArc.contains(symbol)) { // consider the disabled symbols
+                                continue;
+                            }
+                            final var posBeDisableSymbol = possibleSymbol.get(intAlphabet.encode(symbol));
+                            solver.addClause(-takenQiAsCurr, -takenQjAsNext, -posBeDisableSymbol);
+                        }
+                    }
+                }
+            }
+
+            // make the taken steps form an accepting path
+            final var possibleLastStep = stepIndicators[length];
+            for (var nonAcceptState : dfa.nonAcceptStates()) {
+                final var finalStepBeNonAccept = possibleLastStep.get(stateEncoder.get(nonAcceptState));
+                solver.setLiteralFalsy(finalStepBeNonAccept);
+            }
+        }
+    }
+}
@@ -1,29 +1,40 @@
 package core.proof;
 
 import api.automata.Alphabet;
-import api.automata.Alphabets;
 import api.automata.fsa.FSA;
 import api.automata.fsa.FSAs;
 import api.automata.fsa.LanguageSubsetChecker;
 import api.automata.fsa.MutableFSA;
 import api.automata.fst.FST;
-import api.proof.Problem;
 import api.proof.Prover;
+import common.metrics.Probes;
 import common.sat.Sat4jSolverAdapter;
 import common.sat.SatSolver;
+import common.sat.SatSolver.CardinalityEncoding;
+import common.util.CancellationToken;
+import common.util.CancelledException;
+import common.util.StateBudget;
 import common.util.Stopwatch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.collections.api.block.function.primitive.IntIntToObjectFunction;
+import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.tuple.Pair;
 import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.list.mutable.FastList;
 import org.eclipse.collections.impl.tuple.Tuples;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static core.Parameters.PROVER_CELL_TIME_SLICE_IN_MS;
+import static core.Parameters.PROVER_LIVE_SUSPENDED_CELL_LIMIT;
+
 public abstract class AbstractProver<S> implements Prover
 {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    final DerivedArtifacts<S> artifacts;
     final FSA<S> initialConfigs;
     final FSA<S> finalConfigs;
     final FSA<S> nonfinalConfigs;
@@ -45,24 +56,34 @@ public abstract class AbstractProver<S> implements Prover
     final boolean loosenInvariant;
     final boolean shapeInvariant;
     final boolean shapeOrder;
+    final boolean binaryInvariant;
+    final boolean binaryOrder;
+    final boolean breadthFirstNumbering;
+    private final CardinalityEncoding cardinalityEncoding;
+    private long timeLimitInMs;
+    private Pair<FSA<S>, FST<S, S>> proof;
+    private Outcome outcome;
+    private final AtomicInteger satCallNumber = new AtomicInteger();
+    private final CancellationToken cancellation = new CancellationToken();
+    StateBudget stateBudget = StateBudget.defaultBudget();
 
-    protected final SatSolver solver;
-
-    AbstractProver(Problem<S> problem, boolean shapeInvariant, boolean shapeOrder, boolean loosenInvariant)
+    AbstractProver(DerivedArtifacts<S> artifacts, boolean shapeInvariant, boolean shapeOrder,
+        boolean loosenInvariant, boolean binaryInvariant, boolean binaryOrder, boolean breadthFirstNumbering,
+        CardinalityEncoding cardinalityEncoding)
     {
-        nonfinalConfigs = problem.finalConfigs().determinize().minimize().complement();
+        final var problem = artifacts.problem();
+        this.artifacts = artifacts;
+        nonfinalConfigs = artifacts.nonfinalConfigs();
         scheduler = problem.scheduler();
         process = problem.process();
-        wholeAlphabet = problem.initialConfigs().alphabet(); // relying on current parsing behavior
-        schedulerDomain = ((MutableFSA<S>) scheduler.domain()).setAlphabet(wholeAlphabet).determinize();
-        processRange = ((MutableFSA<S>) process.range()).setAlphabet(wholeAlphabet).determinize().minimize();
+        wholeAlphabet = artifacts.wholeAlphabet();
+        schedulerDomain = artifacts.schedulerDomain();
+        processRange = artifacts.processRange();
         givenInvariant = problem.invariant();
         givenOrder = problem.order();
 
-        final var roundSymbols = process.transitionGraph().referredArcLabels().collect(Pair::getTwo).toSet();
-        roundSymbols.add(wholeAlphabet.epsilon());
-        roundAlphabet = Alphabets.create(roundSymbols, wholeAlphabet.epsilon());
-        orderAlphabet = Alphabets.product(roundAlphabet, roundAlphabet);
+        roundAlphabet = artifacts.roundAlphabet();
+        orderAlphabet = artifacts.orderAlphabet();
         orderReflexiveSymbols = roundAlphabet.asSet().collect(s -> Tuples.pair(s, s)).toSet();
         finalConfigs = ((MutableFSA<S>) problem.finalConfigs()).setAlphabet(roundAlphabet).determinize().minimize();
         initialConfigs = ((MutableFSA<S>) problem.initialConfigs()).setAlphabet(roundAlphabet).determinize().minimize();
@@ -76,8 +97,110 @@ public abstract class AbstractProver<S> implements Prover
         this.loosenInvariant = loosenInvariant;
         this.shapeInvariant = shapeInvariant;
         this.shapeOrder = shapeOrder;
+        this.binaryInvariant = binaryInvariant;
+        this.binaryOrder = binaryOrder;
+        this.breadthFirstNumbering = breadthFirstNumbering;
+        this.cardinalityEncoding = cardinalityEncoding;
+    }
+
+    AbstractProver(DerivedArtifacts<S> artifacts, boolean shapeInvariant, boolean shapeOrder, boolean loosenInvariant)
+    {
+        this(artifacts, shapeInvariant, shapeOrder, loosenInvariant, false, false, false, CardinalityEncoding.NATIVE);
+    }
+
+    @Override
+    public void setTimeLimitInMs(long ms)
+    {
+        if (ms < 0) {
+            throw new IllegalArgumentException("time limit cannot be negative");
+        }
+
+        timeLimitInMs = ms;
+    }
+
+    public enum Outcome
+    {
+        PROVED, COUNTEREXAMPLE_FOUND, NO_PROOF_UNDER_BOUND, TIME_LIMIT_REACHED, CANCELLED, BUDGET_EXCEEDED
+    }
+
+    /**
+     * Sets the most states and transitions each automata operation of the
+     * proof search may build.  A cell exceeding it is abandoned without
+     * deciding anything about the other cells.
+     */
+    public void setStateBudget(StateBudget budget)
+    {
+        stateBudget = budget;
+    }
+
+    /**
+     * Asks the running {@link #prove()} (from any thread) to stop at the next
+     * checkpoint, which it does reporting what it has done so far.  A SAT
+     * call going on is not interrupted but ends with its time slice.
+     */
+    public void cancel()
+    {
+        cancellation.cancel();
+    }
+
+    /**
+     * Binds the cancellation token of the prover to the current thread, with
+     * the deadline set by the time limit from now on.
+     */
+    CancellationToken.Binding bindCancellation()
+    {
+        cancellation.setDeadline(timeLimitInMs > 0 ? Stopwatch.epochTimeInMs() + timeLimitInMs : Long.MAX_VALUE);
+
+        return cancellation.bindToCurrentThread();
+    }
+
+    /**
+     * Returns the outcome to record when a {@link CancelledException} stops
+     * the search.
+     */
+    Outcome outcomeOfCancellation()
+    {
+        return cancellation.hasDeadlinePassed() ? Outcome.TIME_LIMIT_REACHED : Outcome.CANCELLED;
+    }
+
+    /**
+     * Returns how the last {@link #prove()} ended, or null if it has not.
+     */
+    public Outcome outcome()
+    {
+        return outcome;
+    }
+
+    void recordOutcome(Outcome outcome)
+    {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Returns the number of the SAT calls made for the candidates so far.
+     */
+    public int satCallNumber()
+    {
+        return satCallNumber.get();
+    }
 
-        solver = new Sat4jSolverAdapter();
+    void countSatCall()
+    {
+        satCallNumber.incrementAndGet();
+    }
+
+    /**
+     * Returns the invariant and order found by the last {@link #prove()}, or
+     * null if none was found.
+     */
+    public Pair<FSA<S>, FST<S, S>> proof()
+    {
+        return proof;
+    }
+
+    SatSolver newSolver()
+    {
+        return new Sat4jSolverAdapter(cardinalityEncoding);
     }
 
     private LanguageSubsetChecker.Result<S> schedulerOperatesOnAllNonfinals()
@@ -95,38 +218,225 @@ public abstract class AbstractProver<S> implements Prover
 
     LanguageSubsetChecker.Result<S> schedulerOperatesOnAllNonfinalInvariants(FSA<S> invariant)
     {
-        return schedulerDomain.checkContaining(invariant.intersect(nonfinalConfigs));
+        final var startTime = System.nanoTime();
+        final var result = schedulerDomain.checkContaining(invariant.intersect(nonfinalConfigs));
+        Probes.check(Probes.L4_PRECHECK, startTime, result.passed());
+
+        return result;
+    }
+
+    enum CellStatus
+    {
+        PROVED, NO_SOLUTION, SUSPENDED, ABANDONED
+    }
+
+    /**
+     * The search in one (invariant size, order size) cell of the grid.  It
+     * can be run in slices; a suspended cell keeps its solver and picks up
+     * the constraints learned elsewhere in the meantime when run again.
+     * <p>
+     * Only {@link core.Parameters#PROVER_LIVE_SUSPENDED_CELL_LIMIT} suspended
+     * cells are kept; beyond that, the one which has taken the most time is
+     * released and made again when resumed, when it imports everything
+     * learned so far from the start.  So a cell must publish what it learns
+     * rather than keep it in its solver only.
+     */
+    interface GridCell<S>
+    {
+        /**
+         * Carries on the search until it ends or the given epoch time (in ms)
+         * passes.  The checks between two SAT calls are not interrupted, so
+         * the deadline can be overrun by one refinement round.
+         */
+        CellStatus runUntil(long deadline);
+
+        /**
+         * Returns the invariant and order found, once {@link CellStatus#PROVED}
+         * is returned.
+         */
+        Pair<FSA<S>, FST<S, S>> proof();
+    }
+
+    private static final class CellRun<S>
+    {
+        private final int invSize;
+        private final int ordSize;
+        private GridCell<S> cell; // released once decided, or to keep the suspended cells few
+        private CellStatus status = CellStatus.SUSPENDED;
+        private long timeSpent;
+        private int sliceNumber;
+
+        private CellRun(int invSize, int ordSize)
+        {
+            this.invSize = invSize;
+            this.ordSize = ordSize;
+        }
+    }
+
+    /**
+     * Returns the i-th (from 1) element of the Luby sequence 1, 1, 2, 1, 1,
+     * 2, 4, 1, 1, 2, ...
+     */
+    static int luby(int i)
+    {
+        for (var k = 1; ; k++) {
+            final var end = (1 << k) - 1;
+            if (i == end) {
+                return 1 << (k - 1);
+            }
+            if (i < end) {
+                return luby(i - (1 << (k - 1)) + 1);
+            }
+        }
+    }
+
+    private static <S> CellRun<S> nextRun(GridSearchScheduler cells, MutableList<CellRun<S>> runs)
+    {
+        if (cells.hasNext()) {
+            final var cell = cells.next();
+            final var run = new CellRun<S>(cell.getOne(), cell.getTwo());
+            runs.add(run);
+            return run;
+        }
+
+        // revisit the suspended cell which has taken the least time
+        CellRun<S> result = null;
+        for (var run : runs) {
+            if (run.status != CellStatus.SUSPENDED) {
+                continue;
+            }
+            if (cells.skipReasonOf(run.invSize, run.ordSize) != null) {
+                run.cell = null; // decided by another cell
+                continue;
+            }
+            if (result == null || run.timeSpent < result.timeSpent) {
+                result = run;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Releases the cells of the suspended runs which have taken the most
+     * time, until no more than the limit of them are left with a cell.
+     */
+    private static <S> void releaseSuspendedCells(MutableList<CellRun<S>> runs)
+    {
+        final var liveRuns = runs.select(run -> run.status == CellStatus.SUSPENDED && run.cell != null);
+        if (liveRuns.size() <= PROVER_LIVE_SUSPENDED_CELL_LIMIT) {
+            return;
+        }
+
+        liveRuns.sortThisByLong(run -> -run.timeSpent);
+        for (var i = 0; i < liveRuns.size() - PROVER_LIVE_SUSPENDED_CELL_LIMIT; i++) {
+            final var run = liveRuns.get(i);
+            LOGGER.info("Releasing the solver of state spaces {} & {} ..", run.invSize, run.ordSize);
+            run.cell = null; // made again from what has been learned if resumed
+        }
     }
 
-    void search(IntIntToObjectFunction<Pair<FSA<S>, FST<S, S>>> resultSupplier)
+    private static <S> void printTimeSpentPerCell(MutableList<CellRun<S>> runs, GridSearchScheduler cells)
+    {
+        System.out.println("Time spent per state spaces:");
+        for (var run : runs) {
+            final var skipReason = cells.skipReasonOf(run.invSize, run.ordSize);
+            final String status;
+            if (skipReason != null) {
+                status = "skipped, " + skipReason;
+            } else {
+                status = run.status.toString().toLowerCase().replace('_', ' ');
+            }
+            System.out.println("  " + run.invSize + " & " + run.ordSize + ": " + run.timeSpent + "ms in "
+                                   + run.sliceNumber + " slice(s), " + status);
+        }
+        System.out.println("  (" + cells.skippedNumber() + " state spaces skipped in total)");
+    }
+
+    void search(IntIntToObjectFunction<GridCell<S>> cellSupplier)
     {
         LOGGER.info("Scheduler operates on all nonfinals: {}", this::schedulerOperatesOnAllNonfinals);
         LOGGER.info("Scheduler responds to all process nonfinals: {}", this::schedulerRespondsToAllProcesses);
 
-        Pair<FSA<S>, FST<S, S>> result;
-        final var stabilizerBound = invariantSizeEnd * invariantSizeEnd + orderSizeEnd * orderSizeEnd;
+        // an invariant contains the initial configurations, and an order a pair for each nonfinal one of them
+        final var invariantPaddable = !shapeInvariant && initialConfigs.acceptsInfinitelyMany();
+        final var orderPaddable = !shapeOrder && initialConfigs.intersect(nonfinalConfigs).acceptsInfinitelyMany();
+        LOGGER.info("Sizes implied by the larger ones: invariant {}, order {}", invariantPaddable, orderPaddable);
+        final var cells = new GridSearchScheduler(invariantSizeBegin, invariantSizeEnd, orderSizeBegin, orderSizeEnd,
+                                                  invariantPaddable, orderPaddable);
+        final MutableList<CellRun<S>> runs = FastList.newList();
+        proof = null;
+        outcome = null;
         final var startTime = Stopwatch.currentThreadCpuTimeInMs();
-        for (var stabilizer = 1; stabilizer <= stabilizerBound; stabilizer++) {
-            for (var invSize = invariantSizeBegin; invSize <= invariantSizeEnd; invSize++) {
-                for (var ordSize = orderSizeBegin; ordSize <= orderSizeEnd; ordSize++) {
-                    final var stabilizerFactor = invSize * invSize + ordSize * ordSize;
-                    if (stabilizerFactor != stabilizer) {
-                        continue;
-                    }
-                    if ((result = resultSupplier.value(invSize, ordSize)) != null) {
-                        final var endTime = Stopwatch.currentThreadCpuTimeInMs();
-                        final var timeSpent = endTime - startTime;
+        CellRun<S> run = null;
+        var sliceStartTime = 0L;
+        var abandonedNumber = 0;
+        try (var binding = bindCancellation(); var budgetBinding = stateBudget.bindToCurrentThread()) {
+            final var deadline = cancellation.deadline();
+            while ((run = nextRun(cells, runs)) != null) {
+                sliceStartTime = Stopwatch.epochTimeInMs();
+                if (sliceStartTime >= deadline) {
+                    break;
+                }
+                run.sliceNumber++;
+                final var sliceEndTime = sliceStartTime + PROVER_CELL_TIME_SLICE_IN_MS * luby(run.sliceNumber);
+                if (run.cell == null) {
+                    run.cell = cellSupplier.value(run.invSize, run.ordSize);
+                }
+                run.status = run.cell.runUntil(Math.min(deadline, sliceEndTime));
+                run.timeSpent += Stopwatch.epochTimeInMs() - sliceStartTime;
+                switch (run.status) {
+                    case PROVED:
+                        proof = run.cell.proof();
+                        outcome = Outcome.PROVED;
+                        final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
                         System.out.println("A proof found under the search bound in " + timeSpent + "ms.");
                         System.out.println();
-                        System.out.println("A " + result.getOne());
-                        System.out.println("T (>) " + result.getTwo());
+                        System.out.println("A " + proof.getOne());
+                        System.out.println("T (>) " + proof.getTwo());
+                        printTimeSpentPerCell(runs, cells);
                         return;
-                    }
+                    case NO_SOLUTION:
+                        run.cell = null;
+                        cells.recordNoSolution(run.invSize, run.ordSize, run.timeSpent);
+                        break;
+                    case ABANDONED:
+                        LOGGER.info("Abandoning state spaces {} & {} ..", run.invSize, run.ordSize);
+                        run.cell = null;
+                        cells.recordAbandoned(run.invSize, run.ordSize);
+                        abandonedNumber++;
+                        break;
+                    default: // should be 'SUSPENDED'
+                        LOGGER.info("Suspending state spaces {} & {} after {}ms ..", run.invSize, run.ordSize,
+                                    run.timeSpent);
+                        cells.recordSuspended(run.invSize, run.ordSize);
+                        releaseSuspendedCells(runs);
                 }
             }
+        } catch (CancelledException e) {
+            if (run != null) {
+                run.timeSpent += Stopwatch.epochTimeInMs() - sliceStartTime;
+            }
+            outcome = outcomeOfCancellation();
+            final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
+            System.out.println("Proof search stopped (" + e.getMessage() + ").  " + timeSpent + "ms spent.");
+            printTimeSpentPerCell(runs, cells);
+            return;
         }
+        LOGGER.info("State spaces skipped as implied to have no solution: {}", cells::skippedNumber);
         final var endTime = Stopwatch.currentThreadCpuTimeInMs();
         final var timeSpent = endTime - startTime;
-        System.out.println("No proof found under the search bound.  " + timeSpent + "ms spent.");
+        if (run != null) {
+            outcome = Outcome.TIME_LIMIT_REACHED;
+            System.out.println("No proof found within the time limit.  " + timeSpent + "ms spent.");
+        } else if (abandonedNumber > 0) {
+            outcome = Outcome.BUDGET_EXCEEDED;
+            System.out.println("No proof found, with " + abandonedNumber + " state space(s) abandoned on the state "
+                                   + "budget.  " + timeSpent + "ms spent.");
+        } else {
+            outcome = Outcome.NO_PROOF_UNDER_BOUND;
+            System.out.println("No proof found under the search bound.  " + timeSpent + "ms spent.");
+        }
+        printTimeSpentPerCell(runs, cells);
     }
 }
@@ -4,6 +4,7 @@ import api.automata.State;
 import api.automata.fsa.FSA;
 import api.automata.fst.FST;
 import api.proof.AnySchedulerProgressivityChecker;
+import common.util.CancellationToken;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.map.MutableMap;
@@ -215,6 +216,7 @@ public class BasicAnySchedulerProgressivityChecker implements AnySchedulerProgre
             State<S> invDept, invDest;
             State<Pair<S, S>> schedDept, rhsDept, rhsDest;
             while ((currStateTuple = pendingChecks.poll()) != null) {
+                CancellationToken.checkpoint();
                 schedDept = currStateTuple.sched;
                 invDept = currStateTuple.inv;
                 rhsDept = currStateTuple.rhs;
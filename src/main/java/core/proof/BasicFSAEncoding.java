@@ -1,35 +1,17 @@
 package core.proof;
 
-import api.automata.Alphabet;
 import api.automata.AlphabetIntEncoder;
 import api.automata.MutableState;
-import api.automata.State;
-import api.automata.fsa.FSA;
-import api.automata.fsa.FSAs;
-import api.proof.FSAEncoding;
+import api.automata.fsa.MutableFSA;
 import common.sat.SatSolver;
-import common.util.Assert;
 import org.eclipse.collections.api.list.ListIterable;
-import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.list.primitive.ImmutableIntList;
-import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
 import org.eclipse.collections.api.set.SetIterable;
-import org.eclipse.collections.api.set.primitive.MutableIntSet;
-import org.eclipse.collections.impl.list.mutable.FastList;
 import org.eclipse.collections.impl.list.primitive.IntInterval;
-import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
-import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
 
-public class BasicFSAEncoding<S> implements FSAEncoding<S>
+public class BasicFSAEncoding<S> extends AbstractFSAEncoding<S>
 {
-    private static final int START_STATE_INDEX = 0;
-    private static final int EPSILON_SYMBOL_INDEX = AlphabetIntEncoder.INT_EPSILON;
-
-    private final SatSolver solver;
-    private final int stateNumber;
-    private final AlphabetIntEncoder<S> intAlphabet;
     private ImmutableIntList[][] transitionIndicators;
-    private ImmutableIntList acceptStateIndicators;
     private boolean noUnreachableStateEnsured;
     private boolean noDeadEndStateEnsured;
 
@@ -47,12 +29,6 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
         solver.addClause(IntInterval.from(transIndBegin).to(transIndEnd)); // at least one transition overall
     }
 
-    private void prepareAcceptStateIndicators()
-    {
-        acceptStateIndicators = solver.newFreeVariables(stateNumber);
-        solver.addClause(acceptStateIndicators); // at least one accept state
-    }
-
     private void ensureDeterminism()
     {
         for (var dept = 0; dept < stateNumber; dept++) {
@@ -65,6 +41,12 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
         }
     }
 
+    @Override
+    int arcIndicator(int dept, int symbol, int dest)
+    {
+        return transitionIndicators[dept][symbol].get(dest);
+    }
+
     private void applySymmetryBreakingHeuristics()
     {
         final var symbolNumber = intAlphabet.size();
@@ -98,29 +80,53 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
     }
 
     public BasicFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet,
-        boolean restrictsShape)
+        boolean restrictsShape, boolean numbersBreadthFirst)
     {
-        Assert.argumentNotNull(solver, intAlphabet);
-
-        this.solver = solver;
-        this.stateNumber = stateNumber;
-        this.intAlphabet = intAlphabet;
+        super(solver, stateNumber, intAlphabet);
 
         prepareTransitionIndicators();
         prepareAcceptStateIndicators();
         ensureDeterminism();
         if (restrictsShape) {
             applyLinearShapeRestriction();
+        } else if (numbersBreadthFirst) {
+            applyBreadthFirstNumbering();
+            noUnreachableStateEnsured = true; // every state has a parent
         } else {
             applySymmetryBreakingHeuristics();
         }
     }
 
+    public BasicFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet,
+        boolean restrictsShape)
+    {
+        this(solver, stateNumber, intAlphabet, restrictsShape, false);
+    }
+
     public BasicFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet)
     {
         this(solver, stateNumber, intAlphabet, false);
     }
 
+    private BasicFSAEncoding(BasicFSAEncoding<?> prototype, SatSolver solver, AlphabetIntEncoder<S> intAlphabet,
+        int offset)
+    {
+        super(prototype, solver, intAlphabet, offset);
+
+        transitionIndicators = new ImmutableIntList[stateNumber][];
+        for (var state = 0; state < stateNumber; state++) {
+            transitionIndicators[state] = shift(prototype.transitionIndicators[state], offset);
+        }
+        noUnreachableStateEnsured = prototype.noUnreachableStateEnsured;
+        noDeadEndStateEnsured = prototype.noDeadEndStateEnsured;
+    }
+
+    @Override
+    <T> BasicFSAEncoding<T> copyOnto(SatSolver solver, AlphabetIntEncoder<T> intAlphabet, int offset)
+    {
+        return new BasicFSAEncoding<>(this, solver, intAlphabet, offset);
+    }
+
     private ImmutableIntList[] prepareDistanceIndicators()
     {
         final var distanceIndicators = new ImmutableIntList[stateNumber];
@@ -202,29 +208,61 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
         noDeadEndStateEnsured = true;
     }
 
-    private CertainWord makeWord(ListIterable<S> definition)
+    private ImmutableIntList[] prepareStepIndicators(int wordLength)
     {
-        final var epsilon = intAlphabet.originEpsilon();
-        final var givenWord = definition.select(symbol -> symbol != epsilon);
-        final var word = new CertainWord(givenWord.size());
-        givenWord.forEachWithIndex((symbol, pos) -> word.setCharacterAt(pos, symbol));
+        final var stepIndicators = new ImmutableIntList[wordLength + 1];
+        for (var readHead = 0; readHead < wordLength + 1; readHead++) {
+            stepIndicators[readHead] = solver.newFreeVariables(stateNumber);
+        }
+        final var initialStepBeStartState = stepIndicators[0].get(START_STATE_INDEX);
+        solver.setLiteralTruthy(initialStepBeStartState);
 
-        return word;
+        return stepIndicators;
     }
 
-    private void ensureAcceptingIf(int activated, CertainWord word)
+    @Override
+    void ensureAcceptingIf(int activated, int[] word)
     {
         // define each possible step over states on each input symbol read
-        final var stepIndicators = new ImmutableIntList[word.length + 1];
-        for (var readHead = 0; readHead < word.length + 1; readHead++) {
-            final var possibleStateStepping = solver.newFreeVariables(stateNumber);
-            stepIndicators[readHead] = possibleStateStepping;
-            solver.addClause(possibleStateStepping);
+        final var stepIndicators = prepareStepIndicators(word.length);
+        for (var readHead = 1; readHead < word.length + 1; readHead++) {
+            solver.addClause(stepIndicators[readHead]);
         }
-        final var initialStepBeStartState = stepIndicators[0].get(START_STATE_INDEX);
-        solver.setLiteralTruthy(initialStepBeStartState);
 
-        // make the taken steps represent the given word
+        // make the taken steps represent the given word; the symbols are known, so no symbol guards needed
+        for (var readHead = 0; readHead < word.length; readHead++) {
+            final var symbol = word[readHead];
+            for (var qi = 0; qi < stateNumber; qi++) {
+                final var takenQiAsCurr = stepIndicators[readHead].get(qi);
+                final var transOnSymbol = transitionIndicators[qi][symbol];
+                for (var qj = 0; qj < stateNumber; qj++) {
+                    final var takenQjAsNext = stepIndicators[readHead + 1].get(qj);
+                    final var transBeAvailable = transOnSymbol.get(qj);
+                    solver.newClause().add(-activated).add(-takenQiAsCurr).add(-takenQjAsNext).add(transBeAvailable)
+                          .commit();
+                }
+            }
+        }
+
+        // make the taken steps form an accepting path
+        final var possibleLastStep = stepIndicators[word.length];
+        for (var state = 0; state < stateNumber; state++) {
+            final var ifTakenAsLastStep = possibleLastStep.get(state);
+            final var beAcceptState = acceptStateIndicators.get(state);
+            solver.addImplicationIf(activated, ifTakenAsLastStep, beAcceptState);
+        }
+    }
+
+    @Override
+    void ensureAcceptingIf(int activated, CertainWord word)
+    {
+        // define each possible step over states on each input symbol read
+        final var stepIndicators = prepareStepIndicators(word.length);
+        for (var readHead = 1; readHead < word.length + 1; readHead++) {
+            solver.addClause(stepIndicators[readHead]);
+        }
+
+        // make the taken steps represent the given word; any symbol can be taken at each position
         for (var readHead = 0; readHead < word.length; readHead++) {
             final var possibleSymbol = word.characterIndicators[readHead];
             for (var qi = 0; qi < stateNumber; qi++) {
@@ -234,7 +272,8 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
                     for (var s = 0; s < intAlphabet.size(); s++) {
                         final var sBeSymbol = possibleSymbol.get(s);
                         final var transBeAvailable = transitionIndicators[qi][s].get(qj);
-                        solver.addClauseIf(activated, -takenQiAsCurr, -takenQjAsNext, -sBeSymbol, transBeAvailable);
+                        solver.newClause().add(-activated).add(-takenQiAsCurr).add(-takenQjAsNext).add(-sBeSymbol)
+                              .add(transBeAvailable).commit();
                     }
                 }
             }
@@ -250,29 +289,7 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
     }
 
     @Override
-    public void ensureAccepting(ListIterable<S> word)
-    {
-        final var activated = solver.newFreeVariable();
-        ensureAcceptingIf(activated, makeWord(word));
-        solver.setLiteralTruthy(activated);
-    }
-
-    private void prepareFailureIndicators(ImmutableIntList failAtIndicators, ImmutableIntList failedAlreadyIndicators)
-    {
-        failAtIndicators.forEachWithIndex((failAtCurr, i) -> {
-            final var failedAlreadyAtCurr = failedAlreadyIndicators.get(i);
-            final var failedAlreadyAtNext = failedAlreadyIndicators.get(i + 1);
-
-            // failedAlreadyAtNext <--> failAtCurr || failedAlreadyAtCurr
-            solver.addImplication(failAtCurr, failedAlreadyAtNext);
-            solver.addImplication(failedAlreadyAtCurr, failedAlreadyAtNext);
-            solver.addClause(-failedAlreadyAtNext, failedAlreadyAtCurr, failAtCurr);
-        });
-        final var initialStepNeverFailedAlready = -failedAlreadyIndicators.get(0);
-        solver.setLiteralTruthy(initialStepNeverFailedAlready);
-    }
-
-    private void ensureNotAcceptWordIf(int activated, CertainWord word)
+    void ensureNotAcceptWordIf(int activated, int[] word)
     {
         // prepare the fail bits for each step of the input read
         final var failAtIndicators = solver.newFreeVariables(word.length);
@@ -280,33 +297,27 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
         prepareFailureIndicators(failAtIndicators, failedAlreadyIndicators);
 
         // define each possible step over states on each input symbol read
-        final var stepIndicators = new ImmutableIntList[word.length + 1];
-        for (var readHead = 0; readHead < word.length + 1; readHead++) {
-            final var possibleStateStepping = solver.newFreeVariables(stateNumber);
-            stepIndicators[readHead] = possibleStateStepping;
+        final var stepIndicators = prepareStepIndicators(word.length);
+        for (var readHead = 1; readHead < word.length + 1; readHead++) {
             final var stillNotFailed = -failedAlreadyIndicators.get(readHead);
-            solver.addClauseIf(stillNotFailed, possibleStateStepping);
+            solver.addClauseIf(stillNotFailed, stepIndicators[readHead]);
         }
-        final var initialStepBeStartState = stepIndicators[0].get(START_STATE_INDEX);
-        solver.setLiteralTruthy(initialStepBeStartState);
 
         // make the taken steps form a non-accepting path
         for (var readHead = 0; readHead < word.length; readHead++) {
             final var alreadyFailed = failedAlreadyIndicators.get(readHead);
             final var failsHere = failAtIndicators.get(readHead);
-            final var possibleSymbol = word.characterIndicators[readHead];
+            final var symbol = word[readHead];
             for (var qi = 0; qi < stateNumber; qi++) {
                 final var takenQiAsCurr = stepIndicators[readHead].get(qi);
+                final var transOnSymbol = transitionIndicators[qi][symbol];
                 for (var qj = 0; qj < stateNumber; qj++) {
                     final var takenQjAsNext = stepIndicators[readHead + 1].get(qj);
-                    for (var s = 0; s < intAlphabet.size(); s++) {
-                        final var sBeSymbol = possibleSymbol.get(s);
-                        final var transBeAvailable = transitionIndicators[qi][s].get(qj);
-                        solver.addClauseIf(activated, alreadyFailed, failsHere, -takenQiAsCurr, -takenQjAsNext,
-                                           -sBeSymbol, transBeAvailable);
-                        solver.addClauseIf(activated, alreadyFailed, -failsHere, -takenQiAsCurr, -sBeSymbol,
-                                           -transBeAvailable);
-                    }
+                    final var transBeAvailable = transOnSymbol.get(qj);
+                    solver.newClause().add(-activated).add(alreadyFailed).add(failsHere).add(-takenQiAsCurr)
+                          .add(-takenQjAsNext).add(transBeAvailable).commit();
+                    solver.newClause().add(-activated).add(alreadyFailed).add(-failsHere).add(-takenQiAsCurr)
+                          .add(-transBeAvailable).commit();
                 }
             }
         }
@@ -319,31 +330,6 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
         }
     }
 
-    @Override
-    public void ensureNoAccepting(ListIterable<S> word)
-    {
-        final var activated = solver.newFreeVariable();
-        ensureNotAcceptWordIf(activated, makeWord(word));
-        solver.setLiteralTruthy(activated);
-    }
-
-    @Override
-    public void ensureAcceptingIfOnlyIf(int indicator, ListIterable<S> word)
-    {
-        final var encodedWord = makeWord(word);
-        ensureAcceptingIf(indicator, encodedWord);
-        ensureNotAcceptWordIf(-indicator, encodedWord);
-    }
-
-    @Override
-    public CertainWord ensureAcceptingCertainWordIf(int indicator, int length)
-    {
-        final var certainWord = new CertainWord(length);
-        ensureAcceptingIf(indicator, certainWord);
-
-        return certainWord;
-    }
-
     @Override
     public void ensureNoWordPurelyMadeOf(SetIterable<S> symbols)
     {
@@ -379,170 +365,34 @@ public class BasicFSAEncoding<S> implements FSAEncoding<S>
     @Override
     public void blockCurrentInstance()
     {
-        // collect which to be blocked
-        final var truthyIndicators = solver.getModelTruthyVariables();
-        final MutableIntSet blockingTrack = new IntHashSet(truthyIndicators.size());
-        acceptStateIndicators.forEach(acceptIndicator -> blockingTrack
-            .add(truthyIndicators.contains(acceptIndicator) ? acceptIndicator : -acceptIndicator));
+        final var blockingClause = solver.newClause();
+        addModelNegation(blockingClause, acceptStateIndicators);
         for (var qi = 0; qi < stateNumber; qi++) {
-            for (var qj = 0; qj < stateNumber; qj++) {
-                for (var s = 0; s < intAlphabet.size(); s++) {
-                    final var transIndicator = transitionIndicators[qi][s].get(qj);
-                    blockingTrack.add(truthyIndicators.contains(transIndicator) ? transIndicator : -transIndicator);
-                }
+            for (var s = 0; s < intAlphabet.size(); s++) {
+                addModelNegation(blockingClause, transitionIndicators[qi][s]);
             }
         }
 
-        solver.addClauseBlocking(blockingTrack.toArray());
+        blockingClause.commit();
     }
 
     @Override
-    public FSA<S> resolve()
+    void decodeTransitions(MutableFSA<S> result, ListIterable<MutableState<S>> states)
     {
-        if (!solver.findItSatisfiable()) {
-            return null;
-        }
-
-        // decode states
-        final var truthyIndicators = solver.getModelTruthyVariables();
-        final var result = FSAs.create(intAlphabet.originAlphabet(), stateNumber);
-        final MutableList<MutableState<S>> states = FastList.newList(stateNumber);
-        states.add(START_STATE_INDEX, result.startState());
-        for (var i = 1; i < stateNumber; i++) {
-            states.add(i, result.newState("s" + i));
-        }
-        acceptStateIndicators.forEachWithIndex((indicator, stateIndex) -> {
-            if (truthyIndicators.contains(indicator)) {
-                result.setAsAccept(states.get(stateIndex));
-            }
-        });
-
-        // decode transitions
         for (var qi = 0; qi < stateNumber; qi++) {
             for (var qj = 0; qj < stateNumber; qj++) {
                 for (var s = 0; s < intAlphabet.size(); s++) {
-                    if (truthyIndicators.contains(transitionIndicators[qi][s].get(qj))) {
+                    if (solver.isTruthyInModel(transitionIndicators[qi][s].get(qj))) {
                         result.addTransition(states.get(qi), states.get(qj), intAlphabet.decode(s));
                     }
                 }
             }
         }
-
-        return result;
     }
 
-
     @FunctionalInterface
     private interface TransitionSelector
     {
         int take(int dept, int dest, int symbol);
     }
-
-    private class CertainWord implements FSAEncoding.CertainWord<S>
-    {
-        private final int length;
-        private final ImmutableIntList[] characterIndicators;
-
-        private CertainWord(int length)
-        {
-            this.length = length;
-            characterIndicators = new ImmutableIntList[length];
-
-            final var symbolNumber = intAlphabet.size();
-            for (var i = 0; i < length; i++) {
-                final var possibleSymbol = solver.newFreeVariables(symbolNumber);
-                final var characterCanBeEpsilon = possibleSymbol.get(EPSILON_SYMBOL_INDEX);
-                solver.setLiteralFalsy(characterCanBeEpsilon);
-                solver.addClause(possibleSymbol);
-                characterIndicators[i] = possibleSymbol;
-            }
-        }
-
-        @Override
-        public int length()
-        {
-            return length;
-        }
-
-        @Override
-        public Alphabet<S> alphabet()
-        {
-            return intAlphabet.originAlphabet();
-        }
-
-        @Override
-        public int getCharacterIndicator(int pos, S symbol)
-        {
-            if (pos >= length) {
-                throw new IndexOutOfBoundsException("non-existing character position");
-            }
-            if (symbol.equals(intAlphabet.originEpsilon())) {
-                throw new IllegalArgumentException("epsilon symbol not allowed");
-            }
-
-            return characterIndicators[pos].get(intAlphabet.encode(symbol));
-        }
-
-        @Override
-        public void setCharacterAt(int pos, S symbol)
-        {
-            if (pos >= length) {
-                throw new IndexOutOfBoundsException("non-existing character position");
-            }
-            if (symbol.equals(intAlphabet.originEpsilon())) {
-                throw new IllegalArgumentException("epsilon symbol not allowed");
-            }
-
-            solver.setLiteralTruthy(characterIndicators[pos].get(intAlphabet.encode(symbol)));
-        }
-
-        @Override
-        public void ensureAcceptedBy(FSA<S> fsa)
-        {
-            final var dfa = fsa.determinize();
-            final var stateNumber = dfa.states().size();
-            final var stateDecoder = dfa.states().toList();
-            final MutableObjectIntMap<State<S>> stateEncoder = new ObjectIntHashMap<>(stateNumber);
-            stateDecoder.forEachWithIndex(stateEncoder::put);
-
-            // define each possible step over the DFA's states with each character of the word
-            final var stepIndicators = new ImmutableIntList[length + 1];
-            for (var pos = 0; pos < length + 1; pos++) {
-                final var possibleStateStepping = solver.newFreeVariables(stateNumber);
-                stepIndicators[pos] = possibleStateStepping;
-                solver.addClause(possibleStateStepping);
-            }
-            final var initialStepBeStartState = stepIndicators[0].get(stateEncoder.get(dfa.startState()));
-            solver.setLiteralTruthy(initialStepBeStartState);
-
-            // make the taken steps represent the word
-            final var symbols = alphabet().asSet();
-            for (var pos = 0; pos < length; pos++) {
-                final var possibleSymbol = characterIndicators[pos];
-                for (var qi = 0; qi < stateNumber; qi++) {
-                    final var takenQiAsCurr = stepIndicators[pos].get(qi);
-                    final var stateQi = stateDecoder.get(qi);
-                    for (var qj = 0; qj < stateNumber; qj++) {
-                        final var takenQjAsNext = stepIndicators[pos + 1].get(qj);
-                        final var stateQj = stateDecoder.get(qj);
-                        final var enabledQiToQjArc = stateQi.enabledSymbolsTo(stateQj);
-                        for (var symbol : symbols) {
-                            if (enabledQiToQjArc.contains(symbol)) { // consider the disabled symbols
-                                continue;
-                            }
-                            final var posBeDisableSymbol = possibleSymbol.get(intAlphabet.encode(symbol));
-                            solver.addClause(-takenQiAsCurr, -takenQjAsNext, -posBeDisableSymbol);
-                        }
-                    }
-                }
-            }
-
-            // make the taken steps form an accepting path
-            final var possibleLastStep = stepIndicators[length];
-            for (var nonAcceptState : dfa.nonAcceptStates()) {
-                final var finalStepBeNonAccept = possibleLastStep.get(stateEncoder.get(nonAcceptState));
-                solver.setLiteralFalsy(finalStepBeNonAccept);
-            }
-        }
-    }
 }
@@ -0,0 +1,477 @@
+package core.proof;
+
+import api.automata.AlphabetIntEncoder;
+import api.automata.MutableState;
+import api.automata.fsa.MutableFSA;
+import common.sat.SatSolver;
+import common.sat.SatSolver.ClauseBuilder;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.set.SetIterable;
+
+/**
+ * The {@link api.proof.FSAEncoding} that represents a state in
+ * ceil(log<sub>2</sub> n) bits instead of n one-hot indicators.  Each
+ * transition source (a state and a symbol) has one enabling bit and the
+ * binary number of its successor state, and each step of a run over a word
+ * is also a binary number.  The bit vectors take the zero cell as the
+ * highest digit, the same as {@link SatSolver#markAsGreaterEqualInBinary}.
+ */
+public class BinaryFSAEncoding<S> extends AbstractFSAEncoding<S>
+{
+    private final int bitWidth;
+    private ImmutableIntList[] transitionEnabledIndicators;
+    private ImmutableIntList[][] successorBits;
+    private boolean noUnreachableStateEnsured;
+    private boolean noDeadEndStateEnsured;
+
+    private static int bitWidthFor(int stateNumber)
+    {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(stateNumber - 1));
+    }
+
+    private boolean digitOf(int value, int bitIndex)
+    {
+        return ((value >> (bitWidth - 1 - bitIndex)) & 1) == 1;
+    }
+
+    /**
+     * Starts a clause with the literals that hold exactly when the given bit
+     * vector differs from {@code value}, so the clause completed reads as
+     * "{@code bits == value} implies one of the literals added afterwards".
+     */
+    private ClauseBuilder unlessEqual(ImmutableIntList bits, int value)
+    {
+        final var clause = solver.newClause();
+        for (var i = 0; i < bitWidth; i++) {
+            final var bit = bits.get(i);
+            clause.add(digitOf(value, i) ? -bit : bit);
+        }
+
+        return clause;
+    }
+
+    private int equalityLiteral(ImmutableIntList bits, int value, int bitIndex)
+    {
+        final var bit = bits.get(bitIndex);
+
+        return digitOf(value, bitIndex) ? bit : -bit;
+    }
+
+    private void prepareTransitionIndicators()
+    {
+        final var symbolNumber = intAlphabet.size();
+        final var valueBound = 1 << bitWidth;
+        transitionEnabledIndicators = new ImmutableIntList[stateNumber];
+        successorBits = new ImmutableIntList[stateNumber][symbolNumber];
+        for (var state = 0; state < stateNumber; state++) {
+            transitionEnabledIndicators[state] = solver.newFreeVariables(symbolNumber);
+            for (var symbol = 0; symbol < symbolNumber; symbol++) {
+                final var enabled = transitionEnabledIndicators[state].get(symbol);
+                final var successor = solver.newFreeVariables(bitWidth);
+                successorBits[state][symbol] = successor;
+                successor.forEach(bit -> solver.addImplication(bit, enabled)); // zeros if disabled
+                for (var value = stateNumber; value < valueBound; value++) {
+                    unlessEqual(successor, value).add(-enabled).commit(); // no out-of-range successor
+                }
+            }
+        }
+        final var transitionEnabled = new int[stateNumber * (symbolNumber - 1)];
+        for (var state = 0; state < stateNumber; state++) {
+            for (var symbol = 1; symbol < symbolNumber; symbol++) {
+                transitionEnabled[state * (symbolNumber - 1) + symbol - 1] = //
+                    transitionEnabledIndicators[state].get(symbol);
+            }
+        }
+        solver.addClause(transitionEnabled); // at least one transition overall
+    }
+
+    private void ensureNoEpsilonTransition()
+    {
+        for (var dept = 0; dept < stateNumber; dept++) {
+            solver.setLiteralFalsy(transitionEnabledIndicators[dept].get(EPSILON_SYMBOL_INDEX));
+        }
+    }
+
+    @Override
+    int arcIndicator(int dept, int symbol, int dest)
+    {
+        final var enabled = transitionEnabledIndicators[dept].get(symbol);
+        final var successor = successorBits[dept][symbol];
+        final var hasArc = solver.newFreeVariable();
+
+        // hasArc <--> enabled && successor == dest
+        solver.addImplication(hasArc, enabled);
+        final var allMatched = new int[bitWidth + 2];
+        for (var i = 0; i < bitWidth; i++) {
+            final var digitMatched = equalityLiteral(successor, dest, i);
+            solver.addImplication(hasArc, digitMatched);
+            allMatched[i] = -digitMatched;
+        }
+        allMatched[bitWidth] = -enabled;
+        allMatched[bitWidth + 1] = hasArc;
+        solver.addClause(allMatched);
+
+        return hasArc;
+    }
+
+    private void applySymmetryBreakingHeuristics()
+    {
+        final var symbolNumber = intAlphabet.size();
+        final var structuralOrder = new int[stateNumber - 1][symbolNumber + 1]; // skip the start state
+        for (var i = 0; i < structuralOrder.length; i++) {
+            final var state = i + 1;
+            final var beAcceptState = acceptStateIndicators.get(state);
+            structuralOrder[i][0] = beAcceptState; // assign to the highest digit (affects the most)
+            for (var symbol = 0; symbol < symbolNumber; symbol++) {
+                structuralOrder[i][1 + symbol] = arcIndicator(state, symbol, state);
+            }
+        }
+        for (var i = structuralOrder.length - 1; i > 0; i--) {
+            solver.markAsGreaterEqualInBinary(structuralOrder[i], structuralOrder[i - 1]);
+        }
+    }
+
+    private void applyLinearShapeRestriction()
+    {
+        for (var dept = 0; dept < stateNumber; dept++) {
+            for (var symbol = 1; symbol < intAlphabet.size(); symbol++) {
+                final var enabled = transitionEnabledIndicators[dept].get(symbol);
+                final var successor = successorBits[dept][symbol];
+                for (var dest = 0; dest < stateNumber; dest++) {
+                    if (dest == dept || dest == (dept + 1) % stateNumber || dest == (dept + 2) % stateNumber) {
+                        continue;
+                    }
+                    unlessEqual(successor, dest).add(-enabled).commit();
+                }
+            }
+        }
+    }
+
+    public BinaryFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet,
+        boolean restrictsShape, boolean numbersBreadthFirst)
+    {
+        super(solver, stateNumber, intAlphabet);
+
+        bitWidth = bitWidthFor(stateNumber);
+        prepareTransitionIndicators();
+        prepareAcceptStateIndicators();
+        ensureNoEpsilonTransition(); // determinism is given by the encoding itself
+        if (restrictsShape) {
+            applyLinearShapeRestriction();
+        } else if (numbersBreadthFirst) {
+            applyBreadthFirstNumbering();
+            noUnreachableStateEnsured = true; // every state has a parent
+        } else {
+            applySymmetryBreakingHeuristics();
+        }
+    }
+
+    public BinaryFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet,
+        boolean restrictsShape)
+    {
+        this(solver, stateNumber, intAlphabet, restrictsShape, false);
+    }
+
+    public BinaryFSAEncoding(SatSolver solver, int stateNumber, AlphabetIntEncoder<S> intAlphabet)
+    {
+        this(solver, stateNumber, intAlphabet, false);
+    }
+
+    private BinaryFSAEncoding(BinaryFSAEncoding<?> prototype, SatSolver solver, AlphabetIntEncoder<S> intAlphabet,
+        int offset)
+    {
+        super(prototype, solver, intAlphabet, offset);
+
+        bitWidth = prototype.bitWidth;
+        transitionEnabledIndicators = shift(prototype.transitionEnabledIndicators, offset);
+        successorBits = new ImmutableIntList[stateNumber][];
+        for (var state = 0; state < stateNumber; state++) {
+            successorBits[state] = shift(prototype.successorBits[state], offset);
+        }
+        noUnreachableStateEnsured = prototype.noUnreachableStateEnsured;
+        noDeadEndStateEnsured = prototype.noDeadEndStateEnsured;
+    }
+
+    @Override
+    <T> BinaryFSAEncoding<T> copyOnto(SatSolver solver, AlphabetIntEncoder<T> intAlphabet, int offset)
+    {
+        return new BinaryFSAEncoding<>(this, solver, intAlphabet, offset);
+    }
+
+    /**
+     * Makes {@code bits1} have binary value less than {@code bits2} if the
+     * given {@code indicator} is valuated true.
+     */
+    private void encodeLessThanIf(int indicator, ImmutableIntList bits1, ImmutableIntList bits2)
+    {
+        final var equalUntil = solver.newFreeVariables(bitWidth);
+        var equalSoFar = indicator;
+        for (var i = 0; i < bitWidth; i++) {
+            final var digit1 = bits1.get(i);
+            final var digit2 = bits2.get(i);
+            final var equalHere = equalUntil.get(i);
+
+            // equalSoFar --> digit1 <= digit2
+            solver.addClause(-equalSoFar, -digit1, digit2);
+            // equalHere <-- equalSoFar && digit1 == digit2
+            solver.addClause(-equalSoFar, digit1, digit2, equalHere);
+            solver.addClause(-equalSoFar, -digit1, -digit2, equalHere);
+            equalSoFar = equalHere;
+        }
+        solver.setLiteralFalsy(equalSoFar); // not equal all along
+    }
+
+    private ImmutableIntList[] prepareDistanceBits()
+    {
+        final var distanceBits = new ImmutableIntList[stateNumber];
+        for (var state = 0; state < stateNumber; state++) {
+            distanceBits[state] = solver.newFreeVariables(bitWidth);
+        }
+
+        return distanceBits;
+    }
+
+    /**
+     * Makes the given state have a neighbor (a predecessor or a successor,
+     * depending on {@code reversed}) with a strictly smaller distance value if
+     * {@code required} is valuated true.  Having such a neighbor for every
+     * required state makes every one of them connected to the ones not
+     * required, since the distance values cannot decrease forever.
+     */
+    private void encodeCloserNeighborIf(int required, int state, ImmutableIntList[] distanceBits, boolean reversed)
+    {
+        final var symbolNumber = intAlphabet.size();
+        final var neighborIs = solver.newFreeVariables(stateNumber);
+        final var neighborSymbol = solver.newFreeVariables(symbolNumber);
+        solver.setLiteralFalsy(neighborIs.get(state));
+        solver.setLiteralFalsy(neighborSymbol.get(EPSILON_SYMBOL_INDEX));
+        solver.addClauseIf(required, neighborIs);
+        solver.addClauseIf(required, neighborSymbol);
+        for (var neighbor = 0; neighbor < stateNumber; neighbor++) {
+            if (neighbor == state) {
+                continue;
+            }
+            final var takenNeighbor = neighborIs.get(neighbor);
+            encodeLessThanIf(takenNeighbor, distanceBits[neighbor], distanceBits[state]);
+            final var dept = reversed ? state : neighbor;
+            final var dest = reversed ? neighbor : state;
+            for (var symbol = 1; symbol < symbolNumber; symbol++) {
+                final var takenSymbol = neighborSymbol.get(symbol);
+                final var successor = successorBits[dept][symbol];
+                solver.addClause(-takenNeighbor, -takenSymbol, transitionEnabledIndicators[dept].get(symbol));
+                for (var i = 0; i < bitWidth; i++) {
+                    solver.addClause(-takenNeighbor, -takenSymbol, equalityLiteral(successor, dest, i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void ensureNoUnreachableState()
+    {
+        if (noUnreachableStateEnsured) {
+            return;
+        }
+
+        final var distFromStartBits = prepareDistanceBits();
+        final var notStartState = solver.newFreeVariable();
+        solver.setLiteralTruthy(notStartState);
+        for (var state = 1; state < stateNumber; state++) { // skip the start state
+            encodeCloserNeighborIf(notStartState, state, distFromStartBits, false);
+        }
+
+        noUnreachableStateEnsured = true;
+    }
+
+    @Override
+    public void ensureNoDeadEndState()
+    {
+        if (noDeadEndStateEnsured) {
+            return;
+        }
+
+        final var distFromAcceptBits = prepareDistanceBits();
+        for (var state = 0; state < stateNumber; state++) {
+            final var takenAsAcceptState = acceptStateIndicators.get(state);
+            encodeCloserNeighborIf(-takenAsAcceptState, state, distFromAcceptBits, true);
+        }
+
+        noDeadEndStateEnsured = true;
+    }
+
+    private ImmutableIntList[] prepareStepBits(int wordLength)
+    {
+        final var stepBits = new ImmutableIntList[wordLength + 1];
+        for (var readHead = 0; readHead < wordLength + 1; readHead++) {
+            stepBits[readHead] = solver.newFreeVariables(bitWidth);
+        }
+        stepBits[0].forEach(solver::setLiteralFalsy); // be the start state
+
+        return stepBits;
+    }
+
+    /**
+     * Makes a run step from {@code qi} follow the transition of the given
+     * symbol to {@code nextStep} under the given guards (the literals that
+     * turn the constraints off when any of them is valuated true).
+     */
+    private void encodeStepIf(int activated, ImmutableIntList currStep, ImmutableIntList nextStep, int qi,
+        int symbol, int... guards)
+    {
+        final var successor = successorBits[qi][symbol];
+        final var transEnabled = transitionEnabledIndicators[qi].get(symbol);
+
+        unlessEqual(currStep, qi).addAll(guards).add(transEnabled).add(-activated).commit();
+        for (var i = 0; i < bitWidth; i++) {
+            final var successorDigit = successor.get(i);
+            final var nextDigit = nextStep.get(i);
+
+            // nextDigit <--> successorDigit
+            unlessEqual(currStep, qi).addAll(guards).add(-successorDigit).add(nextDigit).add(-activated).commit();
+            unlessEqual(currStep, qi).addAll(guards).add(successorDigit).add(-nextDigit).add(-activated).commit();
+        }
+    }
+
+    private void encodeAcceptingLastStepIf(int activated, ImmutableIntList lastStep)
+    {
+        for (var state = 0; state < stateNumber; state++) {
+            final var beAcceptState = acceptStateIndicators.get(state);
+            unlessEqual(lastStep, state).add(beAcceptState).add(-activated).commit();
+        }
+    }
+
+    @Override
+    void ensureAcceptingIf(int activated, int[] word)
+    {
+        final var stepBits = prepareStepBits(word.length);
+        for (var readHead = 0; readHead < word.length; readHead++) {
+            for (var qi = 0; qi < stateNumber; qi++) {
+                encodeStepIf(activated, stepBits[readHead], stepBits[readHead + 1], qi, word[readHead]);
+            }
+        }
+        encodeAcceptingLastStepIf(activated, stepBits[word.length]);
+    }
+
+    @Override
+    void ensureAcceptingIf(int activated, CertainWord word)
+    {
+        final var stepBits = prepareStepBits(word.length);
+        for (var readHead = 0; readHead < word.length; readHead++) {
+            final var possibleSymbol = word.characterIndicators[readHead];
+            for (var qi = 0; qi < stateNumber; qi++) {
+                for (var s = 1; s < intAlphabet.size(); s++) {
+                    final var notSBeSymbol = -possibleSymbol.get(s);
+                    encodeStepIf(activated, stepBits[readHead], stepBits[readHead + 1], qi, s, notSBeSymbol);
+                }
+            }
+        }
+        encodeAcceptingLastStepIf(activated, stepBits[word.length]);
+    }
+
+    @Override
+    void ensureNotAcceptWordIf(int activated, int[] word)
+    {
+        // prepare the fail bits for each step of the input read
+        final var failAtIndicators = solver.newFreeVariables(word.length);
+        final var failedAlreadyIndicators = solver.newFreeVariables(word.length + 1);
+        prepareFailureIndicators(failAtIndicators, failedAlreadyIndicators);
+
+        // make the taken steps form a non-accepting path
+        final var stepBits = prepareStepBits(word.length);
+        for (var readHead = 0; readHead < word.length; readHead++) {
+            final var alreadyFailed = failedAlreadyIndicators.get(readHead);
+            final var failsHere = failAtIndicators.get(readHead);
+            final var symbol = word[readHead];
+            final var currStep = stepBits[readHead];
+            for (var qi = 0; qi < stateNumber; qi++) {
+                encodeStepIf(activated, currStep, stepBits[readHead + 1], qi, symbol, alreadyFailed, failsHere);
+                final var transBeAvailable = transitionEnabledIndicators[qi].get(symbol);
+                unlessEqual(currStep, qi).add(alreadyFailed).add(-failsHere).add(-transBeAvailable)
+                                         .add(-activated).commit();
+            }
+        }
+        final var failedBeforeFinal = failedAlreadyIndicators.get(word.length);
+        final var lastStep = stepBits[word.length];
+        for (var state = 0; state < stateNumber; state++) {
+            final var notAcceptState = -acceptStateIndicators.get(state);
+            unlessEqual(lastStep, state).add(failedBeforeFinal).add(notAcceptState).add(-activated).commit();
+        }
+    }
+
+    @Override
+    public void ensureNoWordPurelyMadeOf(SetIterable<S> symbols)
+    {
+        final var encodedSymbols = intAlphabet.encode(symbols.toList().toImmutable());
+
+        if (encodedSymbols.contains(EPSILON_SYMBOL_INDEX)) {
+            solver.setLiteralsFalsy(acceptStateIndicators.get(0));
+        }
+
+        final var canBePurelyMadeUntil = solver.newFreeVariables(stateNumber + 1);
+        final var initialStepAlwaysPossible = canBePurelyMadeUntil.get(START_STATE_INDEX);
+        solver.setLiteralTruthy(initialStepAlwaysPossible);
+
+        final var startStatePurityBroken = -canBePurelyMadeUntil.get(stateNumber);
+        for (var qi = 0; qi < stateNumber; qi++) {
+            final var purityAlreadyBroken = -canBePurelyMadeUntil.get(qi);
+            final var ifIsAcceptState = acceptStateIndicators.get(qi);
+            if (qi == 0) {
+                solver.addImplication(ifIsAcceptState, startStatePurityBroken);
+            } else {
+                solver.addImplication(ifIsAcceptState, purityAlreadyBroken);
+            }
+            for (var s = 0; s < encodedSymbols.size(); s++) {
+                final var symbol = encodedSymbols.get(s);
+                if (symbol == EPSILON_SYMBOL_INDEX) {
+                    continue; // no epsilon transition at all
+                }
+                final var transEnabled = transitionEnabledIndicators[qi].get(symbol);
+                final var successor = successorBits[qi][symbol];
+                for (var qj = 0; qj < stateNumber; qj++) {
+                    final var stillPossibleAtQj = qj == 0 ? -startStatePurityBroken : canBePurelyMadeUntil.get(qj);
+                    unlessEqual(successor, qj).add(purityAlreadyBroken).add(-transEnabled)
+                                              .add(stillPossibleAtQj).commit();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void blockCurrentInstance()
+    {
+        final var blockingClause = solver.newClause();
+        addModelNegation(blockingClause, acceptStateIndicators);
+        for (var qi = 0; qi < stateNumber; qi++) {
+            addModelNegation(blockingClause, transitionEnabledIndicators[qi]);
+            for (var s = 0; s < intAlphabet.size(); s++) {
+                addModelNegation(blockingClause, successorBits[qi][s]);
+            }
+        }
+
+        blockingClause.commit();
+    }
+
+    private int decodeState(ImmutableIntList bits)
+    {
+        var value = 0;
+        for (var i = 0; i < bitWidth; i++) {
+            value = (value << 1) | (solver.isTruthyInModel(bits.get(i)) ? 1 : 0);
+        }
+
+        return value;
+    }
+
+    @Override
+    void decodeTransitions(MutableFSA<S> result, ListIterable<MutableState<S>> states)
+    {
+        for (var qi = 0; qi < stateNumber; qi++) {
+            for (var s = 1; s < intAlphabet.size(); s++) {
+                if (solver.isTruthyInModel(transitionEnabledIndicators[qi].get(s))) {
+                    final var qj = decodeState(successorBits[qi][s]);
+                    result.addTransition(states.get(qi), states.get(qj), intAlphabet.decode(s));
+                }
+            }
+        }
+    }
+}
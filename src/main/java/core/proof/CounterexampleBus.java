@@ -0,0 +1,49 @@
+package core.proof;
+
+import org.eclipse.collections.api.block.function.Function;
+import org.eclipse.collections.api.block.predicate.Predicate2;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.list.mutable.FastList;
+
+import static core.Parameters.LEARNED_CONSTRAINT_STORE_CAPACITY;
+
+/**
+ * Shares the counterexamples learned by the grid cells of a proof search.
+ * Each kind of counterexample goes through its own
+ * {@link LearnedConstraintStore}, which numbers the entries in the order
+ * published, so a cell only needs to remember how far it has imported to
+ * pull the new ones.  The stores can be used from several threads.
+ */
+final class CounterexampleBus
+{
+    private final MutableList<LearnedConstraintStore<?>> stores = FastList.newList();
+
+    synchronized <C> LearnedConstraintStore<C> newStore(String kind, Function<? super C, ?> witnessOf)
+    {
+        final var result = new LearnedConstraintStore<C>(kind, witnessOf, LEARNED_CONSTRAINT_STORE_CAPACITY);
+        stores.add(result);
+
+        return result;
+    }
+
+    synchronized <C> LearnedConstraintStore<C> newStore(String kind, Function<? super C, ?> witnessOf,
+        Function<? super C, ?> groupOf, Predicate2<? super C, ? super C> implication)
+    {
+        final var result = new LearnedConstraintStore<C>(kind, witnessOf, groupOf, implication,
+                                                         LEARNED_CONSTRAINT_STORE_CAPACITY);
+        stores.add(result);
+
+        return result;
+    }
+
+    synchronized void clear()
+    {
+        stores.forEach(LearnedConstraintStore::clear);
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return stores.makeString(", ");
+    }
+}
@@ -0,0 +1,325 @@
+package core.proof;
+
+import api.automata.Alphabet;
+import api.automata.Alphabets;
+import api.automata.Automaton;
+import api.automata.fsa.FSA;
+import api.automata.fsa.MutableFSA;
+import api.automata.fst.FST;
+import api.proof.Problem;
+import common.metrics.Metrics;
+import core.automata.AutomatonSnapshot;
+import core.automata.AutomatonSnapshot.SymbolCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.block.function.Function;
+import org.eclipse.collections.api.block.function.Function0;
+import org.eclipse.collections.api.tuple.Pair;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+/**
+ * The automata derived from a problem before any proof search starts, such
+ * as the nonfinal configurations and the composed behavior, each computed
+ * on the first use.
+ * <p>
+ * When persisted, each artifact is also stored as an
+ * {@link AutomatonSnapshot} under a directory named by the fingerprint of
+ * the problem, and loaded from there instead of being computed again in the
+ * later runs, by any prover mode.  The fingerprint is taken on the parsed
+ * automata with their state names, so it costs far less than the artifacts;
+ * renaming the states in the input only makes them computed once more.
+ * <p>
+ * When resident, the artifacts computed for a problem are kept (softly) in
+ * memory and handed over to the later instances of the problems with the
+ * same fingerprint, which is what a long-lived JVM answering the same model
+ * again and again wants.
+ *
+ * @param <S> the symbol type
+ */
+public final class DerivedArtifacts<S>
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String FINGERPRINT_FORMAT_VERSION = "1";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final HashMap<String, SoftReference<DerivedArtifacts<?>>> RESIDENT_CACHE;
+
+    static {
+        RESIDENT_CACHE = new HashMap<>();
+    }
+
+    private final Problem<S> problem;
+    private final Path directory; // null if not persisted
+    private final SymbolCodec<S> symbolCodec;
+    private final SymbolCodec<Pair<S, S>> pairCodec;
+
+    private final Alphabet<S> wholeAlphabet;
+    private final Alphabet<S> roundAlphabet;
+    private final Alphabet<Pair<S, S>> orderAlphabet;
+    private FSA<S> nonfinalConfigs;
+    private FSA<S> schedulerDomain;
+    private FSA<S> processRange;
+    private FST<S, S> allBehavior;
+    private FSA<S> matteringConfigs;
+    private FST<S, S> nonfinalScheduler;
+
+    private DerivedArtifacts(Problem<S> problem, Path directory, SymbolCodec<S> symbolCodec,
+        SymbolCodec<Pair<S, S>> pairCodec)
+    {
+        this.problem = problem;
+        this.directory = directory;
+        this.symbolCodec = symbolCodec;
+        this.pairCodec = pairCodec;
+
+        wholeAlphabet = problem.initialConfigs().alphabet(); // relying on current parsing behavior
+        final var process = problem.process();
+        final var roundSymbols = process.transitionGraph().referredArcLabels().collect(Pair::getTwo).toSet();
+        roundSymbols.add(wholeAlphabet.epsilon());
+        roundAlphabet = Alphabets.create(roundSymbols, wholeAlphabet.epsilon());
+        orderAlphabet = Alphabets.product(roundAlphabet, roundAlphabet);
+    }
+
+    /**
+     * Returns the artifacts of the given problem, kept in memory only.
+     */
+    public static <S> DerivedArtifacts<S> of(Problem<S> problem)
+    {
+        return new DerivedArtifacts<>(problem, null, null, null);
+    }
+
+    /**
+     * Returns the artifacts of the given problem, persisted under the given
+     * directory.
+     */
+    public static DerivedArtifacts<String> persistedIn(Path directory, Problem<String> problem)
+    {
+        final var location = directory.resolve(fingerprintOf(problem));
+
+        return new DerivedArtifacts<>(problem, location, AutomatonSnapshot.STRING_SYMBOLS,
+                                      AutomatonSnapshot.STRING_PAIR_SYMBOLS);
+    }
+
+    /**
+     * Returns the artifacts of the given problem, kept in memory along with
+     * the ones of the earlier problems and starting with whatever was
+     * computed for an earlier problem with the same fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <S> DerivedArtifacts<S> residentFor(Problem<S> problem)
+    {
+        final var fingerprint = fingerprintOf(problem);
+        final var result = new DerivedArtifacts<>(problem, null, null, null);
+        final var cached = RESIDENT_CACHE.get(fingerprint);
+        final var earlier = cached != null ? (DerivedArtifacts<S>) cached.get() : null;
+        Metrics.countCacheLookup("resident-artifacts", earlier != null);
+        if (earlier != null) {
+            earlier.copyComputedInto(result);
+            LOGGER.info("Derived artifacts of problem {} reused from an earlier request.", fingerprint);
+        }
+        RESIDENT_CACHE.put(fingerprint, new SoftReference<>(result));
+
+        return result;
+    }
+
+    private synchronized void copyComputedInto(DerivedArtifacts<S> target)
+    {
+        target.nonfinalConfigs = nonfinalConfigs;
+        target.schedulerDomain = schedulerDomain;
+        target.processRange = processRange;
+        target.allBehavior = allBehavior;
+        target.matteringConfigs = matteringConfigs;
+        target.nonfinalScheduler = nonfinalScheduler;
+    }
+
+    private static <S> void appendWithStateNames(StringBuilder result, Automaton<S> automaton)
+    {
+        final var stateNames = automaton.stateNames();
+        result.append(stateNames.get(automaton.startState())).append('\n');
+        automaton.states().toSortedListBy(stateNames::get).forEach(state -> {
+            result.append(stateNames.get(state)).append(automaton.isAcceptState(state) ? "*" : "").append(':');
+            state.transitions().collect(trans -> trans.getOne() + ">" + stateNames.get(trans.getTwo()))
+                 .toSortedList().forEach(trans -> result.append(' ').append(trans));
+            result.append('\n');
+        });
+        result.append('\n');
+    }
+
+    private static String fingerprintOf(Problem<?> problem)
+    {
+        final var text = new StringBuilder(FINGERPRINT_FORMAT_VERSION).append('\n');
+        final var alphabet = problem.initialConfigs().alphabet(); // which the complements are taken over
+        text.append(alphabet.epsilon()).append(':');
+        alphabet.asSet().collect(Object::toString).toSortedList().forEach(symbol -> text.append(' ').append(symbol));
+        text.append('\n');
+        appendWithStateNames(text, problem.initialConfigs());
+        appendWithStateNames(text, problem.finalConfigs());
+        appendWithStateNames(text, problem.scheduler());
+        appendWithStateNames(text, problem.process());
+
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            final var hash = digest.digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            final var result = new StringBuilder(hash.length * 2);
+            for (var b : hash) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private <X, T extends Automaton<X>> T loadOrCompute(String name, SymbolCodec<X> codec,
+        Function<AutomatonSnapshot<X>, T> fromSnapshot, Function0<T> computation)
+    {
+        if (directory == null) {
+            return computation.value();
+        }
+
+        final var file = directory.resolve(name + SNAPSHOT_SUFFIX);
+        if (Files.isRegularFile(file)) {
+            try {
+                final var result = fromSnapshot.valueOf(AutomatonSnapshot.load(file, codec));
+                LOGGER.info("Derived artifact {} loaded from {}.", name, file);
+                Metrics.countCacheLookup("artifact-snapshot", true);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Ignoring the unreadable derived artifact {}: {}", file, e);
+            }
+        }
+
+        Metrics.countCacheLookup("artifact-snapshot", false);
+        final var result = computation.value();
+        try {
+            // write in full before moving in place, so concurrent runs never see a partial snapshot
+            Files.createDirectories(directory);
+            final var temporary = Files.createTempFile(directory, name, SNAPSHOT_SUFFIX + ".tmp");
+            AutomatonSnapshot.write(result, temporary, codec);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to store the derived artifact {}: {}", file, e);
+        }
+
+        return result;
+    }
+
+    private FSA<S> loadOrComputeFSA(String name, Function0<FSA<S>> computation)
+    {
+        return loadOrCompute(name, symbolCodec, AutomatonSnapshot::toFSA, computation);
+    }
+
+    private FST<S, S> loadOrComputeFST(String name, Function0<FST<S, S>> computation)
+    {
+        return loadOrCompute(name, pairCodec, AutomatonSnapshot::toFST, computation);
+    }
+
+    public Problem<S> problem()
+    {
+        return problem;
+    }
+
+    public Alphabet<S> wholeAlphabet()
+    {
+        return wholeAlphabet;
+    }
+
+    /**
+     * Returns the alphabet of the configurations reached by the process,
+     * with the epsilon.
+     */
+    public Alphabet<S> roundAlphabet()
+    {
+        return roundAlphabet;
+    }
+
+    public Alphabet<Pair<S, S>> orderAlphabet()
+    {
+        return orderAlphabet;
+    }
+
+    public synchronized FSA<S> nonfinalConfigs()
+    {
+        if (nonfinalConfigs == null) {
+            nonfinalConfigs = loadOrComputeFSA("nonfinal-configs",
+                                               () -> problem.finalConfigs().determinize().minimize().complement());
+        }
+
+        return nonfinalConfigs;
+    }
+
+    public synchronized FSA<S> schedulerDomain()
+    {
+        if (schedulerDomain == null) {
+            schedulerDomain = loadOrComputeFSA("scheduler-domain", () -> {
+                final var domain = (MutableFSA<S>) problem.scheduler().domain();
+                return domain.setAlphabet(wholeAlphabet).determinize();
+            });
+        }
+
+        return schedulerDomain;
+    }
+
+    public synchronized FSA<S> processRange()
+    {
+        if (processRange == null) {
+            processRange = loadOrComputeFSA("process-range", () -> {
+                final var range = (MutableFSA<S>) problem.process().range();
+                return range.setAlphabet(wholeAlphabet).determinize().minimize();
+            });
+        }
+
+        return processRange;
+    }
+
+    /**
+     * Returns the composition of the scheduler and the process.
+     */
+    public synchronized FST<S, S> allBehavior()
+    {
+        if (allBehavior == null) {
+            allBehavior = loadOrComputeFST("all-behavior",
+                                           () -> problem.scheduler().compose(problem.process(), orderAlphabet));
+        }
+
+        return allBehavior;
+    }
+
+    /**
+     * Returns the nonfinal configurations where some behavior can happen.
+     */
+    public synchronized FSA<S> matteringConfigs()
+    {
+        if (matteringConfigs == null) {
+            matteringConfigs = loadOrComputeFSA("mattering-configs",
+                                                () -> allBehavior().domain().intersect(nonfinalConfigs()));
+        }
+
+        return matteringConfigs;
+    }
+
+    /**
+     * Returns the scheduler restricted to the nonfinal configurations on both
+     * sides.
+     */
+    public synchronized FST<S, S> nonfinalScheduler()
+    {
+        if (nonfinalScheduler == null) {
+            nonfinalScheduler = loadOrComputeFST("nonfinal-scheduler", () -> {
+                final var nonfinals = nonfinalConfigs();
+                return problem.scheduler().maskByInput(nonfinals).maskByOutput(nonfinals);
+            });
+        }
+
+        return nonfinalScheduler;
+    }
+}
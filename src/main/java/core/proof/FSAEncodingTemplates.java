@@ -0,0 +1,94 @@
+package core.proof;
+
+import api.automata.AlphabetIntEncoder;
+import api.proof.FSAEncoding;
+import common.metrics.Metrics;
+import common.sat.CnfRecorder;
+import common.sat.CnfTemplate;
+import common.sat.SatSolver;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+
+/**
+ * Keeps the base CNF of the {@link FSAEncoding}s, i.e. everything the
+ * encodings constrain before the first word is given, which depends only on
+ * the state number, the alphabet size and the encoding options.  It is
+ * recorded once for each combination, and then loaded into the solvers of
+ * the later instances under a variable offset instead of being generated
+ * again.
+ * <p>
+ * The provers of a batch run on several threads at once, so the cache is
+ * only touched under the class lock.  A missing template is recorded
+ * while holding the lock, which keeps the others from recording the same
+ * one again, but also makes them wait on the first recording of any other
+ * combination; that happens once per combination, and is short next to a
+ * cell.  A template never changes once recorded, so loading it and copying
+ * its prototype need no lock.
+ */
+final class FSAEncodingTemplates
+{
+    private static final HashMap<ImmutableList<Object>, SoftReference<Template>> TEMPLATE_CACHE;
+
+    static {
+        TEMPLATE_CACHE = new HashMap<>();
+    }
+
+    private FSAEncodingTemplates()
+    {
+    }
+
+    private static final class Template
+    {
+        private final CnfTemplate cnf;
+        private final AbstractFSAEncoding<?> prototype;
+
+        private Template(CnfTemplate cnf, AbstractFSAEncoding<?> prototype)
+        {
+            this.cnf = cnf;
+            this.prototype = prototype;
+        }
+    }
+
+    private static synchronized <S> Template getTemplate(int size, AlphabetIntEncoder<S> alphabetEncoding,
+        boolean restrictShape, boolean binaryEncoded, boolean numberBreadthFirst)
+    {
+        final ImmutableList<Object> key = Lists.immutable.with(size, alphabetEncoding.size(), restrictShape,
+                                                               binaryEncoded, numberBreadthFirst);
+        final var cache = TEMPLATE_CACHE.get(key);
+        Template cachedItem;
+        if (cache != null && (cachedItem = cache.get()) != null) {
+            Metrics.countCacheLookup("encoding-template", true);
+            return cachedItem;
+        }
+
+        Metrics.countCacheLookup("encoding-template", false);
+        final var recorder = new CnfRecorder();
+        final AbstractFSAEncoding<S> prototype = binaryEncoded
+                                                 ? new BinaryFSAEncoding<>(recorder, size, alphabetEncoding,
+                                                                           restrictShape, numberBreadthFirst)
+                                                 : new BasicFSAEncoding<>(recorder, size, alphabetEncoding,
+                                                                          restrictShape, numberBreadthFirst);
+        prototype.ensureNoDanglingState();
+        final var result = new Template(recorder.toTemplate(), prototype);
+        TEMPLATE_CACHE.put(key, new SoftReference<>(result));
+
+        return result;
+    }
+
+    /**
+     * Returns a new encoding on the given solver with no dangling state
+     * ensured already, the same as constructing one and then calling
+     * {@link FSAEncoding#ensureNoDanglingState()}.
+     */
+    static <S> FSAEncoding<S> instantiate(SatSolver solver, int size, AlphabetIntEncoder<S> alphabetEncoding,
+        boolean restrictShape, boolean binaryEncoded, boolean numberBreadthFirst)
+    {
+        final var template = getTemplate(size, alphabetEncoding, restrictShape, binaryEncoded, numberBreadthFirst);
+        final var offset = template.cnf.loadInto(solver);
+
+        return template.prototype.copyOnto(solver, alphabetEncoding, offset);
+    }
+}
@@ -7,16 +7,34 @@ import api.automata.fsa.LanguageSubsetChecker;
 import api.automata.fst.FST;
 import api.proof.Problem;
 import api.proof.Prover;
+import common.metrics.Metrics;
+import common.util.CancellationToken;
+import common.util.CancelledException;
 import common.util.InterruptException;
+import common.util.StateBudget;
+import common.util.StateExplosionException;
 import common.util.Stopwatch;
+import core.automata.fst.StarImageSaturation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.collections.api.list.ListIterable;
-import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
-import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.api.map.primitive.MutableIntIntMap;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.map.mutable.primitive.IntIntHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 import static common.util.Constants.DISPLAY_INDENT;
 import static common.util.Constants.NOT_IMPLEMENTED_YET;
+import static core.Parameters.INVARIANT_PREFETCH_DEPTH;
+import static core.Parameters.INVARIANT_PREFETCH_STATE_BUDGET;
 import static core.proof.CAV16MonoProver.checkBehaviorEnclosure;
 import static core.proof.CAV16MonoProver.checkInitConfigsEnclosure;
 
@@ -26,22 +44,35 @@ public class FairnessLearningBasedProver<S> extends AbstractProver<S> implements
 
     private final FST<S, S> allBehavior;
     private ListIterable<S> counterexample;
+    private LStarLearning learning = LStarLearnings.learner();
+
+    public FairnessLearningBasedProver(DerivedArtifacts<S> artifacts, boolean shapeInvariant, boolean shapeOrder,
+        boolean loosenInvariant)
+    {
+        super(artifacts, shapeInvariant, shapeOrder, loosenInvariant);
+
+        allBehavior = artifacts.allBehavior();
+    }
 
     public FairnessLearningBasedProver(Problem<S> problem, boolean shapeInvariant, boolean shapeOrder,
         boolean loosenInvariant)
     {
-        super(problem, shapeInvariant, shapeOrder, loosenInvariant);
+        this(DerivedArtifacts.of(problem), shapeInvariant, shapeOrder, loosenInvariant);
+    }
 
-        allBehavior = scheduler.compose(process, orderAlphabet);
+    public void setLearning(LStarLearning learning)
+    {
+        this.learning = learning;
     }
 
     @Override
     public void prove()
     {
         final var startTime = Stopwatch.currentThreadCpuTimeInMs();
-        try {
-            final var teacher = new InvariantOracle();
-            final var invariantOverApprox = LStarLearnings.learner().learn(roundAlphabet, teacher);
+        try (var binding = bindCancellation(); var budgetBinding = stateBudget.bindToCurrentThread();
+             var teacher = new InvariantOracle()) {
+            final var invariantOverApprox = learning.learn(roundAlphabet, teacher);
+            recordOutcome(Outcome.PROVED);
             final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
             System.out.println("A proof found under the search bound in " + timeSpent + "ms.");
             System.out.println();
@@ -51,24 +82,53 @@ public class FairnessLearningBasedProver<S> extends AbstractProver<S> implements
             System.out.println();
             System.out.println("PreStarFinalUnder " + teacher.currPreStarFinalUnderApprox);
         } catch (ProofCounterexampleFound e) {
+            recordOutcome(Outcome.COUNTEREXAMPLE_FOUND);
             final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
             System.out.println("A counterexample found in the precise invariant in " + timeSpent + "ms:");
             System.out.print(DISPLAY_INDENT + "-- " + counterexample);
+        } catch (CancelledException e) {
+            recordOutcome(outcomeOfCancellation());
+            final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
+            System.out.println("Proof search stopped (" + e.getMessage() + ").  " + timeSpent + "ms spent.");
+        } catch (StateExplosionException e) {
+            recordOutcome(Outcome.BUDGET_EXCEEDED);
+            final var timeSpent = Stopwatch.currentThreadCpuTimeInMs() - startTime;
+            System.out.println("Proof search stopped (state budget exceeded in " + e.getMessage() + ").  "
+                                   + timeSpent + "ms spent.");
         } catch (InterruptException e) {
             // should not happen
         }
     }
 
     @Override
-    public void verify()
+    public boolean verify()
     {
         throw new UnsupportedOperationException(NOT_IMPLEMENTED_YET);
     }
 
-    private class InvariantOracle implements LStarLearning.Teacher<S>
+    /**
+     * The teacher answering by the precise invariant on the length of the
+     * word asked, which is computed on demand and cached per length.  When a
+     * length is asked, the next few ones are computed ahead by the prefetching
+     * workers.  The invariants prefetched but not asked yet are kept within a
+     * number of states, by dropping the ones on the lengths farthest from the
+     * one asked.  The workers run under the cancellation token and the state
+     * budget of the thread creating the teacher.
+     * <p>
+     * The membership queries in a batch may already be answered in parallel
+     * on the common pool, which leaves a single processor to the learner;
+     * the workers only take the processors beyond the common pool.
+     */
+    private class InvariantOracle implements LStarLearning.Teacher<S>, AutoCloseable
     {
-        private final MutableIntObjectMap<FSA<S>> preciseInvariantScopeOnLength;
-        private FST<S, S> currPreStarStepping;
+        private final ConcurrentMap<Integer, FutureTask<FSA<S>>> preciseInvariantScopeOnLength;
+        private final ExecutorService prefetchingWorkers;
+        private final CancellationToken workerCancellation;
+        private final StateBudget workerStateBudget;
+        private final MutableIntSet askedLengths; // guarded by this
+        private final MutableIntIntMap unaskedPrefetchedStateNumbers; // guarded by this
+        private long unaskedPrefetchedStateNumber; // guarded by this
+        private final StarImageSaturation<S> preStarFinalSaturation;
         private FSA<S> currPreStarFinalUnderApprox;
         private int currPreStarSteppingCoverage;
         private boolean preStarFinalConverge;
@@ -76,43 +136,140 @@ public class FairnessLearningBasedProver<S> extends AbstractProver<S> implements
 
         private InvariantOracle()
         {
-            preciseInvariantScopeOnLength = new IntObjectHashMap<>();
+            preciseInvariantScopeOnLength = new ConcurrentHashMap<>();
+            final var spareProcessorNumber = Runtime.getRuntime().availableProcessors()
+                - ForkJoinPool.getCommonPoolParallelism() - 1;
+            final var workerNumber = Math.max(1, Math.min(INVARIANT_PREFETCH_DEPTH, spareProcessorNumber));
+            prefetchingWorkers = Executors.newFixedThreadPool(workerNumber, task -> {
+                final var thread = new Thread(task, "invariant-prefetch");
+                thread.setDaemon(true); // not to keep the JVM for the abandoned computations
+                return thread;
+            });
+            workerCancellation = CancellationToken.current();
+            workerStateBudget = StateBudget.current();
+            askedLengths = new IntHashSet();
+            unaskedPrefetchedStateNumbers = new IntIntHashMap();
+            preStarFinalSaturation = new StarImageSaturation<>(allBehavior.inverse(), finalConfigs, false);
             currPreStarFinalUnderApprox = finalConfigs;
             currPreStarSteppingCoverage = 0;
         }
 
+        private FutureTask<FSA<S>> preciseInvariantTask(int length, boolean prefetched)
+        {
+            return new FutureTask<>(() -> {
+                try (var binding = workerCancellation.bindToCurrentThread();
+                     var budgetBinding = workerStateBudget.bindToCurrentThread()) {
+                    final var result = allBehavior.postStarImageOnLength(initialConfigs, length);
+                    LOGGER.info(() -> "Precise invariant on length " + length + " computed in " + result.getTwo()
+                        + " steps.");
+                    if (prefetched) {
+                        recordPrefetched(length, result.getOne().states().size());
+                    }
+                    return result.getOne();
+                }
+            });
+        }
+
+        private synchronized void recordPrefetched(int length, int stateNumber)
+        {
+            if (!askedLengths.contains(length)) {
+                unaskedPrefetchedStateNumbers.put(length, stateNumber);
+                unaskedPrefetchedStateNumber += stateNumber;
+            }
+        }
+
+        private synchronized void recordAsked(int length)
+        {
+            askedLengths.add(length);
+            if (unaskedPrefetchedStateNumbers.containsKey(length)) {
+                unaskedPrefetchedStateNumber -= unaskedPrefetchedStateNumbers.removeKeyIfAbsent(length, 0);
+            }
+        }
+
+        /**
+         * Drops the invariants prefetched but not asked yet on the lengths
+         * farthest from the given one, until they are within the budget.
+         *
+         * @return whether there is budget left to prefetch more
+         */
+        private synchronized boolean evictUnaskedPrefetched(int requestedLength)
+        {
+            while (unaskedPrefetchedStateNumber >= INVARIANT_PREFETCH_STATE_BUDGET
+                && unaskedPrefetchedStateNumbers.notEmpty()) {
+                final var longest = unaskedPrefetchedStateNumbers.keySet().max();
+                final var shortest = unaskedPrefetchedStateNumbers.keySet().min();
+                final var farthestLength = longest - requestedLength > requestedLength - shortest ? longest : shortest;
+                unaskedPrefetchedStateNumber -= unaskedPrefetchedStateNumbers.removeKeyIfAbsent(farthestLength, 0);
+                preciseInvariantScopeOnLength.remove(farthestLength);
+                Metrics.count("invariant.evicted");
+            }
+
+            return unaskedPrefetchedStateNumber < INVARIANT_PREFETCH_STATE_BUDGET;
+        }
+
+        private void prefetchPreciseInvariants(int requestedLength)
+        {
+            for (var length = requestedLength + 1; length <= requestedLength + INVARIANT_PREFETCH_DEPTH; length++) {
+                if (!evictUnaskedPrefetched(requestedLength)) {
+                    return;
+                }
+                final var task = preciseInvariantTask(length, true);
+                if (preciseInvariantScopeOnLength.putIfAbsent(length, task) == null) {
+                    Metrics.count("invariant.prefetched");
+                    prefetchingWorkers.execute(task);
+                }
+            }
+        }
+
+        private FSA<S> preciseInvariantOnLength(int length)
+        {
+            recordAsked(length);
+            final var task = preciseInvariantScopeOnLength.computeIfAbsent(length,
+                                                                           key -> preciseInvariantTask(key, false));
+            prefetchPreciseInvariants(length);
+            task.run(); // does nothing if started by a worker already
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancelledException("thread interrupted");
+            }
+        }
+
         @Override
         public boolean targetAccepts(ListIterable<S> word)
         {
-            final var length = word.size();
+            return preciseInvariantOnLength(word.size()).accepts(word);
+        }
+
+        @Override
+        public boolean isThreadSafe()
+        {
+            return true;
+        }
 
-            return preciseInvariantScopeOnLength.getIfAbsentPut(length, () -> {
-                final var result = allBehavior.postStarImageOnLength(initialConfigs, length);
-                LOGGER.info(
-                    () -> "Precise invariant on length " + length + " computed in " + result.getTwo() + " steps.");
-                return result.getOne();
-            }).accepts(word);
+        @Override
+        public void close()
+        {
+            prefetchingWorkers.shutdownNow();
         }
 
         private void extendPreStarFinalUnderApprox()
         {
             LOGGER.info("Extend Pre*(F) under at thread time {}ms.", //
                         () -> (profilingStartTime = Stopwatch.currentThreadCpuTimeInMs()));
-            if (currPreStarSteppingCoverage == 0) {
-                currPreStarStepping = allBehavior.inverse();
-                currPreStarSteppingCoverage = 1;
-            } else {
-                currPreStarStepping = currPreStarStepping.compose(currPreStarStepping, currPreStarStepping.alphabet())
-                                                         .union(allBehavior.inverse()); // cover step 2^{0 ~ i}
-                currPreStarSteppingCoverage = currPreStarSteppingCoverage * 2;
-            }
-            final var extended = currPreStarStepping.postImage(currPreStarFinalUnderApprox) // step 2^{0 ~ i}
-                                                    .union(finalConfigs); // step 0
-            if (currPreStarFinalUnderApprox.checkContaining(extended).passed()) {
-                preStarFinalConverge = true;
-            } else {
-                currPreStarFinalUnderApprox = extended.determinize();
-            }
+            preStarFinalSaturation.saturate(Math.max(currPreStarSteppingCoverage, 1)); // cover step 2^{0 ~ i}
+            currPreStarSteppingCoverage = preStarFinalSaturation.steps();
+            preStarFinalConverge = preStarFinalSaturation.hasConverged();
+            currPreStarFinalUnderApprox = preStarFinalSaturation.image();
             LOGGER.info(() -> "Pre*(F) under " + currPreStarSteppingCoverage + " steps (" +
                 (preStarFinalConverge ? "" : "yet ") + "converged) computed in " +
                 (Stopwatch.currentThreadCpuTimeInMs() - profilingStartTime) + "ms.");
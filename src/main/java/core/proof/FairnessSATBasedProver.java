@@ -1,5 +1,6 @@
 package core.proof;
 
+import api.automata.AlphabetIntEncoder;
 import api.automata.AlphabetIntEncoders;
 import api.automata.Alphabets;
 import api.automata.fsa.FSA;
@@ -8,16 +9,20 @@ import api.automata.fsa.MutableFSA;
 import api.automata.fst.FST;
 import api.automata.fst.FSTs;
 import api.proof.*;
+import common.metrics.Probes;
+import common.util.CancellationToken;
 import common.util.ContradictionException;
+import common.util.StateExplosionException;
+import common.util.Stopwatch;
+import common.util.TimeoutException;
 import common.sat.SatSolver;
+import common.sat.SatSolver.CardinalityEncoding;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.tuple.Pair;
 import org.eclipse.collections.impl.tuple.Tuples;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import static common.util.Constants.DISPLAY_NEWLINE;
 import static core.proof.CAV16MonoProver.*;
 
@@ -28,26 +33,59 @@ public class FairnessSATBasedProver<S> extends AbstractProver<S> implements Prov
 
     private final FST<S, S> allBehavior;
     private final FSA<S> matteringConfigs;
+    private final AlphabetIntEncoder<S> invSymbolEncoding;
+    private final AlphabetIntEncoder<Pair<S, S>> ordSymbolEncoding;
+    private final CounterexampleBus learnedViolations = new CounterexampleBus();
+    private final LearnedConstraintStore<LanguageSubsetChecker.Counterexample<S>> l1KnownViolations =
+        learnedViolations.newStore("init", v -> v.witness());
+    private final LearnedConstraintStore<BehaviorEnclosureChecker.Counterexample<S>> l2KnownViolations =
+        learnedViolations.newStore("behavior", v -> v.breakingStep());
+    private final LearnedConstraintStore<TransitivityChecker.Counterexample<S>> l3KnownViolations =
+        learnedViolations.newStore("transitivity", v -> Tuples.pair(v.breakingStep(), v.validMiddleSteps().toSet()),
+                                   v -> v.breakingStep(), // more middle steps, more constraints
+                                   (v1, v2) -> v1.validMiddleSteps().toSet()
+                                                 .containsAllIterable(v2.validMiddleSteps()));
+    private final LearnedConstraintStore<FairnessProgressivityChecker.Counterexample<S>> l4KnownViolations =
+        learnedViolations.newStore("progressivity",
+                                   v -> Tuples.pair(v.fruitlessStep(), v.possibleProgressSteps().toSet()),
+                                   v -> v.fruitlessStep(), // fewer progress steps, stronger constraint
+                                   (v1, v2) -> v2.possibleProgressSteps().toSet()
+                                                 .containsAllIterable(v1.possibleProgressSteps()));
 
     static {
         FAIRNESS_PROGRESSIVITY_CHECKER = new BasicFairnessProgressivityChecker();
     }
 
-    public FairnessSATBasedProver(Problem<S> problem, boolean shapeInvariant, boolean shapeOrder,
-        boolean loosenInvariant)
+    public FairnessSATBasedProver(DerivedArtifacts<S> artifacts, boolean shapeInvariant, boolean shapeOrder,
+        boolean loosenInvariant, boolean binaryInvariant, boolean binaryOrder, boolean breadthFirstNumbering,
+        CardinalityEncoding cardinalityEncoding)
     {
-        super(problem, shapeInvariant, shapeOrder, loosenInvariant);
+        super(artifacts, shapeInvariant, shapeOrder, loosenInvariant, binaryInvariant, binaryOrder,
+              breadthFirstNumbering, cardinalityEncoding);
 
-        allBehavior = scheduler.compose(process, orderAlphabet);
+        allBehavior = artifacts.allBehavior();
         LOGGER.debug("All behaviour computed: " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", allBehavior);
-        final var allBehaviorDomain = allBehavior.domain();
-        matteringConfigs = allBehaviorDomain.intersect(nonfinalConfigs);
+        matteringConfigs = artifacts.matteringConfigs();
+        invSymbolEncoding = AlphabetIntEncoders.create(roundAlphabet);
+        ordSymbolEncoding = AlphabetIntEncoders.create(orderAlphabet);
+    }
+
+    public FairnessSATBasedProver(Problem<S> problem, boolean shapeInvariant, boolean shapeOrder,
+        boolean loosenInvariant, boolean binaryInvariant, boolean binaryOrder, boolean breadthFirstNumbering,
+        CardinalityEncoding cardinalityEncoding)
+    {
+        this(DerivedArtifacts.of(problem), shapeInvariant, shapeOrder, loosenInvariant, binaryInvariant, binaryOrder,
+             breadthFirstNumbering, cardinalityEncoding);
     }
 
     private static <S> FairnessProgressivityChecker.Result<S> checkProgressivity(FST<S, S> behavior,
         FSA<S> matteringConfigs, FSA<S> invariant, FST<S, S> order)
     {
-        return FAIRNESS_PROGRESSIVITY_CHECKER.test(behavior, matteringConfigs, invariant, order);
+        final var startTime = System.nanoTime();
+        final var result = FAIRNESS_PROGRESSIVITY_CHECKER.test(behavior, matteringConfigs, invariant, order);
+        Probes.check(Probes.L4, startTime, result.passed());
+
+        return result;
     }
 
     private static <S> void refineProgressivity(SatSolver solver, FSAEncoding<S> invariantEncoding,
@@ -71,11 +109,11 @@ public class FairnessSATBasedProver<S> extends AbstractProver<S> implements Prov
         solver.addClauseIf(takenX, takenAtLeastOneXY.toArray());
     }
 
-    private void addLearnedConstraints(FSAEncoding<S> invEnc, FSAEncoding<Pair<S, S>> ordEnc,
-        List<LanguageSubsetChecker.Counterexample<S>> l1KnownViolations,
-        List<BehaviorEnclosureChecker.Counterexample<S>> l2KnownViolations,
-        List<TransitivityChecker.Counterexample<S>> l3KnownViolations,
-        List<FairnessProgressivityChecker.Counterexample<S>> l4KnownViolations)
+    private void addLearnedConstraints(SatSolver solver, FSAEncoding<S> invEnc, FSAEncoding<Pair<S, S>> ordEnc,
+        ListIterable<LanguageSubsetChecker.Counterexample<S>> l1KnownViolations,
+        ListIterable<BehaviorEnclosureChecker.Counterexample<S>> l2KnownViolations,
+        ListIterable<TransitivityChecker.Counterexample<S>> l3KnownViolations,
+        ListIterable<FairnessProgressivityChecker.Counterexample<S>> l4KnownViolations)
     {
         LOGGER.info("Adding learned constraints: {}, {}, {}, {} ..", //
                     l1KnownViolations::size, l2KnownViolations::size, l3KnownViolations::size, l4KnownViolations::size);
@@ -89,109 +127,159 @@ public class FairnessSATBasedProver<S> extends AbstractProver<S> implements Prov
     @Override
     public void prove()
     {
-        final var invSymbolEncoding = AlphabetIntEncoders.create(roundAlphabet);
-        final var ordSymbolEncoding = AlphabetIntEncoders.create(orderAlphabet);
-
         // having empty string excluded makes searching from 0 or 1 meaningless
         invariantSizeBegin = invariantSizeBegin < 1 ? 1 : invariantSizeBegin;
         orderSizeBegin = orderSizeBegin < 2 ? 2 : orderSizeBegin;
 
-        final List<LanguageSubsetChecker.Counterexample<S>> l1KnownViolations = new LinkedList<>();
-        final List<BehaviorEnclosureChecker.Counterexample<S>> l2KnownViolations = new LinkedList<>();
-        final List<TransitivityChecker.Counterexample<S>> l3KnownViolations = new LinkedList<>();
-        final List<FairnessProgressivityChecker.Counterexample<S>> l4KnownViolations = new LinkedList<>();
+        learnedViolations.clear();
+        search(Cell::new);
+        LOGGER.info("Counterexamples learned: {}", learnedViolations);
+    }
+
+    private class Cell implements GridCell<S>
+    {
+        private final SatSolver solver = newSolver();
+        private final FSAEncoding<S> invEnc;
+        private final FSAEncoding<Pair<S, S>> ordEnc;
+        private int l1Imported;
+        private int l2Imported;
+        private int l3Imported;
+        private int l4Imported;
+        private Pair<FSA<S>, FST<S, S>> proof;
 
-        search((invSize, ordSize) -> {
+        private Cell(int invSize, int ordSize)
+        {
             LOGGER.info("Searching in state spaces {} & {} ..", invSize, ordSize);
 
-            final var invEnc = newFSAEncoding(solver, invSize, invSymbolEncoding, shapeInvariant);
-            final var ordEnc = newFSAEncoding(solver, ordSize, ordSymbolEncoding, shapeOrder);
+            invEnc = newFSAEncoding(solver, invSize, invSymbolEncoding, shapeInvariant, binaryInvariant,
+                                    breadthFirstNumbering);
+            ordEnc = newFSAEncoding(solver, ordSize, ordSymbolEncoding, shapeOrder, binaryOrder,
+                                    breadthFirstNumbering);
             ordEnc.ensureNoWordPurelyMadeOf(orderReflexiveSymbols);
+        }
 
-            var contradiction = false;
-            try {
-                addLearnedConstraints(invEnc, ordEnc, l1KnownViolations, l2KnownViolations, l3KnownViolations,
-                                      l4KnownViolations);
-            } catch (ContradictionException e) {
-                LOGGER.info("Trivial contradiction found when applying learned constraints.");
-                contradiction = true;
+        private void importLearnedConstraints()
+        {
+            final var l1 = l1KnownViolations.pullSince(l1Imported);
+            final var l2 = l2KnownViolations.pullSince(l2Imported);
+            final var l3 = l3KnownViolations.pullSince(l3Imported);
+            final var l4 = l4KnownViolations.pullSince(l4Imported);
+            if (l1.counterexamples().notEmpty() || l2.counterexamples().notEmpty()
+                || l3.counterexamples().notEmpty() || l4.counterexamples().notEmpty()) {
+                addLearnedConstraints(solver, invEnc, ordEnc, l1.counterexamples(), l2.counterexamples(),
+                                      l3.counterexamples(), l4.counterexamples());
             }
 
+            // up to where the stores are read, which is past the entries dropped there too
+            l1Imported = l1.sequence();
+            l2Imported = l2.sequence();
+            l3Imported = l3.sequence();
+            l4Imported = l4.sequence();
+        }
+
+        @Override
+        public Pair<FSA<S>, FST<S, S>> proof()
+        {
+            return proof;
+        }
+
+        @Override
+        public CellStatus runUntil(long deadline)
+        {
             LanguageSubsetChecker.Result<S> l1;
             BehaviorEnclosureChecker.Result<S> l2;
             TransitivityChecker.Result<S> l3;
             LanguageSubsetChecker.Result<S> l4Precheck;
             FairnessProgressivityChecker.Counterexample<S> l4PrecheckViolation;
             FairnessProgressivityChecker.Result<S> l4;
-            while (!contradiction && solver.findItSatisfiable()) {
-                contradiction = false;
-                final var invCand = invEnc.resolve();
-                final var ordCand = FSTs.castFrom((MutableFSA<Pair<S, S>>) ordEnc.resolve());
-
-                LOGGER.debug("Invariant candidate: " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", invCand);
-                LOGGER.debug("Order candidate (>): " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", ordCand);
-
-                if ((l1 = checkInitConfigsEnclosure(initialConfigs, invCand)).rejected()) {
-                    LOGGER.debug("Initial configurations enclosed: {}", l1);
-                    l1KnownViolations.add(l1.counterexample());
-                    refineInitConfigsEncloser(invEnc, l1.counterexample());
-                }
-                if ((l2 = checkBehaviorEnclosure(allBehavior, invCand)).rejected()) {
-                    LOGGER.debug("Transition behavior enclosed: {}", l2);
-                    l2KnownViolations.add(l2.counterexample());
-                    refineBehaviorEncloser(solver, invEnc, l2.counterexample());
-                }
-                if ((l3 = checkTransitivity(ordCand)).rejected()) {
-                    LOGGER.debug("Strict pre-order relation: {}", l3);
-                    l3KnownViolations.add(l3.counterexample());
-                    refineTransitivity(solver, ordEnc, l3.counterexample());
-                }
-                if (!loosenInvariant && (l4Precheck = schedulerOperatesOnAllNonfinalInvariants(invCand)).rejected()) {
-                    final var v = l4Precheck.counterexample().witness();
-                    l4PrecheckViolation = new BasicFairnessProgressivityChecker.Counterexample<>(allBehavior, v);
-                    l4 = new BasicFairnessProgressivityChecker.Result<>(false, l4PrecheckViolation);
-                } else {
-                    l4 = checkProgressivity(allBehavior, matteringConfigs, invCand, ordCand);
-                }
-                if (l4.rejected()) {
-                    LOGGER.debug("Progressivity: {}", l4);
-                    l4KnownViolations.add(l4.counterexample());
+            try {
+                while (true) {
+                    CancellationToken.checkpoint();
+
+                    // pick up what has been learned since the last SAT call, by this cell or any other
                     try {
-                        refineProgressivity(solver, invEnc, ordEnc, l4.counterexample());
+                        importLearnedConstraints();
                     } catch (ContradictionException e) {
-                        LOGGER.info("Trivial contradiction found when applying CE4.");
-                        contradiction = true;
+                        LOGGER.info("Trivial contradiction found when applying learned constraints.");
+                        return CellStatus.NO_SOLUTION;
+                    }
+
+                    final var timeLeft = deadline - Stopwatch.epochTimeInMs();
+                    if (timeLeft <= 0) {
+                        return CellStatus.SUSPENDED;
+                    }
+                    solver.setTimeoutInMs(timeLeft);
+                    countSatCall();
+                    if (!solver.findItSatisfiable()) {
+                        return CellStatus.NO_SOLUTION;
+                    }
+                    final var invCand = invEnc.resolve();
+                    final var ordCand = FSTs.castFrom((MutableFSA<Pair<S, S>>) ordEnc.resolve());
+
+                    LOGGER.debug("Invariant candidate: " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", invCand);
+                    LOGGER.debug("Order candidate (>): " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", ordCand);
+
+                    if ((l1 = checkInitConfigsEnclosure(initialConfigs, invCand)).rejected()) {
+                        LOGGER.debug("Initial configurations enclosed: {}", l1);
+                        l1KnownViolations.publish(l1.counterexample());
+                    }
+                    if ((l2 = checkBehaviorEnclosure(allBehavior, invCand)).rejected()) {
+                        LOGGER.debug("Transition behavior enclosed: {}", l2);
+                        l2KnownViolations.publish(l2.counterexample());
+                    }
+                    if ((l3 = checkTransitivity(ordCand)).rejected()) {
+                        LOGGER.debug("Strict pre-order relation: {}", l3);
+                        l3KnownViolations.publish(l3.counterexample());
+                    }
+                    if (!loosenInvariant
+                        && (l4Precheck = schedulerOperatesOnAllNonfinalInvariants(invCand)).rejected()) {
+                        final var v = l4Precheck.counterexample().witness();
+                        l4PrecheckViolation = new BasicFairnessProgressivityChecker.Counterexample<>(allBehavior, v);
+                        l4 = new BasicFairnessProgressivityChecker.Result<>(false, l4PrecheckViolation);
+                    } else {
+                        l4 = checkProgressivity(allBehavior, matteringConfigs, invCand, ordCand);
+                    }
+                    if (l4.rejected()) {
+                        LOGGER.debug("Progressivity: {}", l4);
+                        l4KnownViolations.publish(l4.counterexample());
                     }
-                }
 
-                LOGGER.info("Rules checked: {} {} {} {}", l1.passed(), l2.passed(), l3.passed(), l4.passed());
-                if (l1.passed() && l2.passed() && l3.passed() && l4.passed()) {
-                    return Tuples.pair(invCand, ordCand);
+                    LOGGER.info("Rules checked: {} {} {} {}", l1.passed(), l2.passed(), l3.passed(), l4.passed());
+                    if (l1.passed() && l2.passed() && l3.passed() && l4.passed()) {
+                        proof = Tuples.pair(invCand, ordCand);
+                        return CellStatus.PROVED;
+                    }
                 }
+            } catch (TimeoutException e) {
+                return CellStatus.SUSPENDED;
+            } catch (StateExplosionException e) {
+                LOGGER.info("State budget exceeded in {}.", e::getMessage);
+                return CellStatus.ABANDONED;
             }
-
-            solver.reset();
-            return null;
-        });
+        }
     }
 
     @Override
-    public void verify()
+    public boolean verify()
     {
-        final var invCand = givenInvariant.determinize().minimize();
-        final var ordCand = givenOrder;
+        try (var binding = bindCancellation(); var budgetBinding = stateBudget.bindToCurrentThread()) {
+            final var invCand = givenInvariant.determinize().minimize();
+            final var ordCand = givenOrder;
 
-        final var l1 = checkInitConfigsEnclosure(initialConfigs, invCand).toString();
-        final var l2 = checkBehaviorEnclosure(allBehavior, invCand).toString();
-        final var l3 = checkTransitivity(ordCand).toString();
-        final var l4 = checkProgressivity(allBehavior, nonfinalConfigs, invCand, ordCand).toString();
+            final var l1 = checkInitConfigsEnclosure(initialConfigs, invCand);
+            final var l2 = checkBehaviorEnclosure(allBehavior, invCand);
+            final var l3 = checkTransitivity(ordCand);
+            final var l4 = checkProgressivity(allBehavior, nonfinalConfigs, invCand, ordCand);
 
-        LOGGER.debug("Invariant candidate: " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", invCand);
-        LOGGER.debug("Order candidate (>): " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", ordCand);
+            LOGGER.debug("Invariant candidate: " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", invCand);
+            LOGGER.debug("Order candidate (>): " + DISPLAY_NEWLINE + DISPLAY_NEWLINE + "{}", ordCand);
 
-        System.out.println("Initial configurations enclosed: " + l1);
-        System.out.println("All behavior enclosed: " + l2);
-        System.out.println("Strict pre-order relation: " + l3);
-        System.out.println("Progressivity: " + l4);
+            System.out.println("Initial configurations enclosed: " + l1);
+            System.out.println("All behavior enclosed: " + l2);
+            System.out.println("Strict pre-order relation: " + l3);
+            System.out.println("Progressivity: " + l4);
+
+            return l1.passed() && l2.passed() && l3.passed() && l4.passed();
+        }
     }
 }
@@ -0,0 +1,250 @@
+package core.proof;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.tuple.primitive.IntIntPair;
+import org.eclipse.collections.impl.tuple.primitive.PrimitiveTuples;
+
+/**
+ * Decides in which order the cells of the (invariant size, order size)
+ * search grid are tried.
+ * <p>
+ * The automata searched are deterministic and have no dangling state.  One
+ * accepting infinitely many words can be padded with one more state without
+ * changing its language, by copying the state where a cycle is entered and
+ * closing the cycle on the copy instead.  One accepting finitely many words
+ * cannot always be: no such automaton with three states accepts {a}.  The
+ * padding does not keep the linear shape restriction either.  So only for
+ * a size whose solutions all accept infinitely many words, searched without
+ * the shape restriction, a cell found with no solution leaves no solution
+ * in the cells smaller in that size either, as the learned constraints only
+ * grow.  Such cells are skipped with the reason recorded, and so are the
+ * cells suspended before being decided.  The other sizes are taken as is.
+ * <p>
+ * The next cell is the one with the least estimated cost per undecided
+ * cell it would decide.  The cost is estimated by fitting {@code c * f^e} to the
+ * times taken by the cells already tried, where {@code f} is the stabilizer
+ * factor {@code invSize^2 + ordSize^2}; a quadratic growth is assumed until
+ * enough cells are tried.
+ */
+final class GridSearchScheduler
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final double ASSUMED_COST_EXPONENT = 2.0;
+
+    private final int invariantSizeBegin;
+    private final int orderSizeBegin;
+    private final boolean invariantPaddable;
+    private final boolean orderPaddable;
+    private final String[][] skipReasons;
+    private final boolean[][] pending; // not tried yet
+    private final boolean[][] suspended; // tried but not decided yet
+    private int pendingNumber;
+
+    // for the least-squares fitting in log-log scale
+    private int triedNumber;
+    private double sumLogFactor;
+    private double sumLogTime;
+    private double sumLogFactorSquared;
+    private double sumLogFactorLogTime;
+
+    /**
+     * @param invariantPaddable whether every invariant in a solution accepts
+     *                          infinitely many words, and is searched without
+     *                          a shape restriction
+     * @param orderPaddable     the same of the orders
+     */
+    GridSearchScheduler(int invariantSizeBegin, int invariantSizeEnd, int orderSizeBegin, int orderSizeEnd,
+        boolean invariantPaddable, boolean orderPaddable)
+    {
+        this.invariantSizeBegin = invariantSizeBegin;
+        this.orderSizeBegin = orderSizeBegin;
+        this.invariantPaddable = invariantPaddable;
+        this.orderPaddable = orderPaddable;
+
+        final var invRange = Math.max(0, invariantSizeEnd - invariantSizeBegin + 1);
+        final var ordRange = Math.max(0, orderSizeEnd - orderSizeBegin + 1);
+        skipReasons = new String[invRange][ordRange];
+        pending = new boolean[invRange][ordRange];
+        suspended = new boolean[invRange][ordRange];
+        for (var i = 0; i < invRange; i++) {
+            for (var j = 0; j < ordRange; j++) {
+                if (stabilizerFactor(i, j) > 0) { // nothing to search with both sizes zero
+                    pending[i][j] = true;
+                    pendingNumber++;
+                }
+            }
+        }
+    }
+
+    private int stabilizerFactor(int i, int j)
+    {
+        final var invSize = invariantSizeBegin + i;
+        final var ordSize = orderSizeBegin + j;
+
+        return invSize * invSize + ordSize * ordSize;
+    }
+
+    private boolean dominates(int i, int j, int otherI, int otherJ)
+    {
+        return (otherI == i || invariantPaddable && otherI < i) && (otherJ == j || orderPaddable && otherJ < j);
+    }
+
+    private boolean isUndecided(int i, int j)
+    {
+        return pending[i][j] || suspended[i][j];
+    }
+
+    private int countDominatedUndecided(int i, int j)
+    {
+        var count = 0;
+        for (var otherI = 0; otherI < pending.length; otherI++) {
+            for (var otherJ = 0; otherJ < pending[otherI].length; otherJ++) {
+                if (isUndecided(otherI, otherJ) && dominates(i, j, otherI, otherJ)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private double costExponent()
+    {
+        final var denominator = triedNumber * sumLogFactorSquared - sumLogFactor * sumLogFactor;
+        if (triedNumber < 2 || denominator < 1e-9) { // no distinct factors tried yet
+            return ASSUMED_COST_EXPONENT;
+        }
+        final var slope = (triedNumber * sumLogFactorLogTime - sumLogFactor * sumLogTime) / denominator;
+
+        return Math.max(1.0, slope); // never cheaper for a larger cell
+    }
+
+    boolean hasNext()
+    {
+        return pendingNumber > 0;
+    }
+
+    /**
+     * Returns the (invariant size, order size) of the cell to try next among
+     * those not tried yet.
+     */
+    IntIntPair next()
+    {
+        if (pendingNumber == 0) {
+            throw new IllegalStateException("no pending cell");
+        }
+
+        // the constant of the fitted cost is irrelevant to the comparison
+        final var exponent = costExponent();
+        var bestI = -1;
+        var bestJ = -1;
+        var bestScore = Double.POSITIVE_INFINITY;
+        var bestFactor = Integer.MAX_VALUE;
+        for (var i = 0; i < pending.length; i++) {
+            for (var j = 0; j < pending[i].length; j++) {
+                if (!pending[i][j]) {
+                    continue;
+                }
+                final var factor = stabilizerFactor(i, j);
+                final var score = Math.pow(factor, exponent) / countDominatedUndecided(i, j);
+                if (score < bestScore || score == bestScore && factor < bestFactor) {
+                    bestI = i;
+                    bestJ = j;
+                    bestScore = score;
+                    bestFactor = factor;
+                }
+            }
+        }
+
+        return PrimitiveTuples.pair(invariantSizeBegin + bestI, orderSizeBegin + bestJ);
+    }
+
+    private void markTried(int i, int j)
+    {
+        if (pending[i][j]) {
+            pending[i][j] = false;
+            pendingNumber--;
+        }
+    }
+
+    /**
+     * Records that the given cell has been tried without being decided, so
+     * it is left to be revisited later.
+     */
+    void recordSuspended(int invSize, int ordSize)
+    {
+        final var i = invSize - invariantSizeBegin;
+        final var j = ordSize - orderSizeBegin;
+        markTried(i, j);
+        suspended[i][j] = true;
+    }
+
+    /**
+     * Records that the given cell has been given up without being decided,
+     * which implies nothing about the other cells.
+     */
+    void recordAbandoned(int invSize, int ordSize)
+    {
+        final var i = invSize - invariantSizeBegin;
+        final var j = ordSize - orderSizeBegin;
+        markTried(i, j);
+        suspended[i][j] = false;
+    }
+
+    /**
+     * Records that no solution exists in the given cell, which took the given
+     * time to find out in total.
+     */
+    void recordNoSolution(int invSize, int ordSize, long timeSpentInMs)
+    {
+        final var i = invSize - invariantSizeBegin;
+        final var j = ordSize - orderSizeBegin;
+        markTried(i, j);
+        suspended[i][j] = false;
+
+        final var logFactor = Math.log(stabilizerFactor(i, j));
+        final var logTime = Math.log(Math.max(1L, timeSpentInMs));
+        triedNumber++;
+        sumLogFactor += logFactor;
+        sumLogTime += logTime;
+        sumLogFactorSquared += logFactor * logFactor;
+        sumLogFactorLogTime += logFactor * logTime;
+
+        final var reason = "no solution in state spaces " + invSize + " & " + ordSize;
+        for (var otherI = 0; otherI < pending.length; otherI++) {
+            for (var otherJ = 0; otherJ < pending[otherI].length; otherJ++) {
+                if (isUndecided(otherI, otherJ) && dominates(i, j, otherI, otherJ)) {
+                    markTried(otherI, otherJ);
+                    suspended[otherI][otherJ] = false;
+                    skipReasons[otherI][otherJ] = reason;
+                    LOGGER.info("Skipping state spaces {} & {}: {}", invariantSizeBegin + otherI,
+                                orderSizeBegin + otherJ, reason);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns why the given cell was skipped, or null if it was not.
+     */
+    String skipReasonOf(int invSize, int ordSize)
+    {
+        return skipReasons[invSize - invariantSizeBegin][ordSize - orderSizeBegin];
+    }
+
+    int skippedNumber()
+    {
+        var count = 0;
+        for (var row : skipReasons) {
+            for (var reason : row) {
+                if (reason != null) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,246 @@
+package core.proof;
+
+import org.eclipse.collections.api.block.function.Function;
+import org.eclipse.collections.api.block.predicate.Predicate2;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.list.mutable.FastList;
+import org.eclipse.collections.impl.map.mutable.UnifiedMap;
+
+/**
+ * Keeps the counterexamples of one kind learned during a proof search, each
+ * of which is turned into constraints by the cells importing it.
+ * <p>
+ * The entries are numbered in the order published, so a cell only needs to
+ * remember how far it has imported to pull the new ones.  An entry whose
+ * witness is the same as a kept one is dropped.  Within the same group, an
+ * entry implied by a kept one is dropped as well, and the kept entries
+ * implied by a new one stop being handed out.  With a capacity given, the
+ * entry hit the least by later findings (then the oldest) is evicted when
+ * it is exceeded.  The entries dropped in any way are forgotten entirely,
+ * so they are accepted again if found again.
+ * <p>
+ * The methods are synchronized, so the cells can run on different threads.
+ *
+ * @param <C> the counterexample type
+ */
+final class LearnedConstraintStore<C>
+{
+    private final String kind;
+    private final Function<? super C, ?> witnessOf;
+    private final Function<? super C, ?> groupOf;
+    private final Predicate2<? super C, ? super C> implication;
+    private final int capacity;
+
+    private final MutableList<Entry<C>> entries = FastList.newList(); // indexed by sequence, null if dropped
+    private final MutableMap<Object, Entry<C>> entryByWitness = UnifiedMap.newMap();
+    private final MutableMap<Object, MutableList<Entry<C>>> entriesByGroup = UnifiedMap.newMap();
+    private int keptNumber;
+    private int duplicateNumber;
+    private int impliedNumber;
+    private int supersededNumber;
+    private int evictedNumber;
+
+    private static final class Entry<C>
+    {
+        private final int sequence;
+        private final C counterexample;
+        private final Object witness;
+        private final Object group;
+        private int hitNumber;
+
+        private Entry(int sequence, C counterexample, Object witness, Object group)
+        {
+            this.sequence = sequence;
+            this.counterexample = counterexample;
+            this.witness = witness;
+            this.group = group;
+        }
+    }
+
+    /**
+     * @param witnessOf   gives the part deciding the constraints of a
+     *                    counterexample, compared by equality
+     * @param groupOf     gives the part deciding which entries are compared
+     *                    for implication
+     * @param implication tells if the constraints of the first entry imply
+     *                    the ones of the second, in the same group
+     * @param capacity    the maximum number of kept entries, or zero for no
+     *                    limit
+     */
+    LearnedConstraintStore(String kind, Function<? super C, ?> witnessOf, Function<? super C, ?> groupOf,
+        Predicate2<? super C, ? super C> implication, int capacity)
+    {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity cannot be negative");
+        }
+
+        this.kind = kind;
+        this.witnessOf = witnessOf;
+        this.groupOf = groupOf;
+        this.implication = implication;
+        this.capacity = capacity;
+    }
+
+    LearnedConstraintStore(String kind, Function<? super C, ?> witnessOf, int capacity)
+    {
+        this(kind, witnessOf, witnessOf, (stronger, weaker) -> false, capacity);
+    }
+
+    private void drop(Entry<C> entry)
+    {
+        entries.set(entry.sequence, null);
+        entryByWitness.remove(entry.witness);
+        final var group = entriesByGroup.get(entry.group);
+        group.remove(entry);
+        if (group.isEmpty()) {
+            entriesByGroup.remove(entry.group);
+        }
+        keptNumber--;
+    }
+
+    private void evictLeastUseful(Entry<C> spared)
+    {
+        Entry<C> victim = null;
+        for (var entry : entries) {
+            if (entry == null || entry == spared) {
+                continue;
+            }
+            if (victim == null || entry.hitNumber < victim.hitNumber) {
+                victim = entry; // the oldest one first among the ties
+            }
+        }
+        drop(victim);
+        evictedNumber++;
+    }
+
+    /**
+     * Adds the given counterexample unless it is a duplicate of, or implied
+     * by, a kept one.
+     *
+     * @return whether it is added
+     */
+    synchronized boolean publish(C counterexample)
+    {
+        final var witness = witnessOf.valueOf(counterexample);
+        final var sameOne = entryByWitness.get(witness);
+        if (sameOne != null) {
+            sameOne.hitNumber++;
+            duplicateNumber++;
+            return false;
+        }
+        final var group = groupOf.valueOf(counterexample);
+        final var sameGroup = entriesByGroup.getIfAbsentValue(group, Lists.mutable.empty());
+        for (var entry : sameGroup) {
+            if (implication.accept(entry.counterexample, counterexample)) {
+                entry.hitNumber++;
+                impliedNumber++;
+                return false;
+            }
+        }
+        for (var entry : sameGroup.select(kept -> implication.accept(counterexample, kept.counterexample))) {
+            drop(entry);
+            supersededNumber++;
+        }
+
+        final var added = new Entry<C>(entries.size(), counterexample, witness, group);
+        entries.add(added);
+        entryByWitness.put(witness, added);
+        entriesByGroup.getIfAbsentPut(group, FastList::new).add(added);
+        keptNumber++;
+        if (capacity > 0 && keptNumber > capacity) {
+            evictLeastUseful(added); // the publisher relies on it being handed out
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the sequence number the next published entry will take.
+     */
+    synchronized int sequence()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of the entries kept.
+     */
+    synchronized int size()
+    {
+        return keptNumber;
+    }
+
+    /**
+     * The entries pulled from a store, with the sequence number to pull from
+     * next time.
+     */
+    static final class Pulled<C>
+    {
+        private final ImmutableList<C> counterexamples;
+        private final int sequence;
+
+        private Pulled(ImmutableList<C> counterexamples, int sequence)
+        {
+            this.counterexamples = counterexamples;
+            this.sequence = sequence;
+        }
+
+        ImmutableList<C> counterexamples()
+        {
+            return counterexamples;
+        }
+
+        /**
+         * Returns the sequence number the pull read up to, past the dropped
+         * entries as well as the kept ones, so it is where the next pull
+         * starts.
+         */
+        int sequence()
+        {
+            return sequence;
+        }
+    }
+
+    /**
+     * Returns the kept entries with the sequence numbers from the given one
+     * on.
+     */
+    synchronized Pulled<C> pullSince(int sequence)
+    {
+        if (sequence >= entries.size()) {
+            return new Pulled<>(Lists.immutable.empty(), Math.max(sequence, entries.size()));
+        }
+
+        final MutableList<C> result = FastList.newList(entries.size() - sequence);
+        for (var i = sequence; i < entries.size(); i++) {
+            final var entry = entries.get(i);
+            if (entry != null) {
+                result.add(entry.counterexample);
+            }
+        }
+
+        return new Pulled<>(result.toImmutable(), entries.size());
+    }
+
+    synchronized void clear()
+    {
+        entries.clear();
+        entryByWitness.clear();
+        entriesByGroup.clear();
+        keptNumber = 0;
+        duplicateNumber = 0;
+        impliedNumber = 0;
+        supersededNumber = 0;
+        evictedNumber = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return kind + ": " + keptNumber + " kept (" + duplicateNumber + " duplicate, " + impliedNumber + " implied, "
+            + supersededNumber + " superseded, " + evictedNumber + " evicted)";
+    }
+}
@@ -0,0 +1,105 @@
+package common;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.junit.runner.RunWith;
+
+import java.util.BitSet;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.describe;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.it;
+
+@RunWith(OleasterRunner.class)
+public class IntDigraphTest
+{
+    private static BitSet bitsOf(int... nodes)
+    {
+        final var result = new BitSet();
+        for (var node : nodes) {
+            result.set(node);
+        }
+
+        return result;
+    }
+
+    {
+        // 0 <-> 1 -> 2 <-> 3 -> 4, and 5 -> 0 with 5 unreachable
+        final var digraph = IntDigraph.builder(6, 7)
+                                      .addArc(3, 4).addArc(0, 1).addArc(1, 0).addArc(1, 2)
+                                      .addArc(2, 3).addArc(3, 2).addArc(5, 0)
+                                      .build();
+
+        describe("#builder()", () -> {
+
+            it("lays out the arcs by their sources", () -> {
+                expect(digraph.nodeNumber()).toEqual(6);
+                expect(digraph.arcNumber()).toEqual(7);
+                expect(digraph.outDegreeOf(1)).toEqual(2);
+                expect(digraph.outDegreeOf(4)).toEqual(0);
+                expect(digraph.successorOf(5, 0)).toEqual(0);
+            });
+
+            it("complains on the arcs out of range", () -> {
+                expect(() -> IntDigraph.builder(2, 1).addArc(0, 2)).toThrow(IndexOutOfBoundsException.class);
+            });
+
+        });
+
+        describe("#reachableFrom()", () -> {
+
+            it("finds the nodes reachable forward and backward", () -> {
+                expect(digraph.reachableFrom(0).equals(bitsOf(0, 1, 2, 3, 4))).toBeTrue();
+                expect(digraph.reachableFrom(4).equals(bitsOf(4))).toBeTrue();
+                expect(digraph.reverse().reachableFrom(bitsOf(2)).equals(bitsOf(0, 1, 2, 3, 5))).toBeTrue();
+                expect(digraph.reverse().reverse() == digraph).toBeTrue();
+            });
+
+        });
+
+        describe("#shortestPath()", () -> {
+
+            it("finds one shortest path to a target if any", () -> {
+                expect(digraph.shortestPath(5, node -> node >= 3).equals(IntLists.immutable.of(5, 0, 1, 2, 3)))
+                    .toBeTrue();
+                expect(digraph.shortestPath(2, node -> node == 2).equals(IntLists.immutable.of(2))).toBeTrue();
+                expect(digraph.shortestPath(4, node -> node == 0)).toBeNull();
+            });
+
+        });
+
+        describe("#depthFirstPostOrder()", () -> {
+
+            it("finishes the successors first", () -> {
+                expect(digraph.depthFirstPostOrder(0).equals(IntLists.immutable.of(4, 3, 2, 1, 0))).toBeTrue();
+            });
+
+        });
+
+        describe("#stronglyConnectedComponents()", () -> {
+
+            it("numbers the components in a reverse topological order", () -> {
+                final var components = digraph.stronglyConnectedComponents();
+                expect(components[4]).toEqual(0);
+                expect(components[2]).toEqual(1);
+                expect(components[3]).toEqual(1);
+                expect(components[0]).toEqual(2);
+                expect(components[1]).toEqual(2);
+                expect(components[5]).toEqual(3);
+            });
+
+            it("handles the long paths without recursion", () -> {
+                final var length = 100000;
+                final var builder = IntDigraph.builder(length, length);
+                for (var i = 0; i < length; i++) {
+                    builder.addArc(i, (i + 1) % length);
+                }
+                final var components = builder.build().stronglyConnectedComponents();
+                for (var i = 0; i < length; i++) {
+                    expect(components[i]).toEqual(0);
+                }
+            });
+
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package common.metrics;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class MetricsTest
+{
+    {
+        beforeEach(() -> {
+            Metrics.reset();
+            Metrics.setEnabled(true);
+        });
+
+        afterEach(() -> {
+            Metrics.setEnabled(false);
+            Metrics.reset();
+        });
+
+        describe("#count()", () -> {
+
+            it("adds up the counts under the same name", () -> {
+                Metrics.count("a");
+                Metrics.count("a", 4L);
+                Metrics.count("b");
+                expect(Metrics.counter("a")).toEqual(5L);
+                expect(Metrics.counter("b")).toEqual(1L);
+                expect(Metrics.counter("c")).toEqual(0L);
+            });
+
+            it("records nothing while disabled", () -> {
+                Metrics.setEnabled(false);
+                Metrics.count("a");
+                Metrics.observe("h", 1L);
+                expect(Metrics.counter("a")).toEqual(0L);
+                expect(Metrics.histogram("h")).toBeNull();
+            });
+
+        });
+
+        describe("#observe()", () -> {
+
+            it("keeps the extremes and the power-of-two buckets", () -> {
+                Metrics.observe("h", 0L);
+                Metrics.observe("h", 3L);
+                Metrics.observe("h", 2L);
+                Metrics.observe("h", 100L);
+                final var histogram = Metrics.histogram("h");
+                expect(histogram.count()).toEqual(4L);
+                expect(histogram.sum()).toEqual(105L);
+                expect(histogram.min()).toEqual(0L);
+                expect(histogram.max()).toEqual(100L);
+                expect(histogram.bucketCount(1L)).toEqual(1L);
+                expect(histogram.bucketCount(4L)).toEqual(2L);
+                expect(histogram.bucketCount(128L)).toEqual(1L);
+                expect(histogram.bucketCount(2L)).toEqual(0L);
+            });
+
+        });
+
+        describe("#toJson()", () -> {
+
+            it("dumps the counters, the histograms and the cache hit rates", () -> {
+                Metrics.count("sat.calls", 2L);
+                Metrics.observe("sat.clauses", 5L);
+                Metrics.countCacheLookup("fsa-all", true);
+                Metrics.countCacheLookup("fsa-all", true);
+                Metrics.countCacheLookup("fsa-all", true);
+                Metrics.countCacheLookup("fsa-all", false);
+                final var json = Metrics.toJson();
+                expect(json).toContain("\"sat.calls\":2");
+                expect(json).toContain("\"sat.clauses\":{\"count\":1,\"sum\":5,\"min\":5,\"max\":5");
+                expect(json).toContain("\"buckets\":{\"8\":1}");
+                expect(json).toContain("\"cacheHitRates\":{\"fsa-all\":0.75}");
+            });
+
+        });
+    }
+}
@@ -2,6 +2,7 @@ package common.sat;
 
 import common.util.ContradictionException;
 import org.eclipse.collections.api.set.primitive.ImmutableIntSet;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.eclipse.collections.impl.factory.primitive.IntSets;
 
 import static com.mscharhag.oleaster.matcher.Matchers.expect;
@@ -104,6 +105,31 @@ abstract class AbstractSatSolverTest
 
         });
 
+        describe("#newClause()", () -> {
+
+            it("adds the clause on commit", () -> {
+                final var variables = solver.newFreeVariables(3);
+                solver.newClause().add(1).addAll(IntLists.immutable.of(2)).addAllNegated(-3).commit();
+                solver.newClause().addAllNegated(variables).commit();
+                solver.addClause(-1);
+                solver.addClause(-2);
+                expectModelExists();
+                expect(model().containsAll(-1, -2, 3)).toBeTrue();
+
+                solver.addClause(-3);
+                expectNoModelExists();
+            });
+
+            it("starts empty every time", () -> {
+                solver.newFreeVariables(2);
+                solver.newClause().add(1).add(2);
+                solver.newClause().add(-1).commit();
+                solver.newClause().add(-2).commit();
+                expectModelExists();
+            });
+
+        });
+
         describe("#addClauseIf(int, IntList)", () -> {
 
             describe("when activated", () -> {
@@ -686,6 +712,24 @@ abstract class AbstractSatSolverTest
 
         });
 
+        describe("#isTruthyInModel(int)", () -> {
+
+            it("tells the valuation of the literals in the model", () -> {
+                solver.addClause(solver.newFreeVariables(2));
+                solver.addClause(-1);
+                expectModelExists();
+                expect(solver.isTruthyInModel(1)).toBeFalse();
+                expect(solver.isTruthyInModel(-1)).toBeTrue();
+                expect(solver.isTruthyInModel(2)).toBeTrue();
+                expect(solver.isTruthyInModel(-2)).toBeFalse();
+            });
+
+            it("complains if the problem is yet solved", () -> {
+                expect(() -> solver.isTruthyInModel(1)).toThrow(IllegalStateException.class);
+            });
+
+        });
+
         describe("#addClauseBlocking(IntSet)", () -> {
 
             it("prevents the clause showing up as an model", () -> {
@@ -0,0 +1,72 @@
+package common.sat;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class CnfTemplateTest
+{
+    private CnfTemplate template;
+
+    {
+        beforeEach(() -> {
+            final var recorder = new CnfRecorder();
+            final var vars = recorder.newFreeVariables(4);
+            final var v1 = vars.get(0);
+            final var v2 = vars.get(1);
+            final var v3 = vars.get(2);
+            final var v4 = vars.get(3);
+            recorder.addImplication(v1, v2);
+            recorder.newClause().add(-v3).add(v4).commit();
+            recorder.addClauseExactly(2, v1, v2, v3, v4);
+            recorder.setLiteralTruthy(v3);
+            template = recorder.toTemplate();
+        });
+
+        describe("#variableNumber()", () -> {
+
+            it("counts the recorded variables", () -> {
+                expect(template.variableNumber()).toEqual(4);
+            });
+
+        });
+
+        describe("#loadInto()", () -> {
+
+            it("loads the constraints under fresh variables", () -> {
+                final var solver = new Sat4jSolverAdapter();
+                final var before = solver.newFreeVariables(3);
+                solver.setLiteralTruthy(before.get(0));
+                final var offset = template.loadInto(solver);
+                expect(offset).toEqual(before.getLast());
+                expect(solver.findItSatisfiable()).toBeTrue();
+                expect(solver.getModelTruthyVariables().containsAll(offset + 3, offset + 4)).toBeTrue();
+                expect(solver.getModelFalsyVariables().containsAll(offset + 1, offset + 2)).toBeTrue();
+            });
+
+            it("loads into the same solver repeatedly without sharing variables", () -> {
+                final var solver = new Sat4jSolverAdapter();
+                final var offset1 = template.loadInto(solver);
+                final var offset2 = template.loadInto(solver);
+                expect(offset2 - offset1).toEqual(template.variableNumber());
+                expect(solver.findItSatisfiable()).toBeTrue();
+                expect(solver.getModelTruthyVariables().containsAll(offset1 + 3, offset2 + 3)).toBeTrue();
+                expect(solver.getModelFalsyVariables().containsAll(offset1 + 1, offset2 + 1)).toBeTrue();
+            });
+
+            it("keeps the cardinality constraints to the target encoding", () -> {
+                for (var encoding : SatSolver.CardinalityEncoding.values()) {
+                    final var solver = new Sat4jSolverAdapter(encoding);
+                    final var offset = template.loadInto(solver);
+                    expect(solver.findItSatisfiable()).toBeTrue();
+                    expect(solver.getModelTruthyVariables().containsAll(offset + 3, offset + 4)).toBeTrue();
+                    expect(solver.getModelFalsyVariables().containsAll(offset + 1, offset + 2)).toBeTrue();
+                }
+            });
+
+        });
+    }
+}
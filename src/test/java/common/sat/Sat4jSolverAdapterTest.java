@@ -1,15 +1,49 @@
 package common.sat;
 
 import com.mscharhag.oleaster.runner.OleasterRunner;
+import common.sat.SatSolver.CardinalityEncoding;
+import common.util.ContradictionException;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.impl.factory.Lists;
 import org.junit.runner.RunWith;
 
 import static com.mscharhag.oleaster.matcher.Matchers.expect;
-import static com.mscharhag.oleaster.runner.StaticRunnerSupport.describe;
-import static com.mscharhag.oleaster.runner.StaticRunnerSupport.it;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
 
 @RunWith(OleasterRunner.class)
 public class Sat4jSolverAdapterTest extends AbstractSatSolverTest
 {
+    private int countProjectedModels(ImmutableIntList variables)
+    {
+        var count = 0;
+        final var valuation = new int[variables.size()];
+        while (solver.findItSatisfiable()) {
+            count++;
+            final var model = solver.getModel();
+            for (var i = 0; i < valuation.length; i++) {
+                final var variable = variables.get(i);
+                valuation[i] = model.contains(variable) ? variable : -variable;
+            }
+            try {
+                solver.addClauseBlocking(valuation);
+            } catch (ContradictionException e) {
+                break; // every valuation has been blocked
+            }
+        }
+
+        return count;
+    }
+
+    private static int binomial(int n, int k)
+    {
+        var result = 1;
+        for (var i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+
+        return result;
+    }
+
     {
         solver = new Sat4jSolverAdapter();
 
@@ -86,6 +120,64 @@ public class Sat4jSolverAdapterTest extends AbstractSatSolverTest
 
         });
 
+        describe("#setCardinalityEncoding()", () -> {
+
+            final var clausalEncodings = Lists.immutable.of(CardinalityEncoding.PAIRWISE, //
+                                                            CardinalityEncoding.SEQUENTIAL_COUNTER, //
+                                                            CardinalityEncoding.COMMANDER, //
+                                                            CardinalityEncoding.TOTALIZER);
+            final var n = 7;
+
+            afterEach(() -> solver.setCardinalityEncoding(CardinalityEncoding.NATIVE));
+
+            clausalEncodings.forEach(encoding -> describe("when using " + encoding, () -> {
+
+                beforeEach(() -> solver.setCardinalityEncoding(encoding));
+
+                it("keeps the same at-most semantics", () -> {
+                    for (var degree = 0; degree <= n; degree++) {
+                        final var literals = solver.newFreeVariables(n);
+                        solver.addClauseAtMost(degree, literals);
+                        var expected = 0;
+                        for (var k = 0; k <= degree; k++) {
+                            expected += binomial(n, k);
+                        }
+                        expect(countProjectedModels(literals)).toEqual(expected);
+                        solver.reset();
+                    }
+                });
+
+                it("keeps the same at-least semantics", () -> {
+                    for (var degree = 0; degree <= n; degree++) {
+                        final var literals = solver.newFreeVariables(n);
+                        solver.addClauseAtLeast(degree, literals);
+                        var expected = 0;
+                        for (var k = degree; k <= n; k++) {
+                            expected += binomial(n, k);
+                        }
+                        expect(countProjectedModels(literals)).toEqual(expected);
+                        solver.reset();
+                    }
+                });
+
+                it("keeps the same exact semantics", () -> {
+                    for (var degree = 0; degree <= n; degree++) {
+                        final var literals = solver.newFreeVariables(n);
+                        solver.addClauseExactly(degree, literals);
+                        expect(countProjectedModels(literals)).toEqual(binomial(n, degree));
+                        solver.reset();
+                    }
+                });
+
+                it("keeps the encoding after reset", () -> {
+                    solver.reset();
+                    expect(solver.getCardinalityEncoding()).toEqual(encoding);
+                });
+
+            }));
+
+        });
+
         describe("#findItSatisfiable()", () -> {
 
             it("returns true when SAT", () -> {
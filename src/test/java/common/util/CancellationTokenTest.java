@@ -0,0 +1,66 @@
+package common.util;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class CancellationTokenTest
+{
+    private static boolean checkpointThrows()
+    {
+        try {
+            CancellationToken.checkpoint();
+            return false;
+        } catch (CancelledException e) {
+            return true;
+        }
+    }
+
+    {
+        describe("#checkpoint()", () -> {
+
+            it("passes on a thread without a token bound", () -> {
+                expect(checkpointThrows()).toBeFalse();
+                expect(CancellationToken.current().isCancelled()).toBeFalse();
+            });
+
+            it("throws once the bound token is cancelled", () -> {
+                final var token = new CancellationToken();
+                try (var binding = token.bindToCurrentThread()) {
+                    expect(checkpointThrows()).toBeFalse();
+                    token.cancel();
+                    expect(checkpointThrows()).toBeTrue();
+                }
+                expect(checkpointThrows()).toBeFalse(); // unbound again
+            });
+
+            it("throws once the deadline of the bound token passes", () -> {
+                final var token = new CancellationToken();
+                token.setDeadline(Stopwatch.epochTimeInMs() - 1);
+                expect(token.hasDeadlinePassed()).toBeTrue();
+                try (var binding = token.bindToCurrentThread()) {
+                    expect(checkpointThrows()).toBeTrue();
+                }
+            });
+
+        });
+
+        describe("#cancel()", () -> {
+
+            it("is not allowed on the token of the unbound threads", () -> {
+                var thrown = false;
+                try {
+                    CancellationToken.current().cancel();
+                } catch (UnsupportedOperationException e) {
+                    thrown = true;
+                }
+                expect(thrown).toBeTrue();
+                expect(CancellationToken.current().isCancelled()).toBeFalse();
+            });
+
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package core.automata;
+
+import api.automata.Alphabet;
+import api.automata.Alphabets;
+import api.automata.fsa.FSAs;
+import api.automata.fst.FSTs;
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.eclipse.collections.api.tuple.Pair;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.tuple.Tuples;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static api.util.Constants.DISPLAY_EPSILON_SYMBOL;
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class AutomatonSnapshotTest
+{
+    private Path file;
+
+    {
+        final Alphabet<String> alphabet = Alphabets.builder(3, DISPLAY_EPSILON_SYMBOL).add("a").add("b").build();
+
+        beforeEach(() -> file = Files.createTempFile("snapshot", ".bin"));
+
+        afterEach(() -> Files.deleteIfExists(file));
+
+        describe("#load()", () -> {
+
+            it("keeps the structure of an FSA", () -> {
+                final var fsa = FSAs.create(alphabet, 2); // which accepts (ab)*
+                final var s0 = fsa.startState();
+                final var s1 = fsa.newState();
+                fsa.addTransition(s0, s1, "a").addTransition(s1, s0, "b").setAsAccept(s0);
+                AutomatonSnapshot.write(fsa, file, AutomatonSnapshot.STRING_SYMBOLS);
+
+                final var snapshot = AutomatonSnapshot.load(file, AutomatonSnapshot.STRING_SYMBOLS);
+                expect(snapshot.stateNumber()).toEqual(2);
+                expect(snapshot.transitionNumber()).toEqual(2);
+                expect(snapshot.symbolNumber()).toEqual(3);
+                expect(snapshot.symbolOf(0)).toEqual(DISPLAY_EPSILON_SYMBOL);
+                final var start = snapshot.startState();
+                expect(snapshot.isAcceptState(start)).toBeTrue();
+                final var symbolA = snapshot.symbolOf(1).equals("a") ? 1 : 2;
+                final var next = snapshot.successorOf(start, symbolA);
+                expect(next).toBeGreaterThan(-1);
+                expect(snapshot.isAcceptState(next)).toBeFalse();
+                expect(snapshot.successorOf(start, 3 - symbolA)).toEqual(-1);
+            });
+
+            it("keeps the language of an FSA", () -> {
+                final var fsa = FSAs.acceptingOnly(alphabet, Lists.immutable.of(Lists.immutable.of("a", "b"),
+                                                                                Lists.immutable.of("b")));
+                AutomatonSnapshot.write(fsa, file, AutomatonSnapshot.STRING_SYMBOLS);
+
+                final var result = AutomatonSnapshot.load(file, AutomatonSnapshot.STRING_SYMBOLS).toFSA();
+                expect(result.accepts(Lists.immutable.of("a", "b"))).toBeTrue();
+                expect(result.accepts(Lists.immutable.of("b"))).toBeTrue();
+                expect(result.accepts(Lists.immutable.of("a"))).toBeFalse();
+            });
+
+            it("keeps the language of an FST", () -> {
+                final Alphabet<Pair<String, String>> ioAlphabet = Alphabets.product(alphabet, alphabet);
+                final var fst = FSTs.create(ioAlphabet, 2); // which swaps 'a' and 'b'
+                final var s0 = fst.startState();
+                fst.addTransition(s0, s0, Tuples.pair("a", "b")).addTransition(s0, s0, Tuples.pair("b", "a"));
+                fst.setAsAccept(s0);
+                AutomatonSnapshot.write(fst, file, AutomatonSnapshot.STRING_PAIR_SYMBOLS);
+
+                final var snapshot = AutomatonSnapshot.load(file, AutomatonSnapshot.STRING_PAIR_SYMBOLS);
+                final var result = AutomatonSnapshot.toFST(snapshot);
+                final var image = result.postImage(Lists.immutable.of("a", "b"));
+                expect(image.size()).toEqual(1);
+                expect(image.getFirst().equals(Lists.immutable.of("b", "a"))).toBeTrue();
+            });
+
+        });
+    }
+}
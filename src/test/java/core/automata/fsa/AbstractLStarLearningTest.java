@@ -2,12 +2,18 @@ package core.automata.fsa;
 
 import api.automata.Alphabet;
 import api.automata.Alphabets;
+import api.automata.fsa.FSA;
 import api.automata.fsa.FSAs;
 import api.automata.fsa.LStarLearning;
 import api.automata.fsa.LStarLearnings;
+import common.util.InterruptException;
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.impl.factory.Lists;
 import org.eclipse.collections.impl.factory.Sets;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.mscharhag.oleaster.matcher.Matchers.expect;
 import static com.mscharhag.oleaster.runner.StaticRunnerSupport.describe;
 import static com.mscharhag.oleaster.runner.StaticRunnerSupport.it;
@@ -62,6 +68,42 @@ abstract class AbstractLStarLearningTest
                 expect(result4.accepts(word4)).toBeTrue();
             });
 
+            it("asks each membership query only once", () -> {
+                final var target = FSAs.acceptingOnly(alphabet, Sets.immutable.of(word1, word2, word4));
+                final var simpleTeacher = LStarLearnings.teacher(target);
+                final var askedWords = ConcurrentHashMap.<ListIterable<Object>>newKeySet();
+                final var repeatedQueryNumber = new AtomicInteger();
+                final var result = algorithm.learn(alphabet, new LStarLearning.Teacher<>()
+                {
+                    @Override
+                    public boolean targetAccepts(ListIterable<Object> word)
+                    {
+                        if (!askedWords.add(Lists.immutable.ofAll(word))) {
+                            repeatedQueryNumber.incrementAndGet();
+                        }
+                        return simpleTeacher.targetAccepts(word);
+                    }
+
+                    @Override
+                    public boolean isThreadSafe()
+                    {
+                        return true;
+                    }
+
+                    @Override
+                    public LStarLearning.EquivalenceCheckResult<Object> checkAnswer(FSA<Object> answer)
+                        throws InterruptException
+                    {
+                        return simpleTeacher.checkAnswer(answer);
+                    }
+                });
+                expect(result.accepts(word1)).toBeTrue();
+                expect(result.accepts(word2)).toBeTrue();
+                expect(result.accepts(word3)).toBeFalse();
+                expect(result.accepts(word4)).toBeTrue();
+                expect(repeatedQueryNumber.get()).toEqual(0);
+            });
+
         });
     }
 }
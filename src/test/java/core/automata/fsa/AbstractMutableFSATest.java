@@ -5,6 +5,8 @@ import api.automata.Alphabets;
 import api.automata.State;
 import api.automata.fsa.FSAs;
 import api.automata.fsa.MutableFSA;
+import common.util.StateBudget;
+import common.util.StateExplosionException;
 import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.tuple.Twin;
 import org.eclipse.collections.impl.factory.Lists;
@@ -116,6 +118,25 @@ abstract class AbstractMutableFSATest
 
         });
 
+        describe("#stronglyConnectedComponents", () -> {
+
+            it("lists the components, each before the ones reaching it", () -> {
+                final var fsa = newFSA(alphabet, 4);
+                final var s1 = fsa.startState();
+                final var s2 = fsa.newState();
+                final var s3 = fsa.newState();
+                final var s4 = fsa.newState();
+                fsa.addTransition(s1, s2, a1).addTransition(s2, s1, a2).addTransition(s2, s3, e);
+                fsa.addTransition(s3, s3, a1).addTransition(s4, s1, a1);
+                final var components = fsa.stronglyConnectedComponents();
+                expect(components.size()).toEqual(3);
+                expect(components.get(0).equals(Sets.immutable.of(s3))).toBeTrue();
+                expect(components.get(1).equals(Sets.immutable.of(s1, s2))).toBeTrue();
+                expect(components.get(2).equals(Sets.immutable.of(s4))).toBeTrue();
+            });
+
+        });
+
         describe("#incompleteStates", () -> {
 
             it("complains on nondeterministic instances", () -> {
@@ -175,6 +196,30 @@ abstract class AbstractMutableFSATest
 
         });
 
+        describe("#acceptsInfinitelyMany", () -> {
+
+            it("tells the cycles on the way to an accept state", () -> {
+                final var finite = FSAs.acceptingOnly(alphabet, Sets.immutable.of(word1, word4));
+                expect(finite.acceptsInfinitelyMany()).toBeFalse();
+                expect(FSAs.acceptingNone(alphabet).acceptsInfinitelyMany()).toBeFalse();
+
+                final var fsa = newFSA(alphabet, 5);
+                final var s1 = fsa.startState();
+                final var s2 = fsa.newState();
+                final var s3 = fsa.newState();
+                final var s4 = fsa.newState();
+                final var s5 = fsa.newState();
+                fsa.addTransition(s1, s2, a1).setAsAccept(s2);
+                fsa.addTransition(s2, s5, e).addTransition(s5, s2, e); // a cycle of epsilon transitions only
+                fsa.addTransition(s1, s3, a2).addTransition(s3, s3, a2); // a cycle on a dead end
+                expect(fsa.acceptsInfinitelyMany()).toBeFalse();
+
+                fsa.addTransition(s3, s4, a1).setAsAccept(s4);
+                expect(fsa.acceptsInfinitelyMany()).toBeTrue();
+            });
+
+        });
+
         describe("#enumerateOneShortest", () -> {
 
             it("returns null on empty", () -> {
@@ -218,6 +263,37 @@ abstract class AbstractMutableFSATest
 
         });
 
+        describe("#transitionGraph", () -> {
+
+            it("answers the predecessor queries and keeps them through the mutations", () -> {
+                final var fsa = newFSA(alphabet, 40);
+                final var chain = Lists.mutable.of(fsa.startState());
+                for (var i = 1; i < 40; i++) {
+                    final var state = fsa.newState();
+                    fsa.addTransition(chain.getLast(), state, i % 2 == 0 ? a1 : a2);
+                    chain.add(state);
+                }
+                fsa.addTransition(chain.get(20), chain.get(10), a2);
+                final var graph = fsa.transitionGraph();
+                final var preds = Sets.immutable.of(chain.get(9), chain.get(20));
+                expect(graph.directPredecessorsOf(chain.get(10))).toEqual(preds);
+                expect(graph.directPredecessorsOf(chain.get(10), a2)).toEqual(Sets.immutable.of(chain.get(20)));
+                expect(graph.arcLabelsTo(chain.get(10))).toEqual(Sets.immutable.of(a1, a2));
+                expect(graph.arcLabeledTo(chain.get(0), a1)).toBeFalse();
+                final var arcsTo11 = Lists.immutable.of(Tuples.pair(chain.get(10), a2));
+                expect(graph.arcsTo(chain.get(11)).toList()).toEqual(arcsTo11);
+
+                fsa.removeState(chain.get(9));
+                expect(graph.directPredecessorsOf(chain.get(10))).toEqual(Sets.immutable.of(chain.get(20)));
+                expect(chain.get(8).successors().isEmpty()).toBeTrue();
+                fsa.addTransition(chain.get(8), chain.get(10), a2);
+                final var newPreds = Sets.immutable.of(chain.get(8), chain.get(20));
+                expect(graph.directPredecessorsOf(chain.get(10), a2)).toEqual(newPreds);
+                expect(fsa.predecessorRelation().get(chain.get(10)).size()).toEqual(2);
+            });
+
+        });
+
         final var input1 = Lists.immutable.of(a1, a2);
         final var input2 = Lists.immutable.of(a1, a1);
         final var input3 = Lists.immutable.of(a1, a2, a1);
@@ -270,6 +346,19 @@ abstract class AbstractMutableFSATest
                 expect(dfa.isDeterministic()).toBeTrue();
             });
 
+            it("gives up beyond the state budget", () -> {
+                final var nfa = FSAs.acceptingOnly(alphabet, Sets.immutable.of(input1, input2));
+                var thrown = false;
+                try (var binding = new StateBudget(2, 0).bindToCurrentThread()) {
+                    nfa.determinize();
+                } catch (StateExplosionException e) {
+                    thrown = true;
+                    expect(e.operation()).toEqual("determinize");
+                }
+                expect(thrown).toBeTrue();
+                expect(nfa.determinize().isDeterministic()).toBeTrue(); // with the default budget again
+            });
+
         });
 
         describe("#minimize", () -> {
@@ -59,6 +59,7 @@ abstract class AbstractMutableFSTTest
                 expect(result1.accepts(Lists.immutable.of(a, a, b, b))).toBeTrue();
                 expect(result1.accepts(Lists.immutable.of(a, a, a, b))).toBeTrue();
                 expect(stepCount1).toEqual(3);
+                expect(result1.isDeterministic()).toBeTrue();
 
                 final var resultWithStepCount2 = fst.postStarImageOnLength(fsa, 7);
                 final var result2 = resultWithStepCount2.getOne();
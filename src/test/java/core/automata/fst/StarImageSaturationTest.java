@@ -0,0 +1,64 @@
+package core.automata.fst;
+
+import api.automata.Alphabets;
+import api.automata.fsa.FSAs;
+import api.automata.fst.FSTs;
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.tuple.Tuples;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.describe;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.it;
+
+@RunWith(OleasterRunner.class)
+public class StarImageSaturationTest
+{
+    {
+        final var e = new Object();
+        final var a = new Object();
+        final var b = new Object();
+        final var alphabet = Alphabets.builder(3, e).add(a).add(b).build();
+        final var ioAlphabet = Alphabets.product(alphabet, alphabet);
+        final var fst = FSTs.create(ioAlphabet, 2); // which turns one 'a' into 'b'
+        final var ts0 = fst.startState();
+        final var ts1 = fst.newState();
+        fst.addTransition(ts0, ts0, Tuples.pair(a, a));
+        fst.addTransition(ts0, ts0, Tuples.pair(b, b));
+        fst.addTransition(ts0, ts1, Tuples.pair(a, b));
+        fst.addTransition(ts1, ts1, Tuples.pair(a, a));
+        fst.addTransition(ts1, ts1, Tuples.pair(b, b));
+        fst.setAsAccept(ts1);
+        final var initial = FSAs.acceptingOnly(alphabet, Sets.immutable.of(Lists.immutable.of(a, a, a)));
+
+        describe("#saturate()", () -> {
+
+            it("extends the image the given number of steps at a time", () -> {
+                final var saturation = new StarImageSaturation<>(fst, initial, false).saturate(1);
+                expect(saturation.steps()).toEqual(1);
+                expect(saturation.hasConverged()).toBeFalse();
+                expect(saturation.image().accepts(Lists.immutable.of(a, a, a))).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(a, b, a))).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(a, b, b))).toBeFalse();
+
+                saturation.saturate(1);
+                expect(saturation.steps()).toEqual(2);
+                expect(saturation.image().accepts(Lists.immutable.of(a, b, b))).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(b, b, b))).toBeFalse();
+            });
+
+            it("converges to the exact image", () -> {
+                final var saturation = new StarImageSaturation<>(fst, initial, false).saturate();
+                expect(saturation.hasConverged()).toBeTrue();
+                expect(saturation.steps()).toEqual(4);
+                expect(saturation.image().isDeterministic()).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(b, b, b))).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(b, a, b))).toBeTrue();
+                expect(saturation.image().accepts(Lists.immutable.of(a, b))).toBeFalse();
+            });
+
+        });
+    }
+}
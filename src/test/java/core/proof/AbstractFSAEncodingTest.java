@@ -17,7 +17,13 @@ abstract class AbstractFSAEncodingTest
     final SatSolver solver = new Sat4jSolverAdapter();
     private FSAEncoding<Object> encoding;
 
-    abstract FSAEncoding<Object> newEncoding(int size, AlphabetIntEncoder<Object> alphabetEncoding);
+    /**
+     * Returns an encoding on the solver, reset for it, under the given
+     * options.  Numbering the states breadth-first leaves fewer isomorphic
+     * instances to be enumerated.
+     */
+    abstract FSAEncoding<Object> newEncoding(int size, AlphabetIntEncoder<Object> alphabetEncoding,
+        boolean binaryEncoded, boolean numberBreadthFirst);
 
     {
         final var e = new Object();
@@ -26,130 +32,143 @@ abstract class AbstractFSAEncodingTest
         final var alphabet1 = AlphabetIntEncoders.create(Lists.mutable.of(e, a1), e);
         final var alphabet2 = AlphabetIntEncoders.create(Lists.mutable.of(e, a1, a2), e);
 
-        describe("To ignore shapeless targets", () -> {
+        final boolean[][] optionRuns = {
+            // binaryEncoded, numberBreadthFirst
+            {false, false}, {true, false}, {false, true}, {true, true}};
 
-            beforeEach(() -> {
-                encoding = newEncoding(2, alphabet1);
-            });
-
-            it("can ensure no unreachable state", () -> {
-                FSA<Object> fsa;
-                var count = 0;
-                encoding.ensureNoUnreachableState();
-                while (solver.findItSatisfiable()) {
-                    fsa = encoding.resolve();
-                    expect(fsa.unreachableStates().isEmpty()).toBeTrue();
-                    count++;
-                    encoding.blockCurrentInstance();
-                }
-                expect(count).toEqual(9);
-            });
-
-            it("can ensure no dead-end state", () -> {
-                FSA<Object> fsa;
-                var count = 0;
-                encoding.ensureNoDeadEndState();
-                while (solver.findItSatisfiable()) {
-                    fsa = encoding.resolve();
-                    expect(fsa.deadEndStates().isEmpty()).toBeTrue();
-                    count++;
-                    encoding.blockCurrentInstance();
-                }
-                expect(count).toEqual(14);
-            });
-
-            it("can ensure no dangling state", () -> {
-                FSA<Object> fsa;
-                var count = 0;
-                encoding.ensureNoDanglingState();
-                while (solver.findItSatisfiable()) {
-                    fsa = encoding.resolve();
-                    expect(fsa.danglingStates().isEmpty()).toBeTrue();
-                    count++;
-                    encoding.blockCurrentInstance();
-                }
-                expect(count).toEqual(7);
-            });
-
-        });
-
-        describe("No-dangling", () -> {
+        for (var options : optionRuns) {
+            final var binaryEncoded = options[0];
+            final var numberBreadthFirst = options[1];
 
-            describe("set up ahead", () -> {
+            describe((binaryEncoded ? "Binary" : "One-hot") + (numberBreadthFirst ? ", breadth-first" : ""), () -> {
 
-                final var word1 = Lists.immutable.of(a1, a1, a1, a1, a1);
-                final var word2 = Lists.immutable.of(a1, a1);
-                final var word3 = Lists.immutable.of(a1, a2, a1);
-                final var word4 = Lists.immutable.of(a2, a1, a2);
+            describe("To ignore shapeless targets", () -> {
 
                 beforeEach(() -> {
-                    encoding = newEncoding(3, alphabet1);
-                    encoding.ensureNoDanglingState();
+                    encoding = newEncoding(2, alphabet1, binaryEncoded, numberBreadthFirst);
                 });
 
-                it("can show all on accepting a word", () -> {
-                    encoding.ensureAccepting(word1);
+                it("can ensure no unreachable state", () -> {
                     FSA<Object> fsa;
                     var count = 0;
+                    encoding.ensureNoUnreachableState();
                     while (solver.findItSatisfiable()) {
                         fsa = encoding.resolve();
-                        expect(fsa.accepts(word1)).toBeTrue();
+                        expect(fsa.unreachableStates().isEmpty()).toBeTrue();
                         count++;
                         encoding.blockCurrentInstance();
                     }
-                    expect(count).toEqual(16);
+                    expect(count).toEqual(9);
                 });
 
-                it("can show all on not accepting a word", () -> {
-                    encoding.ensureNoAccepting(word1);
+                it("can ensure no dead-end state", () -> {
                     FSA<Object> fsa;
                     var count = 0;
+                    encoding.ensureNoDeadEndState();
                     while (solver.findItSatisfiable()) {
                         fsa = encoding.resolve();
-                        expect(fsa.accepts(word1)).toBeFalse();
+                        expect(fsa.deadEndStates().isEmpty()).toBeTrue();
                         count++;
                         encoding.blockCurrentInstance();
                     }
-                    expect(count).toEqual(12);
+                    expect(count).toEqual(numberBreadthFirst ? 7 : 14);
                 });
 
-                it("can show all on iff-accepting a word", () -> {
-                    final var yes = solver.newFreeVariable();
-                    solver.setLiteralTruthy(yes);
-                    encoding.ensureAcceptingIfOnlyIf(-yes, word1);
-                    encoding.ensureAcceptingIfOnlyIf(yes, word2);
+                it("can ensure no dangling state", () -> {
                     FSA<Object> fsa;
                     var count = 0;
+                    encoding.ensureNoDanglingState();
                     while (solver.findItSatisfiable()) {
                         fsa = encoding.resolve();
-                        expect(fsa.accepts(word1)).toBeFalse();
-                        expect(fsa.accepts(word2)).toBeTrue();
+                        expect(fsa.danglingStates().isEmpty()).toBeTrue();
                         count++;
                         encoding.blockCurrentInstance();
                     }
-                    expect(count).toEqual(8);
+                    expect(count).toEqual(7);
                 });
 
-                it("can show all on no-purely-made-of", () -> {
-                    encoding = newEncoding(2, alphabet2);
-                    encoding.ensureNoDanglingState();
-                    encoding.ensureAccepting(word3);
-                    encoding.ensureAccepting(word4);
-                    encoding.ensureNoWordPurelyMadeOf(Sets.immutable.of(a1));
-                    FSA<Object> fsa;
-                    var count = 0;
-                    while (solver.findItSatisfiable()) {
-                        fsa = encoding.resolve();
-                        expect(fsa.accepts(word3)).toBeTrue();
-                        expect(fsa.accepts(word4)).toBeTrue();
-                        count++;
-                        encoding.blockCurrentInstance();
-                    }
-                    expect(count).toEqual(1);
+            });
+
+            describe("No-dangling", () -> {
+
+                describe("set up ahead", () -> {
+
+                    final var word1 = Lists.immutable.of(a1, a1, a1, a1, a1);
+                    final var word2 = Lists.immutable.of(a1, a1);
+                    final var word3 = Lists.immutable.of(a1, a2, a1);
+                    final var word4 = Lists.immutable.of(a2, a1, a2);
+
+                    beforeEach(() -> {
+                        encoding = newEncoding(3, alphabet1, binaryEncoded, numberBreadthFirst);
+                        encoding.ensureNoDanglingState();
+                    });
+
+                    it("can show all on accepting a word", () -> {
+                        encoding.ensureAccepting(word1);
+                        FSA<Object> fsa;
+                        var count = 0;
+                        while (solver.findItSatisfiable()) {
+                            fsa = encoding.resolve();
+                            expect(fsa.accepts(word1)).toBeTrue();
+                            count++;
+                            encoding.blockCurrentInstance();
+                        }
+                        expect(count).toEqual(numberBreadthFirst ? 12 : 16);
+                    });
+
+                    it("can show all on not accepting a word", () -> {
+                        encoding.ensureNoAccepting(word1);
+                        FSA<Object> fsa;
+                        var count = 0;
+                        while (solver.findItSatisfiable()) {
+                            fsa = encoding.resolve();
+                            expect(fsa.accepts(word1)).toBeFalse();
+                            count++;
+                            encoding.blockCurrentInstance();
+                        }
+                        expect(count).toEqual(numberBreadthFirst ? 9 : 12);
+                    });
+
+                    it("can show all on iff-accepting a word", () -> {
+                        final var yes = solver.newFreeVariable();
+                        solver.setLiteralTruthy(yes);
+                        encoding.ensureAcceptingIfOnlyIf(-yes, word1);
+                        encoding.ensureAcceptingIfOnlyIf(yes, word2);
+                        FSA<Object> fsa;
+                        var count = 0;
+                        while (solver.findItSatisfiable()) {
+                            fsa = encoding.resolve();
+                            expect(fsa.accepts(word1)).toBeFalse();
+                            expect(fsa.accepts(word2)).toBeTrue();
+                            count++;
+                            encoding.blockCurrentInstance();
+                        }
+                        expect(count).toEqual(numberBreadthFirst ? 6 : 8);
+                    });
+
+                    it("can show all on no-purely-made-of", () -> {
+                        encoding = newEncoding(2, alphabet2, binaryEncoded, numberBreadthFirst);
+                        encoding.ensureNoDanglingState();
+                        encoding.ensureAccepting(word3);
+                        encoding.ensureAccepting(word4);
+                        encoding.ensureNoWordPurelyMadeOf(Sets.immutable.of(a1));
+                        FSA<Object> fsa;
+                        var count = 0;
+                        while (solver.findItSatisfiable()) {
+                            fsa = encoding.resolve();
+                            expect(fsa.accepts(word3)).toBeTrue();
+                            expect(fsa.accepts(word4)).toBeTrue();
+                            count++;
+                            encoding.blockCurrentInstance();
+                        }
+                        expect(count).toEqual(1);
+                    });
+
                 });
 
             });
 
-        });
+            });
+        }
     }
 }
@@ -9,10 +9,13 @@ import org.junit.runner.RunWith;
 public class BasicFSAEncodingTest extends AbstractFSAEncodingTest
 {
     @Override
-    FSAEncoding<Object> newEncoding(int size, AlphabetIntEncoder<Object> alphabetEncoding)
+    FSAEncoding<Object> newEncoding(int size, AlphabetIntEncoder<Object> alphabetEncoding, boolean binaryEncoded,
+        boolean numberBreadthFirst)
     {
         solver.reset();
 
-        return new BasicFSAEncoding<>(solver, size, alphabetEncoding);
+        return binaryEncoded
+               ? new BinaryFSAEncoding<>(solver, size, alphabetEncoding, false, numberBreadthFirst)
+               : new BasicFSAEncoding<>(solver, size, alphabetEncoding, false, numberBreadthFirst);
     }
 }
@@ -0,0 +1,144 @@
+package core.proof;
+
+import api.automata.AlphabetIntEncoder;
+import api.automata.AlphabetIntEncoders;
+import api.automata.State;
+import api.automata.fsa.FSA;
+import api.proof.FSAEncoding;
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import common.sat.Sat4jSolverAdapter;
+import common.sat.SatSolver;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
+import org.junit.runner.RunWith;
+
+import java.util.function.Consumer;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class FSAEncodingTemplatesTest
+{
+    private static final int SIZE = 2;
+
+    private static FSAEncoding<String> buildFromScratch(SatSolver solver, AlphabetIntEncoder<String> alphabetEncoding,
+        boolean restrictShape, boolean binaryEncoded, boolean numberBreadthFirst)
+    {
+        final FSAEncoding<String> result = binaryEncoded
+                                           ? new BinaryFSAEncoding<>(solver, SIZE, alphabetEncoding, restrictShape,
+                                                                     numberBreadthFirst)
+                                           : new BasicFSAEncoding<>(solver, SIZE, alphabetEncoding, restrictShape,
+                                                                    numberBreadthFirst);
+        result.ensureNoDanglingState();
+
+        return result;
+    }
+
+    private static String nameOf(FSA<String> fsa, State<String> state)
+    {
+        return state == fsa.startState() ? "start" : state.name();
+    }
+
+    /**
+     * Describes the instance by its states and transitions, which are named
+     * by their indices in the encoding.
+     */
+    private static MutableSet<String> structureOf(FSA<String> fsa)
+    {
+        final MutableSet<String> result = UnifiedSet.newSet();
+        fsa.states().forEach(state -> {
+            result.add((fsa.isAcceptState(state) ? "accepting " : "") + nameOf(fsa, state));
+            state.transitions().forEach(transition -> result.add(
+                nameOf(fsa, state) + " -" + transition.getOne() + "-> " + nameOf(fsa, transition.getTwo())));
+        });
+
+        return result;
+    }
+
+    private static MutableSet<MutableSet<String>> enumerate(SatSolver solver, FSAEncoding<String> encoding)
+    {
+        final MutableSet<MutableSet<String>> result = UnifiedSet.newSet();
+        while (solver.findItSatisfiable()) {
+            expect(result.add(structureOf(encoding.resolve()))).toBeTrue();
+            encoding.blockCurrentInstance();
+        }
+
+        return result;
+    }
+
+    {
+        final var alphabet = AlphabetIntEncoders.create(Lists.mutable.of("e", "a1", "a2"), "e");
+        final var word1 = Lists.immutable.of("a1", "a2", "a1");
+        final var word2 = Lists.immutable.of("a2", "a2");
+        final Consumer<FSAEncoding<String>> constrainWords = encoding -> {
+            encoding.ensureAccepting(word1);
+            encoding.ensureNoAccepting(word2);
+        };
+
+        final boolean[][] optionRuns = {
+            // restrictShape, binaryEncoded, numberBreadthFirst
+            {false, false, false}, {false, true, false}, {false, false, true}, {false, true, true}, //
+            {true, false, false}, {true, true, false}};
+
+        for (var options : optionRuns) {
+            final var restrictShape = options[0];
+            final var binaryEncoded = options[1];
+            final var numberBreadthFirst = options[2];
+
+            describe("#instantiate() with " + (restrictShape ? "shape restricted, " : "") +
+                         (binaryEncoded ? "binary" : "one-hot") + (numberBreadthFirst ? ", breadth-first" : ""), () -> {
+
+                it("agrees with an encoding built from scratch", () -> {
+                    final var scratchSolver = new Sat4jSolverAdapter();
+                    final var scratch = buildFromScratch(scratchSolver, alphabet, restrictShape, binaryEncoded,
+                                                         numberBreadthFirst);
+                    final var loadedSolver = new Sat4jSolverAdapter();
+                    final var loaded = FSAEncodingTemplates.instantiate(loadedSolver, SIZE, alphabet, restrictShape,
+                                                                        binaryEncoded, numberBreadthFirst);
+                    constrainWords.accept(scratch);
+                    constrainWords.accept(loaded);
+                    final var scratchInstances = enumerate(scratchSolver, scratch);
+                    expect(scratchInstances.isEmpty()).toBeFalse();
+                    expect(enumerate(loadedSolver, loaded).equals(scratchInstances)).toBeTrue();
+                });
+
+                it("agrees on the unsatisfiable constraints", () -> {
+                    final var scratchSolver = new Sat4jSolverAdapter();
+                    final var scratch = buildFromScratch(scratchSolver, alphabet, restrictShape, binaryEncoded,
+                                                         numberBreadthFirst);
+                    final var loadedSolver = new Sat4jSolverAdapter();
+                    final var loaded = FSAEncodingTemplates.instantiate(loadedSolver, SIZE, alphabet, restrictShape,
+                                                                        binaryEncoded, numberBreadthFirst);
+                    scratch.ensureAccepting(word1);
+                    scratch.ensureNoAccepting(word1);
+                    loaded.ensureAccepting(word1);
+                    loaded.ensureNoAccepting(word1);
+                    expect(scratchSolver.findItSatisfiable()).toBeFalse();
+                    expect(loadedSolver.findItSatisfiable()).toBeFalse();
+                });
+
+                it("agrees when reused at another variable offset", () -> {
+                    final var scratchSolver = new Sat4jSolverAdapter();
+                    final var scratch = buildFromScratch(scratchSolver, alphabet, restrictShape, binaryEncoded,
+                                                         numberBreadthFirst);
+                    constrainWords.accept(scratch);
+                    final var scratchInstances = enumerate(scratchSolver, scratch);
+
+                    final var sharedSolver = new Sat4jSolverAdapter();
+                    final var unrelated = sharedSolver.newFreeVariables(5);
+                    sharedSolver.setLiteralTruthy(unrelated.getFirst());
+                    final var first = FSAEncodingTemplates.instantiate(sharedSolver, SIZE, alphabet, restrictShape,
+                                                                       binaryEncoded, numberBreadthFirst);
+                    final var second = FSAEncodingTemplates.instantiate(sharedSolver, SIZE, alphabet, restrictShape,
+                                                                        binaryEncoded, numberBreadthFirst);
+                    first.ensureAccepting(word2); // the first instance is free to differ from the second one
+                    constrainWords.accept(second);
+                    expect(enumerate(sharedSolver, second).equals(scratchInstances)).toBeTrue();
+                });
+
+            });
+        }
+    }
+}
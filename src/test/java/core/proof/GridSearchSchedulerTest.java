@@ -0,0 +1,108 @@
+package core.proof;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class GridSearchSchedulerTest
+{
+    {
+        describe("#next()", () -> {
+
+            it("starts from the smallest cell", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, true, true);
+                final var cell = cells.next();
+                expect(cell.getOne()).toEqual(1);
+                expect(cell.getTwo()).toEqual(2);
+            });
+
+            it("visits every cell once if none is implied", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, false, false);
+                var count = 0;
+                while (cells.hasNext()) {
+                    final var cell = cells.next();
+                    cells.recordNoSolution(cell.getOne(), cell.getTwo(), 10L * count);
+                    count++;
+                }
+                expect(count).toEqual(9);
+                expect(cells.skippedNumber()).toEqual(0);
+            });
+
+            it("skips nothing for the empty grid", () -> {
+                final var cells = new GridSearchScheduler(0, 0, 0, 0, true, true);
+                expect(cells.hasNext()).toBeFalse();
+            });
+
+        });
+
+        describe("#recordSuspended()", () -> {
+
+            it("takes the cell out of the ones to try next", () -> {
+                final var cells = new GridSearchScheduler(1, 1, 2, 2, true, true);
+                cells.recordSuspended(1, 2);
+                expect(cells.hasNext()).toBeFalse();
+                expect(cells.skipReasonOf(1, 2)).toBeNull();
+            });
+
+        });
+
+        describe("#recordAbandoned()", () -> {
+
+            it("takes the cell out without skipping the others", () -> {
+                final var cells = new GridSearchScheduler(1, 2, 2, 3, true, true);
+                cells.recordAbandoned(2, 3);
+                expect(cells.skippedNumber()).toEqual(0);
+                expect(cells.skipReasonOf(1, 2)).toBeNull();
+                var count = 0;
+                while (cells.hasNext()) {
+                    final var cell = cells.next();
+                    cells.recordSuspended(cell.getOne(), cell.getTwo());
+                    count++;
+                }
+                expect(count).toEqual(3);
+            });
+
+        });
+
+        describe("#recordNoSolution()", () -> {
+
+            it("skips the cells not larger in both sizes", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, true, true);
+                cells.recordNoSolution(2, 3, 100);
+                expect(cells.skippedNumber()).toEqual(3);
+                expect(cells.skipReasonOf(1, 2)).toBeNotNull();
+                expect(cells.skipReasonOf(2, 2)).toBeNotNull();
+                expect(cells.skipReasonOf(1, 3)).toBeNotNull();
+                expect(cells.skipReasonOf(2, 3)).toBeNull();
+                expect(cells.skipReasonOf(3, 3)).toBeNull();
+                expect(cells.skipReasonOf(1, 4)).toBeNull();
+            });
+
+            it("keeps the size without padding as is", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, false, true);
+                cells.recordNoSolution(2, 3, 100);
+                expect(cells.skippedNumber()).toEqual(1);
+                expect(cells.skipReasonOf(2, 2)).toBeNotNull();
+                expect(cells.skipReasonOf(1, 2)).toBeNull();
+            });
+
+            it("skips the suspended cells as well", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, true, true);
+                cells.recordSuspended(1, 2);
+                cells.recordNoSolution(2, 2, 100);
+                expect(cells.skipReasonOf(1, 2)).toBeNotNull();
+            });
+
+            it("leaves nothing to visit once the largest cell has no solution", () -> {
+                final var cells = new GridSearchScheduler(1, 3, 2, 4, true, true);
+                cells.recordNoSolution(3, 4, 100);
+                expect(cells.hasNext()).toBeFalse();
+                expect(cells.skippedNumber()).toEqual(8);
+            });
+
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package core.proof;
+
+import com.mscharhag.oleaster.runner.OleasterRunner;
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.runner.RunWith;
+
+import static com.mscharhag.oleaster.matcher.Matchers.expect;
+import static com.mscharhag.oleaster.runner.StaticRunnerSupport.*;
+
+@RunWith(OleasterRunner.class)
+public class LearnedConstraintStoreTest
+{
+    private LearnedConstraintStore<String> store;
+
+    {
+        describe("#publish()", () -> {
+
+            beforeEach(() -> store = new LearnedConstraintStore<>("test", word -> word, 0));
+
+            it("numbers the entries in the order published", () -> {
+                expect(store.sequence()).toEqual(0);
+                expect(store.publish("a")).toBeTrue();
+                expect(store.publish("bb")).toBeTrue();
+                expect(store.sequence()).toEqual(2);
+                expect(store.size()).toEqual(2);
+            });
+
+            it("drops the entries with the same witness", () -> {
+                expect(store.publish("a")).toBeTrue();
+                expect(store.publish("a")).toBeFalse();
+                expect(store.sequence()).toEqual(1);
+                expect(store.toString()).toContain("1 duplicate");
+            });
+
+        });
+
+        describe("#publish() with implication", () -> {
+
+            // grouped by the first character, and a prefix implies its extensions
+            beforeEach(() -> store = new LearnedConstraintStore<>("test", word -> word, word -> word.charAt(0),
+                                                                  (w1, w2) -> w2.startsWith(w1), 0));
+
+            it("drops the entries implied by a kept one", () -> {
+                expect(store.publish("ab")).toBeTrue();
+                expect(store.publish("abc")).toBeFalse();
+                expect(store.publish("b")).toBeTrue();
+                expect(store.size()).toEqual(2);
+            });
+
+            it("stops handing out the entries implied by a new one", () -> {
+                store.publish("abc");
+                store.publish("abd");
+                store.publish("bc");
+                expect(store.publish("ab")).toBeTrue();
+                expect(store.size()).toEqual(2);
+                expect(store.pullSince(0).counterexamples().equals(Lists.immutable.of("bc", "ab"))).toBeTrue();
+            });
+
+        });
+
+        describe("#publish() with capacity", () -> {
+
+            beforeEach(() -> store = new LearnedConstraintStore<>("test", word -> word, 2));
+
+            it("evicts the least hit entry", () -> {
+                store.publish("a");
+                store.publish("b");
+                store.publish("a"); // a hit on 'a'
+                store.publish("c");
+                expect(store.size()).toEqual(2);
+                expect(store.pullSince(0).counterexamples().equals(Lists.immutable.of("a", "c"))).toBeTrue();
+            });
+
+            it("accepts an evicted entry again", () -> {
+                store.publish("a");
+                store.publish("b");
+                store.publish("c");
+                expect(store.publish("a")).toBeTrue();
+            });
+
+        });
+
+        describe("#pullSince()", () -> {
+
+            beforeEach(() -> store = new LearnedConstraintStore<>("test", word -> word, 0));
+
+            it("returns only the entries not pulled yet", () -> {
+                store.publish("a");
+                store.publish("bb");
+                final var first = store.pullSince(0);
+                expect(first.counterexamples().equals(Lists.immutable.of("a", "bb"))).toBeTrue();
+                store.publish("ccc");
+                final var second = store.pullSince(store.sequence() - 1);
+                expect(second.counterexamples().equals(Lists.immutable.of("ccc"))).toBeTrue();
+                expect(store.pullSince(store.sequence()).counterexamples().isEmpty()).toBeTrue();
+            });
+
+            it("reads past the dropped entries", () -> {
+                store = new LearnedConstraintStore<>("test", word -> word, word -> word.charAt(0),
+                                                     (w1, w2) -> w2.startsWith(w1), 0);
+                store.publish("abc");
+                store.publish("b");
+                store.publish("ab"); // supersedes 'abc'
+                final var first = store.pullSince(0);
+                expect(first.counterexamples().equals(Lists.immutable.of("b", "ab"))).toBeTrue();
+                expect(first.sequence()).toEqual(3);
+                final var second = store.pullSince(first.sequence());
+                expect(second.counterexamples().isEmpty()).toBeTrue();
+                expect(second.sequence()).toEqual(3);
+            });
+
+        });
+
+        describe("#clear()", () -> {
+
+            beforeEach(() -> store = new LearnedConstraintStore<>("test", word -> word, 0));
+
+            it("forgets every entry", () -> {
+                store.publish("a");
+                store.clear();
+                expect(store.sequence()).toEqual(0);
+                expect(store.publish("a")).toBeTrue();
+            });
+
+        });
+    }
+}